@@ -0,0 +1,64 @@
+package com.daniel.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.daniel.documentos.Cliente;
+
+/**
+ * Custo do mapeamento {@link Cliente} <-> BSON feito pelo {@link MappingMongoConverter} em todo `save`/`find` do Spring Data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClienteBsonBenchmark {
+
+	private MappingMongoConverter converter;
+
+	private Cliente cliente;
+
+	private Document documento;
+
+	@Setup
+	public void iniciar() {
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setInitialEntitySet(Set.of(Cliente.class));
+		mappingContext.afterPropertiesSet();
+
+		converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+		converter.afterPropertiesSet();
+
+		cliente = Clientes.exemplo();
+		documento = escreverCliente();
+	}
+
+	@Benchmark
+	public Document escreverCliente() {
+		Document documento = new Document();
+		converter.write(cliente, documento);
+		return documento;
+	}
+
+	@Benchmark
+	public Cliente lerCliente() {
+		return converter.read(Cliente.class, documento);
+	}
+}
@@ -0,0 +1,152 @@
+package com.daniel.benchmarks;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.daniel.ApiSpringbootWebFluxMongoBdApplication;
+import com.daniel.documentos.Cliente;
+import com.daniel.service.ClienteService;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import reactor.core.publisher.Flux;
+
+/**
+ * Carga ponta a ponta: sobe a aplicação inteira (Netty, filtros, controller, serviço, driver) apontando para um MongoDB em memória 
+ * (mongo-java-server) e dispara requisições HTTP reais com o {@link WebTestClient}. O MongoDB em memória não tem o custo de um servidor 
+ * real, então os números servem para comparar versões da aplicação entre si, não para estimar a latência de produção.
+ * 
+ * `modo` sobe a API anotada ({@code ClienteController}) ou a funcional ({@code ClienteRouter}); o modo SampleTime traz os percentis 
+ * (p99) de cada uma lado a lado. O limite de requisições por cliente fica desligado, já que toda a carga sai do mesmo endereço, assim 
+ * como o de concorrência, calibrado para a latência de um MongoDB real e não para as consultas `$in` do servidor em memória.
+ * 
+ * Executar: `mvn -f ../pom.xml -pl api-springboot-webFlux-mongoBD/benchmarks -am package -DskipTests && java -jar benchmarks/target/benchmarks.jar ClienteEndToEnd -prof gc`
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ClienteEndToEndBenchmark {
+
+	@Param("1000")
+	private int clientes;
+
+	@Param({"anotado", "funcional"})
+	private String modo;
+
+	private MongoServer mongo;
+
+	private ConfigurableApplicationContext contexto;
+
+	private WebTestClient webTestClient;
+
+	private List<String> ids;
+
+	@Setup(Level.Trial)
+	public void iniciar() throws Exception {
+		mongo = new MongoServer(new MemoryBackend());
+		InetSocketAddress endereco = mongo.bind();
+
+		contexto = new SpringApplicationBuilder(ApiSpringbootWebFluxMongoBdApplication.class)
+				.run("--spring.data.mongodb.uri=mongodb://localhost:" + endereco.getPort() + "/benchmark",
+						"--server.port=0",
+						"--config.clientes.api.modo=" + modo,
+						"--config.limites.taxa.habilitado=false",
+						"--config.limites.concorrencia.habilitado=false",
+						"--config.uploads.path=" + Files.createTempDirectory("benchmark-fotos"));
+
+		ClienteService clienteService = contexto.getBean(ClienteService.class);
+		clienteService.insertAll(Flux.range(0, clientes).map(ClienteEndToEndBenchmark::novoCliente)).blockLast();
+		ids = clienteService.findAll().map(Cliente::getId).collectList().block();
+
+		int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+		webTestClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + porta).responseTimeout(Duration.ofSeconds(30)).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void encerrar() {
+		contexto.close();
+		mongo.shutdownNow();
+	}
+
+	@Benchmark
+	public byte[] verDetalhesDeCliente() {
+		String id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+		return webTestClient.get().uri("/api/clientes/{id}", id).exchange()
+				.expectStatus().isOk()
+				.expectBody().returnResult().getResponseBodyContent();
+	}
+
+	@Benchmark
+	public byte[] criarCliente() {
+		return webTestClient.post().uri("/api/clientes").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Clientes.json(ThreadLocalRandom.current().nextInt(clientes))).exchange()
+				.expectStatus().isCreated()
+				.expectBody().returnResult().getResponseBodyContent();
+	}
+
+	@Benchmark
+	public byte[] criarClienteInvalido() {
+		return webTestClient.post().uri("/api/clientes").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"nome\":\"\"}").exchange()
+				.expectStatus().isBadRequest()
+				.expectBody().returnResult().getResponseBodyContent();
+	}
+
+	@Benchmark
+	public byte[] listarClientesPagina() {
+		return webTestClient.get().uri("/api/clientes/pagina?tamanho=50").exchange()
+				.expectStatus().isOk()
+				.expectBody().returnResult().getResponseBodyContent();
+	}
+
+	// Mesmos 50 clientes de uma página, mas pedidos pelo id: compara com 50 chamadas a verDetalhesDeCliente
+	@Benchmark
+	public byte[] buscarPorIds() {
+		List<String> pedidos = new ArrayList<>(50);
+		for (int i = 0; i < 50; i++) {
+			pedidos.add(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+		}
+		return webTestClient.post().uri("/api/clientes/batch-get").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(pedidos).exchange()
+				.expectStatus().isOk()
+				.expectBody().returnResult().getResponseBodyContent();
+	}
+
+	private static Cliente novoCliente(int i) {
+		Cliente cliente = new Cliente();
+		cliente.setNome("Nome" + i);
+		cliente.setSobrenome("Sobrenome" + i);
+		cliente.setIdade(18 + i % 60);
+		cliente.setSalario(1000.0 + i);
+		return cliente;
+	}
+}
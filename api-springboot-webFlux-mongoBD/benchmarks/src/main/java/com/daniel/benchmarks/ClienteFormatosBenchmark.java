@@ -0,0 +1,106 @@
+package com.daniel.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.daniel.documentos.Cliente;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * JSON x Smile para um {@link Cliente} e para a lista de `GET /api/clientes`: tempo de encode/decode por formato. O tamanho de cada 
+ * payload (puro e com gzip) é impresso no início de cada fork, já que o JMH só mede tempo.
+ * 
+ * Executar: `java -jar benchmarks/target/benchmarks.jar ClienteFormatos -prof gc`
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClienteFormatosBenchmark {
+
+	@Param({"json", "smile"})
+	private String formato;
+
+	@Param("500")
+	private int clientes;
+
+	private ObjectMapper objectMapper;
+
+	private Cliente cliente;
+
+	private List<Cliente> lista;
+
+	private byte[] clienteCodificado;
+
+	private byte[] listaCodificada;
+
+	@Setup
+	public void iniciar() throws Exception {
+		// Mesma configuração do Spring Boot para os dois formatos; só muda a fábrica
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		objectMapper = "smile".equals(formato) ? builder.factory(new SmileFactory()).build() : builder.build();
+
+		cliente = Clientes.exemplo();
+		lista = new ArrayList<>(clientes);
+		for (int i = 0; i < clientes; i++) {
+			Cliente c = Clientes.exemplo();
+			c.setNome("Nome" + i);
+			c.setIdade(18 + i % 60);
+			c.setSalario(1000.0 + i);
+			lista.add(c);
+		}
+		clienteCodificado = objectMapper.writeValueAsBytes(cliente);
+		listaCodificada = objectMapper.writeValueAsBytes(lista);
+
+		System.out.printf("%n[%s] cliente: %d bytes (gzip %d) | lista de %d: %d bytes (gzip %d)%n", formato, clienteCodificado.length, 
+				gzip(clienteCodificado), clientes, listaCodificada.length, gzip(listaCodificada));
+	}
+
+	@Benchmark
+	public byte[] encodeCliente() throws Exception {
+		return objectMapper.writeValueAsBytes(cliente);
+	}
+
+	@Benchmark
+	public Cliente decodeCliente() throws Exception {
+		return objectMapper.readValue(clienteCodificado, Cliente.class);
+	}
+
+	@Benchmark
+	public byte[] encodeLista() throws Exception {
+		return objectMapper.writeValueAsBytes(lista);
+	}
+
+	@Benchmark
+	public Cliente[] decodeLista() throws Exception {
+		return objectMapper.readValue(listaCodificada, Cliente[].class);
+	}
+
+	private static int gzip(byte[] dados) throws Exception {
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+			gzip.write(dados);
+		}
+		return saida.size();
+	}
+}
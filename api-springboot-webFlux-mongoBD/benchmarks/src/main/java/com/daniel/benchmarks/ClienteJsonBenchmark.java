@@ -0,0 +1,62 @@
+package com.daniel.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.ClienteCriado;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Custo do Jackson para (de)serializar um {@link Cliente} e da resposta {@link ClienteCriado} de `ClienteController.criarCliente`. O 
+ * `ObjectMapper` é configurado como o do Spring Boot (datas em ISO-8601).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClienteJsonBenchmark {
+
+	private ObjectMapper objectMapper;
+
+	private Cliente cliente;
+
+	private byte[] clienteJson;
+
+	@Setup
+	public void iniciar() throws Exception {
+		objectMapper = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+		cliente = Clientes.exemplo();
+		clienteJson = objectMapper.writeValueAsBytes(cliente);
+	}
+
+	@Benchmark
+	public byte[] encodeCliente() throws Exception {
+		return objectMapper.writeValueAsBytes(cliente);
+	}
+
+	@Benchmark
+	public Cliente decodeCliente() throws Exception {
+		return objectMapper.readValue(clienteJson, Cliente.class);
+	}
+
+	@Benchmark
+	public byte[] encodeRespostaCriarCliente() throws Exception {
+		return objectMapper.writeValueAsBytes(new ClienteCriado(cliente, "Cliente criado com sucesso", new Date()));
+	}
+}
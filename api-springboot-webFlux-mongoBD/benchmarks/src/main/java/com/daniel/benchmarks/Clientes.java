@@ -0,0 +1,34 @@
+package com.daniel.benchmarks;
+
+import org.bson.types.ObjectId;
+
+import com.daniel.documentos.Cliente;
+
+// Dados de exemplo compartilhados pelos benchmarks
+final class Clientes {
+
+	private Clientes() {
+	}
+
+	static Cliente exemplo() {
+		Cliente cliente = new Cliente();
+		cliente.setId(new ObjectId().toHexString());
+		cliente.setNome("Daniel");
+		cliente.setSobrenome("Penelva");
+		cliente.setIdade(32);
+		cliente.setSalario(8500.75);
+		cliente.setFoto("9b02b6421a390fb283fece700df3834098f6461aaf703ce27758a0ba8d5bfb7c.png");
+		cliente.setVersao(3L);
+		return cliente;
+	}
+
+	static Cliente invalido() {
+		Cliente cliente = new Cliente();
+		cliente.setNome("");
+		return cliente;
+	}
+
+	static String json(int i) {
+		return "{\"nome\":\"Nome" + i + "\",\"sobrenome\":\"Sobrenome" + i + "\",\"idade\":" + (18 + i % 60) + ",\"salario\":" + (1000.0 + i) + "}";
+	}
+}
@@ -0,0 +1,90 @@
+package com.daniel.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import com.daniel.controller.ClienteController;
+import com.daniel.controller.ValidacaoControllerAdvice;
+import com.daniel.documentos.Cliente;
+import com.daniel.service.ClienteService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Caminho de `ClienteController.criarCliente` sem rede nem banco: o `ClienteService` é substituído por um stub que devolve o próprio 
+ * cliente. Mede o sucesso (montagem da resposta) e a falha de validação (Bean Validation + `WebExchangeBindException` + 
+ * {@link ValidacaoControllerAdvice} até a resposta 400; o `onErrorResume` faz o papel do `DispatcherHandler` ao acionar o advice).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CriarClienteBenchmark {
+
+	private ClienteController controller;
+
+	private ValidacaoControllerAdvice advice;
+
+	private SpringValidatorAdapter validator;
+
+	private MethodParameter parametro;
+
+	private Cliente valido;
+
+	private Cliente invalido;
+
+	@Setup
+	public void iniciar() throws Exception {
+		ClienteService clienteService = (ClienteService) Proxy.newProxyInstance(getClass().getClassLoader(), 
+				new Class<?>[] {ClienteService.class}, (proxy, metodo, args) -> {
+					if ("save".equals(metodo.getName())) {
+						return Mono.just(args[0]);
+					}
+					throw new UnsupportedOperationException(metodo.getName());
+				});
+
+		controller = new ClienteController();
+		ReflectionTestUtils.setField(controller, "clienteService", clienteService);
+		advice = new ValidacaoControllerAdvice();
+
+		validator = new SpringValidatorAdapter(Validation.buildDefaultValidatorFactory().getValidator());
+		parametro = new MethodParameter(ClienteController.class.getMethod("criarCliente", Mono.class), 0);
+		valido = Clientes.exemplo();
+		invalido = Clientes.invalido();
+	}
+
+	@Benchmark
+	public Object criarClienteValido() {
+		return controller.criarCliente(Mono.just(valido)).block();
+	}
+
+	@Benchmark
+	public Object criarClienteInvalido() {
+		BeanPropertyBindingResult erros = new BeanPropertyBindingResult(invalido, "cliente");
+		validator.validate(invalido, erros);
+		return controller.criarCliente(Mono.error(new WebExchangeBindException(parametro, erros)))
+				.<Object>map(resposta -> resposta)
+				.onErrorResume(WebExchangeBindException.class, e -> Mono.just(advice.tratarValidacao(e)))
+				.block();
+	}
+}
@@ -0,0 +1,82 @@
+package com.daniel.benchmarks;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.daniel.ApiSpringbootWebFluxMongoBdApplication;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+/**
+ * Tempo de subida da aplicação (contexto Spring + Netty) com a API anotada e com a funcional. Cada fork mede subidas em uma JVM nova, 
+ * então o número inclui carregamento de classes e o registro dos mapeamentos de cada variante. Com `aquecimento=true` o tempo vai até a 
+ * aplicação ficar pronta depois do aquecimento de `config.recursos.aquecimento`.
+ * 
+ * Executar: `java -jar benchmarks/target/benchmarks.jar Inicializacao`
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class InicializacaoBenchmark {
+
+	@Param({"anotado", "funcional"})
+	private String modo;
+
+	@Param({"false", "true"})
+	private boolean aquecimento;
+
+	private MongoServer mongo;
+
+	private String uri;
+
+	private ConfigurableApplicationContext contexto;
+
+	@Setup(Level.Trial)
+	public void iniciar() {
+		mongo = new MongoServer(new MemoryBackend());
+		InetSocketAddress endereco = mongo.bind();
+		uri = "mongodb://localhost:" + endereco.getPort() + "/benchmark";
+	}
+
+	@TearDown(Level.Iteration)
+	public void fecharContexto() {
+		contexto.close();
+	}
+
+	@TearDown(Level.Trial)
+	public void encerrar() {
+		mongo.shutdownNow();
+	}
+
+	@Benchmark
+	public ConfigurableApplicationContext subir() throws Exception {
+		contexto = new SpringApplicationBuilder(ApiSpringbootWebFluxMongoBdApplication.class)
+				.run("--spring.data.mongodb.uri=" + uri,
+						"--server.port=0",
+						"--config.clientes.api.modo=" + modo,
+						"--config.recursos.aquecimento.habilitado=" + aquecimento,
+						"--config.uploads.path=" + Files.createTempDirectory("benchmark-fotos"));
+		return contexto;
+	}
+}
@@ -0,0 +1,75 @@
+package com.daniel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.metricas.MetricaReativa;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custo da instrumentação de `ClienteServiceImpl`: a mesma chamada sem {@link MetricaReativa}, com ela no registro Prometheus com 
+ * histograma de percentis habilitado (como em produção) e sem o histograma. A diferença deve ficar na casa de centenas de nanossegundos 
+ * por chamada, ordens de grandeza abaixo de uma ida ao MongoDB (`ClienteEndToEndBenchmark`).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricaReativaBenchmark {
+
+	private MetricaReativa metrica;
+
+	private MetricaReativa metricaSemHistograma;
+
+	private Cliente cliente;
+
+	@Setup
+	public void iniciar() {
+		PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		registry.config().meterFilter(new MeterFilter() {
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+			}
+		});
+		metrica = new MetricaReativa(registry, "clientes.service", "metodo", "findById");
+		metricaSemHistograma = new MetricaReativa(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), "clientes.service", "metodo", 
+				"findById");
+		cliente = Clientes.exemplo();
+	}
+
+	@Benchmark
+	public void semMetrica(Blackhole blackhole) {
+		Mono.just(cliente).subscribe(blackhole::consume);
+	}
+
+	@Benchmark
+	public void comMetrica(Blackhole blackhole) {
+		metrica.medir(Mono.just(cliente)).subscribe(blackhole::consume);
+	}
+
+	@Benchmark
+	public void comMetricaSemHistograma(Blackhole blackhole) {
+		metricaSemHistograma.medir(Mono.just(cliente)).subscribe(blackhole::consume);
+	}
+}
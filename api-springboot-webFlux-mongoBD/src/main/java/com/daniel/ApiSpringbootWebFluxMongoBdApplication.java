@@ -4,11 +4,15 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 
+import reactor.core.scheduler.Schedulers;
+
 @SpringBootApplication
 @ComponentScan(basePackages = {"com.*"})
 public class ApiSpringbootWebFluxMongoBdApplication {
 
 	public static void main(String[] args) {
+		// Precisa vir antes da criação de qualquer Scheduler para que todos publiquem métricas no registro global do Micrometer
+		Schedulers.enableMetrics();
 		SpringApplication.run(ApiSpringbootWebFluxMongoBdApplication.class, args);
 	}
 
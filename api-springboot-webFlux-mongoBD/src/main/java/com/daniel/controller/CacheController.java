@@ -0,0 +1,32 @@
+package com.daniel.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.daniel.dto.EstatisticasCache;
+import com.daniel.service.ClienteServiceCache;
+
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+	@Autowired
+	private ClienteServiceCache clienteServiceCache;
+
+	/**
+	 * Estatísticas do cache de clientes - http://localhost:8080/api/cache/clientes
+	 * 
+	 * Retorna o total de buscas por id, acertos, falhas, taxa de acerto, despejos e o tamanho estimado do cache. Serve para ajustar 
+	 * `config.clientes.cache.tamanho-maximo` e `config.clientes.cache.ttl-segundos` de acordo com o tráfego real.
+	 */
+	@GetMapping("/clientes")
+	public Mono<ResponseEntity<EstatisticasCache>> estatisticasClientes(){
+		return Mono.just(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(clienteServiceCache.estatisticas()));
+	}
+}
@@ -1,47 +1,83 @@
 package com.daniel.controller;
 
-import java.io.File;
 import java.net.URI;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.List;
+import java.util.Set;
 
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 
 import com.daniel.documentos.Cliente;
+import com.daniel.dto.ClienteCriado;
+import com.daniel.dto.ClientePorId;
+import com.daniel.dto.EstatisticasClientes;
+import com.daniel.dto.EventoCliente;
+import com.daniel.dto.PaginaClientes;
+import com.daniel.dto.ResultadoLote;
+import com.daniel.formatos.FormatosConfig;
+import com.daniel.service.AlteracoesClienteService;
 import com.daniel.service.ClienteService;
 import com.daniel.service.ClienteServiceImpl;
+import com.daniel.service.FotoService;
+import com.daniel.service.OperacoesClienteService;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+// Variante anotada da API de clientes (padrão). Com config.clientes.api.modo=funcional as mesmas rotas são atendidas por ClienteRouter;
+// os fluxos que combinam cliente e foto ficam em OperacoesClienteService, chamado pelas duas
 @RestController
 @RequestMapping("/api/clientes")
+@ConditionalOnProperty(name = "config.clientes.api.modo", havingValue = "anotado", matchIfMissing = true)
 public class ClienteController {
 	
 	@Autowired
 	private ClienteService clienteService;
 	
-	@Value("${config.uploads.path}")
-	private String path;
+	@Autowired
+	private FotoService fotoService;
+	
+	@Autowired
+	private OperacoesClienteService operacoesClienteService;
+	
+	@Autowired
+	private AlteracoesClienteService alteracoesClienteService;
+	
+	@Value("${config.clientes.stream.prefetch:256}")
+	private int prefetch;
+	
+	@Value("${config.clientes.pagina.tamanho-maximo:500}")
+	private int tamanhoMaximoPagina;
+	
+	@Value("${config.clientes.lote-ids.maximo:1000}")
+	private int maximoIdsLote;
 	
 	/**- registrando cliente com (upload) foto - http://localhost:8080/api/clientes/registrarClienteFoto
 	    * Explicando passo a passo do código:
@@ -53,14 +89,15 @@ public class ClienteController {
 	     *     o registro do cliente. Ele recebe dois parâmetros: `Cliente cliente` e `FilePart file`. O primeiro parâmetro representa os dados do 
 	     *     cliente, e o segundo parâmetro representa o arquivo de imagem que está sendo carregado.
 	     * 
-	     * 3. `cliente.setFoto(...)`: Neste trecho, um nome de arquivo para a foto é gerado com base no nome original do arquivo e um UUID 
-	     *     (Identificador Único Universal) aleatório. O nome do arquivo é limpo de espaços em branco e caracteres especiais.
+	     * 3. `operacoesClienteService.registrarComFoto(...)`: O fluxo é o mesmo da variante funcional. Com `fotoService.salvar(...)`, o 
+	     *     conteúdo do arquivo de imagem é gravado no armazenamento de fotos à medida que chega, sem bloquear o event loop, enquanto o SHA-256 
+	     *     do conteúdo é calculado. O nome da foto é esse hash (mais a extensão original), então uma imagem já enviada antes não é armazenada 
+	     *     de novo. Fotos acima de `config.fotos.tamanho-maximo` resultam em "Payload Muito Grande" (código 413).
 	     * 
-	     * 4. `return file.transferTo(new File(path + cliente.getFoto()))`: Aqui, o arquivo de imagem é transferido para o local de armazenamento no 
-	     *     servidor. O caminho do arquivo é construído concatenando o caminho raiz (`path`) com o nome do arquivo da foto gerado anteriormente.
+	     * 4. `cliente.setFoto(foto)`: O nome da foto gravada é atribuído ao cliente.
 	     * 
-	     * 5. `then(clienteService.save(cliente) ...`: Após o upload bem-sucedido da imagem, o cliente é salvo no banco de dados. O método `save` 
-	     *     retorna um `Mono<Cliente>`.
+	     * 5. `clienteService.save(cliente)`: Após o upload bem-sucedido da imagem, o cliente é salvo no banco de dados e, em segundo plano, 
+	     *     `fotoService.gerarMiniaturas(...)` começa a gerar as miniaturas da foto fora do event loop.
 	     * 
 	     * 6. `.map(c -> ResponseEntity.created(URI.create("/api/clientes".concat(c.getId())) ...`: Depois que o cliente é salvo no banco de dados, 
 	     *      ele é mapeado para uma resposta HTTP. O `ResponseEntity` representa uma resposta HTTP, e neste caso, uma resposta de "created" 
@@ -76,12 +113,7 @@ public class ClienteController {
 	    */
 	    @PostMapping("/registrarClienteFoto")
 	    public Mono<ResponseEntity<Cliente>> registrarClienteComFoto(Cliente cliente, @RequestPart FilePart file){
-	        cliente.setFoto(UUID.randomUUID().toString() + "-" + file.filename()
-	            .replace(" ","")
-	            .replace(":","")
-	            .replace("//",""));
-	        
-	        return file.transferTo(new File(path + cliente.getFoto())).then(clienteService.save(cliente))
+	        return operacoesClienteService.registrarComFoto(cliente, file.filename(), file.content())
 	        		.map(c -> ResponseEntity.created(URI.create("/api/clientes".concat(c.getId())))
 	        				.contentType(MediaType.APPLICATION_JSON_UTF8).body(c));
 	    }
@@ -97,24 +129,24 @@ public class ClienteController {
 	     *     upload da foto do cliente. Ele recebe o ID do cliente da URL como um parâmetro de caminho e o arquivo de imagem como um parâmetro de 
 	     * solicitação (`@RequestPart`).
 	     * 
-	     * 3. `return clienteService.findById(id).flatMap(c -> { ... })`: O método começa por buscar o cliente com o ID especificado usando o serviço 
-	     *    `clienteService`. O método `findById(id)` retorna um `Mono<Cliente>` representando o cliente encontrado. Em seguida, ele usa o operador 
-	     *    `flatMap` para executar uma ação quando o cliente for encontrado. A ação é definida como uma função lambda que recebe o cliente (`c`) e 
-	     *     faz o seguinte:
+	     * 3. `operacoesClienteService.trocarFoto(id, ...)`: O fluxo, o mesmo da variante funcional, começa por conferir se o cliente com o ID 
+	     *     especificado existe. Em seguida, ele faz o seguinte:
 	     * 
-	     *     - Gera um novo nome de arquivo para a foto com base no nome original do arquivo, usando um UUID (Identificador Único Universal) 
-	     *       gerado aleatoriamente e removendo espaços, dois pontos e barras (caracteres que podem causar problemas em nomes de arquivo).
+	     *     - Grava o conteúdo do arquivo de imagem (`file`) por meio de `fotoService.salvar`, que nomeia o arquivo pelo SHA-256 do conteúdo e 
+	     *       reaproveita o arquivo existente quando a mesma imagem já foi enviada.
 	     * 
-	     *     - Transfere o arquivo de imagem (`file`) para o local de armazenamento no servidor com o novo nome de arquivo.
+	     *     - Troca apenas os campos `foto` e `miniaturas` (vazio, pois são da foto anterior) no banco de dados por meio de 
+	     *       `clienteService.updateFoto`, que lê a foto atual direto do banco e só grava se o cliente ainda estiver na versão lida (senão lê 
+	     *       de novo). Assim, dois uploads simultâneos para o mesmo cliente liberam cada um a foto que de fato substituíram.
 	     * 
-	     *     - Salva as alterações no objeto do cliente no banco de dados por meio do serviço `clienteService`.
+	     *     - Começa a gerar, em segundo plano, as miniaturas da nova foto e libera a referência à foto substituída.
 	     * 
 	     * 4. `.map(c -> ResponseEntity.ok(c))`: Após as operações de upload e salvamento serem concluídas com sucesso, o cliente modificado é 
 	     *     mapeado para uma resposta HTTP "OK" (código de status 200) usando `ResponseEntity.ok(c)`, onde `c` é o cliente modificado. Isso 
 	     *     indica que o upload foi bem-sucedido e a resposta contém o cliente atualizado.
 	     * 
 	     * 5. `.defaultIfEmpty(ResponseEntity.notFound().build())`: Se o cliente não for encontrado no banco de dados (por exemplo, se o ID 
-	     *     especificado não corresponder a nenhum cliente existente), o método `findById(id)` retornará um `Mono` vazio. Nesse caso, o operador 
+	     *     especificado não corresponder a nenhum cliente existente), `trocarFoto` retornará um `Mono` vazio. Nesse caso, o operador 
 	     *    `defaultIfEmpty` é usado para fornecer uma resposta padrão, que é uma resposta HTTP "Não Encontrado" (código de status 404) criada com 
 	     *    `ResponseEntity.notFound().build()`. Isso indica que o cliente não foi encontrado.
 	     * 
@@ -126,14 +158,51 @@ public class ClienteController {
 	    @PostMapping("/upload/{id}")
 	    public Mono<ResponseEntity<Cliente>> subirFoto(@PathVariable String id, @RequestPart FilePart file){
 	        
-	        return clienteService.findById(id).flatMap(c -> {
-	            c.setFoto(UUID.randomUUID().toString() + "-" + file.filename()
-	                .replace(" ","")
-	                .replace(":","")
-	                .replace("//",""));
-	            
-	            return file.transferTo(new File(path + c.getFoto())).then(clienteService.save(c));
-	        }).map(c -> ResponseEntity.ok(c)).defaultIfEmpty(ResponseEntity.notFound().build());
+	        return operacoesClienteService.trocarFoto(id, file.filename(), file.content())
+	        		.map(c -> ResponseEntity.ok(c)).defaultIfEmpty(ResponseEntity.notFound().build());
+	    }
+	    
+	    
+	    /** Ver foto do cliente - http://localhost:8080/api/clientes/{id}/foto?size={tamanho}
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `@RequestParam(name = "size", required = false) Integer tamanho`: Sem `size` a foto original é devolvida. Com `size`, a miniatura 
+	     *     daquele tamanho (um dos valores de `config.fotos.miniaturas.tamanhos`); outro valor resulta em "Solicitação Inválida" (código 400).
+	     * 
+	     * 2. `operacoesClienteService.carregarFoto(id, tamanho)`: Busca o cliente e segue apenas se ele tiver foto.
+	     * 
+	     * 3. `fotoService.carregar(c, tamanho)`: Lê os metadados do arquivo (tamanho e data de modificação) fora do event loop e devolve a foto 
+	     *     como um `Resource` de arquivo. Se a miniatura ainda estiver sendo gerada, a requisição aguarda a mesma geração em vez de iniciar 
+	     *     outra.
+	     * 
+	     * 4. `ResponseEntity.ok().eTag(...).lastModified(...)`: Com `ETag` e `Last-Modified` na resposta, o WebFlux responde "Não Modificado" 
+	     *     (código 304) sozinho quando o navegador ou o proxy envia `If-None-Match`/`If-Modified-Since` com os mesmos valores.
+	     * 
+	     * 5. `.body(foto.getRecurso())`: Como o corpo é um arquivo, o WebFlux usa transferência zero-copy (`ZeroCopyHttpOutputMessage`): o 
+	     *     conteúdo vai do disco para o socket sem passar pelo heap. Requisições com `Range` recebem "Conteúdo Parcial" (código 206) apenas 
+	     *     com o trecho pedido.
+	     * 
+	     * 6. `.defaultIfEmpty(ResponseEntity.notFound().build())`: Se o cliente, a foto ou o arquivo não existir, a resposta é "Não Encontrado" 
+	     *     (código 404).
+	     * 
+	     * Em resumo, este método permite baixar a foto do cliente pela própria API, com cache HTTP e downloads parciais, sem ocupar as threads do 
+	     * event loop durante a transferência.
+	    */
+	    @GetMapping("/{id}/foto")
+	    public Mono<ResponseEntity<Resource>> verFoto(@PathVariable String id, @RequestParam(name = "size", required = false) Integer tamanho){
+	    	
+	    	if (tamanho != null && !fotoService.suportaTamanho(tamanho)) {
+	    		return Mono.just(ResponseEntity.badRequest().build());
+	    	}
+	    	
+	    	return operacoesClienteService.carregarFoto(id, tamanho)
+	    			.map(foto -> ResponseEntity.ok()
+	    					.eTag(foto.getEtag())
+	    					.lastModified(foto.getUltimaModificacao())
+	    					.cacheControl(CacheControl.noCache())
+	    					.contentType(MediaTypeFactory.getMediaType(foto.getNome()).orElse(MediaType.APPLICATION_OCTET_STREAM))
+	    					.body(foto.getRecurso()))
+	    			.defaultIfEmpty(ResponseEntity.notFound().build());
 	    }
 	    
 	    
@@ -162,18 +231,215 @@ public class ClienteController {
 	     *     retorna um `Mono` que, quando assinado (subscrito), produzirá uma resposta HTTP (um `ResponseEntity`) que contém um fluxo de clientes 
 	     *     (um `Flux<Cliente>`).
 	     * 
+	     * 5. `ParametrosClientes.tipoCliente(...)`: Com `Accept: application/x-jackson-smile` a lista vai em Smile (JSON binário do Jackson), 
+	     *     menor e mais barato de ler para outros serviços; sem ele, continua `application/json;charset=UTF-8`.
+	     * 
 	     * Em resumo, este método de controlador lida com uma solicitação GET para listar todos os clientes. Ele retorna uma resposta HTTP "OK" com
 	     * um corpo que contém um fluxo de clientes no formato JSON. Essa estrutura é comum em aplicativos Spring WebFlux, onde os resultados são 
 	     * encapsulados em tipos reativos, como `Mono` e `Flux`, para lidar com programação reativa e assíncrona. O cliente pode usar a API REST 
 	     * para consumir esses dados no formato JSON.
 	    */
 	    @GetMapping
-	    public Mono<ResponseEntity<Flux<Cliente>>> listarClientes(){
-
-	        return Mono.just(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(clienteService.findAll()));
+	    public Mono<ResponseEntity<Flux<Cliente>>> listarClientes(ServerHttpRequest request){
+	    	MediaType tipo = ParametrosClientes.tipoCliente(request.getHeaders().getAccept());
+	        return Mono.just(ResponseEntity.ok().contentType(tipo).body(clienteService.findAll()));
 	    }
 
 
+	    /** Listar Clientes em streaming (NDJSON ou SSE) - http://localhost:8080/api/clientes
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `@GetMapping(produces = ...)`: Mesma rota de `listarClientes`, mas selecionada quando o cabeçalho `Accept` pede 
+	     *     `application/x-ndjson`, `text/event-stream` ou `application/stream+x-jackson-smile` (Smile, um cliente por vez). Para 
+	     *     `application/json` (ou `Accept` ausente) o método acima continua respondendo.
+	     * 
+	     * 2. `clienteService.findAll()`: O `Flux` vem direto do cursor do MongoDB, que é lido em lotes limitados (`@Meta(cursorBatchSize)` no 
+	     *     `ClienteDao`).
+	     * 
+	     * 3. `.limitRate(prefetch)`: Limita quantos documentos são pedidos adiantados ao cursor. Cada cliente é escrito na resposta assim que chega 
+	     *     (um JSON por linha ou um evento SSE), então a memória usada não cresce com o tamanho da coleção e o consumidor lento segura o 
+	     *     cursor (backpressure) em vez de acumular documentos no heap.
+	     * 
+	     * Em resumo, este método entrega a coleção inteira sem montar um array JSON único, ideal para coleções muito grandes.
+	    */
+	    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE, FormatosConfig.APPLICATION_STREAM_SMILE_VALUE})
+	    public Flux<Cliente> listarClientesStream(){
+	    	
+	    	return clienteService.findAll().limitRate(prefetch);
+	    }
+	    
+	    
+	    /** Listar Clientes paginados por cursor - http://localhost:8080/api/clientes/pagina?cursor={cursor}&tamanho={tamanho}
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `@RequestParam(required = false) String cursor`: Token opaco devolvido em `proximoCursor` pela página anterior. Na primeira página 
+	     *     ele não é enviado.
+	     * 
+	     * 2. `Math.min(Math.max(tamanho, 1), tamanhoMaximoPagina)`: O tamanho pedido é limitado entre 1 e `config.clientes.pagina.tamanho-maximo`.
+	     * 
+	     * 3. `clienteService.findPagina(cursor, ...)`: A busca usa o `_id` (keyset) em vez de skip/limit, então o custo de cada página é o mesmo 
+	     *     seja ela a primeira ou a milésima.
+	     * 
+	     * 4. `.onErrorResume(IllegalArgumentException.class, ...)`: Um cursor inválido resulta em "Solicitação Inválida" (código 400).
+	     * 
+	     * 5. `eTag(ParametrosClientes.etagPagina(pagina))`: O ETag resume os ids e as versões da página. Se o `If-None-Match` enviado ainda é o 
+	     *     atual, o WebFlux responde "Não Modificado" (304) sem corpo; a página é lida do banco de qualquer forma, mas não é enviada de novo. 
+	     *     A lista completa (`GET /api/clientes`) não tem ETag: calculá-lo exigiria consultas extras a cada leitura.
+	     * 
+	     * Em resumo, o cliente da API percorre a coleção página por página e pode retomar de onde parou apenas guardando o último cursor recebido.
+	    */
+	    @GetMapping("/pagina")
+	    public Mono<ResponseEntity<PaginaClientes>> listarClientesPaginados(@RequestParam(required = false) String cursor, 
+	    		@RequestParam(defaultValue = "50") int tamanho){
+	    	
+	    	return clienteService.findPagina(cursor, Math.min(Math.max(tamanho, 1), tamanhoMaximoPagina))
+	    			.map(pagina -> ResponseEntity.ok().eTag(ParametrosClientes.etagPagina(pagina)).contentType(MediaType.APPLICATION_JSON_UTF8).body(pagina))
+	    			.onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+	    }
+	    
+	    
+	    /** Buscar Clientes por prefixo de nome - http://localhost:8080/api/clientes/busca/nome?nome={nome}&sobrenome={sobrenome}&pagina=0&tamanho=50&campos=nome,sobrenome
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `@RequestParam String nome` e `@RequestParam(required = false) String sobrenome`: Prefixos procurados. "dan" encontra "Daniel" e 
+	     *     "DANIELA": a comparação usa a collation `pt` com `strength` 2, que ignora maiúsculas e minúsculas.
+	     * 
+	     * 2. `pagina` e `tamanho`: Página pedida (começando em 0) e quantidade de clientes por página, limitada a 
+	     *     `config.clientes.pagina.tamanho-maximo`. Os resultados vêm ordenados por nome, sobrenome e id.
+	     * 
+	     * 3. `campos`: Lista opcional separada por vírgula (ex.: `campos=nome,sobrenome`). Quando informada, o MongoDB devolve apenas esses campos 
+	     *     e o id; os demais chegam como `null`. Um campo desconhecido resulta em "Solicitação Inválida" (código 400).
+	     * 
+	     * 4. `clienteService.findByNome(...)`: A busca é uma faixa `[prefixo, prefixo + '\uffff')` sobre o índice `nome_sobrenome_id`, criado 
+	     *     com a mesma collation na subida da aplicação, então não há varredura da coleção.
+	     * 
+	     * Em resumo, o retorno é um `Flux`: com `Accept: application/json` os clientes são escritos como um array JSON à medida que chegam, e com 
+	     * `Accept: application/x-ndjson` um por linha.
+	    */
+	    @GetMapping("/busca/nome")
+	    public Flux<Cliente> buscarPorNome(@RequestParam String nome, @RequestParam(required = false) String sobrenome, 
+	    		@RequestParam(defaultValue = "0") int pagina, @RequestParam(defaultValue = "50") int tamanho, 
+	    		@RequestParam(required = false) Set<String> campos){
+	    	
+	    	return clienteService.findByNome(nome, sobrenome, Math.max(pagina, 0), limitarTamanho(tamanho), ParametrosClientes.validarCampos(campos));
+	    }
+	    
+	    
+	    /** Buscar Clientes por faixa de idade - http://localhost:8080/api/clientes/busca/idade?min={min}&max={max}&pagina=0&tamanho=50&campos=nome,idade
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `min` e `max`: Limites da faixa, ambos inclusivos. Pelo menos um deles precisa ser informado; sem nenhum a resposta é 
+	     *     "Solicitação Inválida" (código 400).
+	     * 
+	     * 2. `pagina`, `tamanho` e `campos`: Mesmo comportamento da busca por nome. Os resultados vêm ordenados por idade e id, a mesma ordem do 
+	     *     índice `idade_id` declarado em `Cliente`.
+	     * 
+	     * Em resumo, este método devolve os clientes da faixa pedida página por página, sem carregar a coleção inteira.
+	    */
+	    @GetMapping("/busca/idade")
+	    public Flux<Cliente> buscarPorIdade(@RequestParam(required = false) Integer min, @RequestParam(required = false) Integer max, 
+	    		@RequestParam(defaultValue = "0") int pagina, @RequestParam(defaultValue = "50") int tamanho, 
+	    		@RequestParam(required = false) Set<String> campos){
+	    	
+	    	ParametrosClientes.validarFaixa(min, max);
+	    	return clienteService.findByIdade(min, max, Math.max(pagina, 0), limitarTamanho(tamanho), ParametrosClientes.validarCampos(campos));
+	    }
+	    
+	    
+	    /** Buscar Clientes por faixa de salário - http://localhost:8080/api/clientes/busca/salario?min={min}&max={max}&pagina=0&tamanho=50&campos=nome,salario
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `min` e `max`: Limites da faixa, ambos inclusivos. Pelo menos um deles precisa ser informado; sem nenhum a resposta é 
+	     *     "Solicitação Inválida" (código 400).
+	     * 
+	     * 2. `pagina`, `tamanho` e `campos`: Mesmo comportamento da busca por nome. Os resultados vêm ordenados por salário e id, a mesma ordem do 
+	     *     índice `salario_id` declarado em `Cliente`.
+	     * 
+	     * Em resumo, este método devolve os clientes da faixa pedida página por página, sem carregar a coleção inteira.
+	    */
+	    @GetMapping("/busca/salario")
+	    public Flux<Cliente> buscarPorSalario(@RequestParam(required = false) Double min, @RequestParam(required = false) Double max, 
+	    		@RequestParam(defaultValue = "0") int pagina, @RequestParam(defaultValue = "50") int tamanho, 
+	    		@RequestParam(required = false) Set<String> campos){
+	    	
+	    	ParametrosClientes.validarFaixa(min, max);
+	    	return clienteService.findBySalario(min, max, Math.max(pagina, 0), limitarTamanho(tamanho), ParametrosClientes.validarCampos(campos));
+	    }
+	    
+	    
+	    /** Acompanhar alterações de Clientes (SSE) - http://localhost:8080/api/clientes/changes?token={token}
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `produces = MediaType.TEXT_EVENT_STREAM_VALUE`: Rota selecionada quando o cabeçalho `Accept` pede `text/event-stream` (Server-Sent 
+	     *     Events). A conexão fica aberta e cada inserção, alteração ou exclusão de cliente vira um evento.
+	     * 
+	     * 2. `token` ou `Last-Event-ID`: Ponto de retomada. Cada evento é enviado com `id` igual ao seu token, então um `EventSource` do navegador 
+	     *     reenvia o último id recebido no cabeçalho `Last-Event-ID` ao reconectar e continua exatamente de onde parou, sem receber de novo o 
+	     *     que já tinha visto. Sem token, o acompanhamento começa no momento da conexão.
+	     * 
+	     * 3. `alteracoesClienteService.acompanhar(...)`: Consumidores sem token compartilham um único change stream do MongoDB. Quem não acompanha 
+	     *     o ritmo dos eventos e enche o seu buffer é desconectado (ou perde os eventos mais antigos, conforme `config.clientes.alteracoes.politica`) 
+	     *     e não atrasa os demais.
+	     * 
+	     * 4. `.onErrorMap(IllegalArgumentException.class, ...)`: Um token mal formado resulta em "Solicitação Inválida" (código 400).
+	     * 
+	     * Em resumo, os serviços que hoje consultam a lista de clientes periodicamente passam a receber só o que mudou, quando muda. Change streams 
+	     * exigem que o MongoDB rode como replica set.
+	    */
+	    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	    public Flux<ServerSentEvent<EventoCliente>> acompanharAlteracoes(@RequestParam(required = false) String token, 
+	    		@RequestHeader(name = "Last-Event-ID", required = false) String ultimoEvento){
+	    	
+	    	return alteracoesClienteService.acompanhar(token != null ? token : ultimoEvento)
+	    			.map(evento -> ServerSentEvent.builder(evento).id(evento.getToken()).event(evento.getOperacao()).build())
+	    			.onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+	    }
+	    
+	    
+	    /** Acompanhar alterações de Clientes (NDJSON) - http://localhost:8080/api/clientes/changes?token={token}
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `produces = MediaType.APPLICATION_NDJSON_VALUE`: Mesma rota do método acima para `Accept: application/x-ndjson`. Cada evento é um JSON 
+	     *     por linha, com o campo `token`.
+	     * 
+	     * 2. `token`: Para retomar, o consumidor guarda o `token` do último evento processado e o envia ao reconectar.
+	     * 
+	     * Em resumo, é o mesmo acompanhamento do SSE para consumidores que não são navegadores.
+	    */
+	    @GetMapping(path = "/changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	    public Flux<EventoCliente> acompanharAlteracoesNdjson(@RequestParam(required = false) String token){
+	    	
+	    	return alteracoesClienteService.acompanhar(token)
+	    			.onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+	    }
+	    
+	    
+	    /** Estatísticas de salário e idade - http://localhost:8080/api/clientes/estatisticas?idadeMin={idadeMin}&idadeMax={idadeMax}
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `idadeMin` e `idadeMax`: Filtro opcional (inclusivo) por faixa de idade. Sem eles a coleção inteira entra no cálculo.
+	     * 
+	     * 2. `clienteService.calcularEstatisticas(...)`: O cálculo roda dentro do MongoDB em um único pipeline de agregação com `$facet`: um 
+	     *     `$group` para total, soma, média, mínimo e máximo, um `$bucketAuto` para as faixas de salário (cada uma com aproximadamente a mesma 
+	     *     quantidade de clientes, ou seja, percentis) e um `$bucket` para as faixas etárias. Só o resultado trafega pela rede, não os clientes.
+	     * 
+	     * 3. O resultado fica em cache por `config.clientes.estatisticas.ttl-segundos`; chamadas simultâneas com o mesmo filtro aguardam a mesma 
+	     *     agregação.
+	     * 
+	     * 4. `.defaultIfEmpty(...)`: Garante uma resposta "OK" (código 200) mesmo que a agregação não devolva documento.
+	     * 
+	     * Em resumo, este método substitui o download da coleção inteira para montar relatórios no cliente.
+	    */
+	    @GetMapping("/estatisticas")
+	    public Mono<ResponseEntity<EstatisticasClientes>> estatisticas(@RequestParam(required = false) Integer idadeMin, 
+	    		@RequestParam(required = false) Integer idadeMax){
+	    	
+	    	return clienteService.calcularEstatisticas(idadeMin, idadeMax)
+	    			.map(estatisticas -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(estatisticas))
+	    			.defaultIfEmpty(ResponseEntity.ok().build());
+	    }
+	    
+	    
 	    /**
 	     * Listar detalhes de Clientes - http://localhost:8080/api/clientes/{id}
 	     * 
@@ -184,21 +450,25 @@ public class ClienteController {
 	     *     detalhes de um cliente com base no ID fornecido na URL. Ele recebe o ID do cliente da URL como um parâmetro de caminho usando a 
 	     *     anotação `@PathVariable`.
 	     * 
-	     * 3. `return clienteService.findById(id).map(c -> { ... })`: O método começa por buscar o cliente com o ID especificado usando o serviço 
-	     *    `clienteService`. O método `findById(id)` provavelmente retorna um `Mono<Cliente>` que representa o cliente encontrado. Em seguida, 
-	     *     ele usa o operador `map` para mapear o cliente (`c`) para uma resposta HTTP.
+	     * 3. `return operacoesClienteService.ler(id, ...).map(leitura -> { ... })`: O método começa por buscar o cliente com o ID especificado, 
+	     *     pelo mesmo fluxo da variante funcional. Em seguida, ele usa o operador `map` para mapear a leitura para uma resposta HTTP.
 	     * 
 	     *     - `ResponseEntity.ok()`: Isso cria uma resposta HTTP com um código de status "OK" (código 200), indicando que a solicitação foi 
 	     *        bem-sucedida.
 	     * 
-	     *     - `contentType(MediaType.APPLICATION_JSON_UTF8)`: Isso define o tipo de mídia da resposta como "application/json" com codificação 
-	     *        UTF-8. Isso indica que o corpo da resposta conterá dados no formato JSON.
+	     *     - `contentType(...)`: Isso define o tipo de mídia da resposta como "application/json" com codificação UTF-8, ou como 
+	     *        "application/x-jackson-smile" (JSON binário) quando o cabeçalho `Accept` pede esse formato.
 	     * 
 	     *     - `body(c)`: Aqui, o corpo da resposta é definido como o cliente (`c`) encontrado no banco de dados. O cliente é serializado em 
 	     *        formato JSON e é o conteúdo da resposta.
 	     * 
-	     * 4. `.defaultIfEmpty(ResponseEntity.notFound().build())`: Se o cliente não for encontrado no banco de dados (por exemplo, se o ID 
-	     *     especificado não corresponder a nenhum cliente existente), o método `findById(id)` retornará um `Mono` vazio. Nesse caso, o operador 
+	     * 4. `exchange::checkNotModified`: Quando o cliente envia `If-None-Match` com o ETag (a `versao`) 
+	     *     recebido antes, primeiro é buscada só a versão do documento (projeção no MongoDB, nunca o cache, que é de cada instância). 
+	     *     Se não mudou, a resposta é "Não Modificado" (304) sem corpo, e o documento não é carregado nem serializado. Caso contrário, 
+	     *     segue a busca completa, e a resposta leva o ETag da versão devolvida.
+	     * 
+	     * 5. `.defaultIfEmpty(ResponseEntity.notFound().build())`: Se o cliente não for encontrado no banco de dados (por exemplo, se o ID 
+	     *     especificado não corresponder a nenhum cliente existente), a leitura retornará um `Mono` vazio. Nesse caso, o operador 
 	     *     `defaultIfEmpty` é usado para fornecer uma resposta padrão. Essa resposta padrão é criada com `ResponseEntity.notFound().build()`, o 
 	     *      que indica que o cliente não foi encontrado e retorna um código de status "Não Encontrado" (código 404).
 	     * 
@@ -208,9 +478,15 @@ public class ClienteController {
 	     * respostas reativas e assíncronas para solicitações REST.
 	    */
 	    @GetMapping("/{id}")
-	    public Mono<ResponseEntity<Cliente>> verDetalhesDeCliente(@PathVariable String id){
-	        return clienteService.findById(id).map(c -> ResponseEntity.ok().
-	            contentType(MediaType.APPLICATION_JSON_UTF8).body(c)).defaultIfEmpty(ResponseEntity.notFound().build());
+	    public Mono<ResponseEntity<Cliente>> verDetalhesDeCliente(@PathVariable String id, ServerWebExchange exchange){
+	    	MediaType tipo = ParametrosClientes.tipoCliente(exchange.getRequest().getHeaders().getAccept());
+	    	boolean condicional = !exchange.getRequest().getHeaders().getIfNoneMatch().isEmpty();
+	    	
+	        return operacoesClienteService.ler(id, condicional ? exchange::checkNotModified : null)
+	        		.map(leitura -> leitura.isModificado()
+	        				? ResponseEntity.ok().eTag(String.valueOf(leitura.getVersao())).contentType(tipo).body(leitura.getCliente())
+	        				: ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(String.valueOf(leitura.getVersao())).<Cliente>build())
+	        		.defaultIfEmpty(ResponseEntity.notFound().build());
 	    }
 	    
 	    
@@ -221,126 +497,144 @@ public class ClienteController {
 	     * 1. `@PostMapping`: Esta é uma anotação que mapeia uma solicitação HTTP POST para este método de controlador. Isso significa que este método 
 	     *     será executado quando uma solicitação POST for feita para o URL mapeado por padrão nesta classe de controlador.
 	     *     
-	     * 2. `public Mono<ResponseEntity<Map<String, Object>>> criarCliente(@Valid @RequestBody Mono<Cliente> monoCliente)`: Este é o método que lida 
+	     * 2. `public Mono<ResponseEntity<ClienteCriado>> criarCliente(@Valid @RequestBody Mono<Cliente> monoCliente)`: Este é o método que lida 
 	     *     com a criação de um cliente. Ele recebe um objeto `Mono` chamado `monoCliente` que contém os dados do cliente a ser criado. O `@Valid` 
 	     *     indica que as validações definidas nas classes de entidade (no seu caso, na classe `Cliente`) devem ser aplicadas aos dados recebidos.
 	     *     
-	     * 3. `Map<String, Object> resposta = new HashMap<String, Object>();`: Aqui, é criado um mapa para armazenar a resposta que será retornada ao 
-	     *     cliente. O mapa será preenchido com informações sobre o cliente ou erros, dependendo do resultado da operação.
-	     *     
-	     * 4. `return monoCliente.flatMap(cliente -> { ... }):`: O método começa por usar o operador `flatMap` em `monoCliente`. O `flatMap` é usado para 
-	     *     manipular o valor contido no `Mono`. No caso, ele pega o cliente recebido, que é do tipo `Cliente`, e continua a execução.
+	     * 3. `monoCliente.flatMap(clienteService::save)`: O cliente recebido é salvo no banco de dados pelo serviço `clienteService`. O resultado é 
+	     *     um `Mono<Cliente>` com o cliente já com o id gerado.
 	     * 
-	     * 5. `clienteService.save(cliente).map(c -> { ... }):`: Aqui, o método `save` do serviço `clienteService` é chamado para salvar o cliente no 
-	     *     banco de dados. O resultado é um `Mono<Cliente>`. Em seguida, o operador `map` é usado para mapear o cliente salvo (`c`) em uma resposta.
-	     *     
-	     * 6. O bloco dentro de `map` preenche o mapa de resposta com informações sobre o cliente, como o cliente em si, uma mensagem de sucesso e um 
-	     * carimbo de data e hora. Em seguida, ele cria uma resposta HTTP com um código de status "Criado" (código 201), que indica que a operação foi 
-	     * bem-sucedida.
+	     * 4. `.map(c -> ...)`: O cliente salvo (`c`) vira uma resposta HTTP com código de status "Criado" (código 201), o cabeçalho `Location` 
+	     *     apontando para o novo cliente e o corpo `ClienteCriado`, com o cliente, uma mensagem de sucesso e um carimbo de data e hora. É um 
+	     *     objeto imutável criado uma única vez, no lugar do mapa preenchido dentro de lambdas.
 	     * 
-	     * 7. `onErrorResume(t -> { ... }):`: Se ocorrer algum erro durante a execução do código dentro de `flatMap` (por exemplo, validação ou erro de 
-	     *     banco de dados), o método `onErrorResume` captura o erro e lida com ele. Ele pode ser usado para fornecer uma resposta alternativa em caso 
-	     *     de erro.
-	     *     
-	     * 8. `Mono.just(t).cast(WebExchangeBindException.class) ...`: Dentro do bloco `onErrorResume`, o código tenta identificar se o erro é uma 
-	     *     instância de `WebExchangeBindException`. Se for, ele lida com os erros de validação dos campos.
-	     *     
-	     * 9. O código dentro do bloco `flatMap` manipula os erros de validação, coletando os detalhes dos erros de campo em uma lista e preenchendo o 
-	     *    mapa de resposta com informações sobre os erros. Em seguida, ele cria uma resposta HTTP com um código de status "Solicitação Inválida" 
-	     *    (código 400).
+	     * 5. Erros de validação: Se os dados não passarem nas validações, o `Mono` termina com `WebExchangeBindException`, que é tratada em 
+	     *     `ValidacaoControllerAdvice` e vira a resposta "Solicitação Inválida" (código 400) com `errors`, `timestamp` e `status`. Qualquer outro 
+	     *     erro (por exemplo, o banco de dados fora do ar) segue para o tratamento padrão do Spring em vez de virar uma resposta vazia.
 	     * 
 	     * Em resumo, este método de controlador lida com a criação de um cliente, valida os dados do cliente e retorna uma resposta apropriada com 
 	     * informações sobre o cliente ou erros, dependendo do resultado da operação. É um exemplo de como o Spring WebFlux pode lidar com operações 
 	     * assíncronas e respostas reativas em um controlador RESTful.
 	     * */
 	    @PostMapping
-	    public Mono<ResponseEntity<Map<String, Object>>> criarCliente(@Valid @RequestBody Mono<Cliente> monoCliente){
+	    public Mono<ResponseEntity<ClienteCriado>> criarCliente(@Valid @RequestBody Mono<Cliente> monoCliente){
 	        
-	        Map<String, Object> resposta = new HashMap<String, Object>();
-
-	        return monoCliente.flatMap(cliente -> {
-	            return clienteService.save(cliente).map(c -> {
-	                resposta.put("cliente", c);
-	                resposta.put("mensagem", "Cliente criado com sucesso");
-	                resposta.put("timestamp", new Date());
-	                return ResponseEntity.created(URI.create("/api/clientes/".concat(c.getId())))
-	                    .contentType(MediaType.APPLICATION_JSON_UTF8)
-	                    .body(resposta);
-	            });
-	        }).onErrorResume(t -> {
-	            return Mono.just(t).cast(WebExchangeBindException.class)
-	                .flatMap(e -> Mono.just(e.getFieldErrors()))     
-	                .flatMapMany(Flux::fromIterable)
-	                .map(fieldError -> "O campo" + fieldError.getField() + " " + fieldError.getDefaultMessage())
-	                .collectList()
-	                .flatMap(list -> {
-	                    resposta.put("errors", list);
-	                    resposta.put("timestamp", new Date());
-	                    resposta.put("status", HttpStatus.BAD_REQUEST.value());
-
-	                    return Mono.just(ResponseEntity.badRequest().body(resposta));
-	                });
-	        });
+	        return monoCliente.flatMap(clienteService::save)
+	            .map(c -> ResponseEntity.created(URI.create("/api/clientes/".concat(c.getId())))
+	                .contentType(MediaType.APPLICATION_JSON_UTF8)
+	                .body(new ClienteCriado(c, "Cliente criado com sucesso", new Date())));
 	    }
 	    
 	    
 	    /**
-	     * Criando cliente - http://localhost:8080/api/clientes/{id}
+	     * Importando clientes em lote - http://localhost:8080/api/clientes/bulk
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `@PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)`: O corpo da requisição é um NDJSON (um cliente JSON 
+	     *     por linha), lido como `Flux<Cliente>` à medida que chega. O arquivo de importação nunca é carregado inteiro na memória.
+	     * 
+	     * 2. `clienteService.insertAll(clientes)`: Cada cliente é validado com as mesmas anotações (`@NotEmpty`/`@NotNull`) da classe `Cliente`. 
+	     *     Os válidos são agrupados em lotes (`config.clientes.bulk.tamanho-lote` registros ou `config.clientes.bulk.janela-ms` milissegundos) e 
+	     *     cada lote é gravado com um único `insertMany` não ordenado, em vez de um `save` por registro.
+	     * 
+	     * 3. `Flux<ResultadoLote>`: A resposta traz, para cada lote, quantos registros foram recebidos e inseridos e os erros de cada registro 
+	     *     (identificado pela posição no fluxo). Com `Accept: application/x-ndjson` cada resultado é enviado assim que o lote termina.
+	     * 
+	     * Em resumo, este método permite importar centenas de milhares de clientes com poucas idas ao banco de dados.
+	     * */
+	    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	    public Flux<ResultadoLote> importarClientes(@RequestBody Flux<Cliente> clientes){
+	    	
+	    	return clienteService.insertAll(clientes);
+	    }
+	    
+	    
+	    /**
+	     * Buscando vários clientes pelo id - http://localhost:8080/api/clientes/batch-get
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `@RequestBody Mono<List<String>> ids`: O corpo é um array JSON de ids (ex.: `["id1", "id2"]`), com no máximo 
+	     *     `config.clientes.lote-ids.maximo` itens. Uma lista vazia ou maior que isso resulta em "Solicitação Inválida" (código 400).
+	     * 
+	     * 2. `clienteService.findAllById(...)`: Os ids são divididos em blocos de `config.clientes.lote-ids.tamanho-bloco` e cada bloco vira uma 
+	     *     única consulta `$in`; até `config.clientes.lote-ids.concorrencia` blocos são consultados ao mesmo tempo.
+	     * 
+	     * 3. `Flux<ClientePorId>`: Um item por id pedido, na mesma ordem, com `encontrado: false` (e sem cliente) para os ids que não existem. 
+	     *     Com `Accept: application/x-ndjson` cada item é enviado assim que o bloco dele chega.
+	     * 
+	     * Em resumo, uma página de clientes cujos ids já são conhecidos custa uma requisição e poucas idas ao banco, em vez de um `GET` por id.
+	     * */
+	    @PostMapping("/batch-get")
+	    public Flux<ClientePorId> buscarPorIds(@RequestBody Mono<List<String>> ids){
+	    	
+	    	return ids.flatMapMany(lista -> clienteService.findAllById(ParametrosClientes.validarIds(lista, maximoIdsLote)));
+	    }
+	    
+	    
+	    /**
+	     * Deletando vários clientes pelo id - http://localhost:8080/api/clientes/batch-delete
+	     * Explicando passo a passo do código:
+	     * 
+	     * 1. `@RequestBody Mono<List<String>> ids`: Mesmo corpo e limites de `batch-get`. Ids repetidos contam uma vez só.
+	     * 
+	     * 2. `operacoesClienteService.excluirPorIds(...)`: Cada bloco de ids lê a foto dos clientes existentes e os remove com um único `$in` (e a mesma foto lida).
+	     * 
+	     * 3. `fotoService.liberar(...)`: Como na exclusão individual, a referência de cada cliente removido à sua foto é liberada.
+	     * 
+	     * 4. `Flux<ClientePorId>`: Um item por id, na ordem pedida, com `encontrado: true` para os clientes removidos e `false` para os que não 
+	     *     existiam.
+	     * 
+	     * Em resumo, este método remove centenas de clientes com poucas idas ao banco de dados.
+	     * */
+	    @PostMapping("/batch-delete")
+	    public Flux<ClientePorId> deletarPorIds(@RequestBody Mono<List<String>> ids){
+	    	
+	    	return ids.flatMapMany(lista -> operacoesClienteService.excluirPorIds(ParametrosClientes.validarIds(lista, maximoIdsLote)));
+	    }
+	    
+	    
+	    /**
+	     * Editando cliente - http://localhost:8080/api/clientes/{id}
 	     * Explicando passo a passo do código:
 	     * 
 	     * 1. `@PutMapping("/{id}")`: Esta é uma anotação que mapeia uma solicitação HTTP PUT para este método de controlador. O valor `"/{id}"` na 
 	     *     anotação indica que o ID do cliente a ser editado será passado como parte do URL.
 	     * 
-	     * 2. `public Mono<ResponseEntity<Cliente>> editarCliente(@RequestBody Cliente cliente, @PathVariable String id)`: Este é o método que lida com a 
-	     *     edição do cliente. Ele recebe dois parâmetros: `cliente`, que é o objeto de cliente que contém os dados a serem atualizados, e `id`, que é 
-	     *     o ID do cliente a ser editado. O `@RequestBody` indica que o objeto `cliente` deve ser desserializado a partir do corpo da solicitação HTTP, 
-	     *     que é esperado estar em formato JSON.
-	     *     
-	     * 3. `return clienteService.findById(id).flatMap(c -> { ... }):` O método começa por chamar o serviço `clienteService` para encontrar o cliente 
-	     *     com o ID especificado (`id`) no banco de dados. O resultado é um `Mono` que emite o cliente encontrado ou um valor vazio se o cliente não 
-	     *     for encontrado.
-	     *     
-	     * 4. `flatMap(c -> { ... }):` Em seguida, é usado o operador `flatMap` para processar o cliente encontrado (`c`) ou o valor vazio (caso o cliente 
-	     *     não seja encontrado).
-	     *     
-	     * 5. `c.setNome(cliente.getNome());`, `c.setSobrenome(cliente.getSobrenome());`, `c.setIdade(cliente.getIdade());`, 
-	     *    `c.setSalario(cliente.getSalario());`: No bloco dentro de `flatMap`, os atributos do cliente existente (`c`) são atualizados com os valores 
-	     *    do objeto `cliente` recebido na solicitação. Isso atualiza os dados do cliente com base nas informações recebidas.
-	     *    
-	     * 6. `return clienteService.save(c);`: Após a atualização dos dados do cliente, o método chama o serviço `clienteService` para salvar o cliente 
-	     *     atualizado no banco de dados. Isso retorna um `Mono` que emite o cliente atualizado.
-	     *
-	     * 7. `map(c -> ResponseEntity.created(URI.create("/api/clientes/".concat(c.getId())) ...`: O operador `map` é usado para criar uma resposta HTTP 
-	     *    apropriada. Se o cliente foi atualizado com sucesso, ele cria uma resposta com um código de status "Criado" (código 201) e inclui o cliente 
-	     *    atualizado no corpo da resposta. O cabeçalho `Location` é definido com o URL do cliente recém-atualizado.
+	     * 2. `@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch`: Cabeçalho opcional com o ETag (a `versao`) que o 
+	     *     cliente da API recebeu na última leitura. Quando informado, a alteração só é aplicada se o documento ainda estiver nessa versão.
+	     * 
+	     * 3. `operacoesClienteService.editar(id, cliente, versao)`: A foto e as miniaturas só são alteradas pelos endpoints de upload, então são 
+	     *     ignoradas no corpo da requisição.
+	     * 
+	     * 4. `clienteService.update(id, cliente, versao)`: Em uma única ida ao banco (`findAndModify`), apenas os campos informados são alterados 
+	     *     com `$set`, a `versao` é incrementada e o documento já atualizado é devolvido. Não há mais a busca seguida de `save` do documento 
+	     *     inteiro, então duas edições simultâneas não sobrescrevem uma à outra.
+	     * 
+	     * 5. `map(c -> ResponseEntity.created(...).eTag(...) ...`: Se o cliente foi atualizado, a resposta tem o código "Criado" (201), o cliente 
+	     *    atualizado no corpo e o novo ETag, que pode ser usado no próximo `If-Match`.
 	     *    
-	     * 8. `defaultIfEmpty(ResponseEntity.notFound().build());`: Se o `Mono` resultante de `clienteService.findById(id)` não emitiu um cliente (ou seja, 
-	     *     o cliente não foi encontrado), o método `defaultIfEmpty` é usado para fornecer uma resposta com um código de status "Não Encontrado" 
-	     *     (código 404).
+	     * 6. `defaultIfEmpty(...)`: Se nenhum documento casou com o filtro, sem `If-Match` a resposta é "Não Encontrado" (404). Com `If-Match`, 
+	     *     apenas neste caso de falha é feita uma consulta de existência para diferenciar "Não Encontrado" (404) de "Pré-condição Falhou" (412), 
+	     *     que indica que outro cliente da API alterou o documento antes.
 	     *     
-	     * Em resumo, este método de controlador lida com a edição de um cliente com base em seu ID. Ele encontra o cliente existente, atualiza seus dados 
-	     * com base nas informações recebidas, salva o cliente atualizado no banco de dados e fornece uma resposta apropriada, seja com um código de status 
-	     * "Criado" se o cliente for atualizado com sucesso, ou com um código de status "Não Encontrado" se o cliente não for encontrado.
+	     * Em resumo, este método de controlador lida com a edição de um cliente com base em seu ID, atualizando somente os campos enviados de forma 
+	     * atômica e, opcionalmente, detectando atualizações perdidas por meio do ETag.
 	     * */
 	    @PutMapping("/{id}")
-	    public Mono<ResponseEntity<Cliente>> editarCliente(@RequestBody Cliente cliente, @PathVariable String id){
+	    public Mono<ResponseEntity<Cliente>> editarCliente(@RequestBody Cliente cliente, @PathVariable String id, 
+	    		@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 	    	
-	    	return clienteService.findById(id).flatMap(c -> {
-	    		c.setNome(cliente.getNome());
-	    		c.setSobrenome(cliente.getSobrenome());
-	    		c.setIdade(cliente.getIdade());
-	    		c.setSalario(cliente.getSalario());
-	    		
-	    		return clienteService.save(c);
-	    		
-	    	}).map(c -> ResponseEntity.created(URI.create("/api/clientes/".concat(c.getId())))
-	    			.contentType(MediaType.APPLICATION_JSON_UTF8)
-	    			.body(c)).defaultIfEmpty(ResponseEntity.notFound().build());
+	    	return operacoesClienteService.editar(id, cliente, ParametrosClientes.versaoDoETag(ifMatch))
+	    			.map(c -> ResponseEntity.created(URI.create("/api/clientes/".concat(c.getId())))
+	    					.eTag(String.valueOf(c.getVersao()))
+	    					.contentType(MediaType.APPLICATION_JSON_UTF8)
+	    					.body(c))
+	    			.defaultIfEmpty(ResponseEntity.notFound().build());
 	    }
 	    
 	    
 	    /**
-	     * Criando cliente - http://localhost:8080/api/clientes/{id}
+	     * Deletando cliente - http://localhost:8080/api/clientes/{id}
 	     * Explicando passo a passo do código:
 	     * 
 	     * 1. `@DeleteMapping("/{id}")`: Esta é uma anotação que mapeia uma solicitação HTTP DELETE para este método de controlador. O valor `"/{id}"` na 
@@ -349,31 +643,28 @@ public class ClienteController {
 	     * 2. `public Mono<ResponseEntity<Void>> deletarCliente(@PathVariable String id)`: Este é o método que lida com a exclusão do cliente. Ele recebe 
 	     *     um parâmetro `id` que é o ID do cliente a ser excluído.
 	     *     
-	     * 3. `return clienteService.findById(id).flatMap(c -> { ... }):` O método começa por chamar o serviço `clienteService` para encontrar o cliente 
-	     *     com o ID especificado (`id`) no banco de dados. O resultado é um `Mono` que emite o cliente encontrado ou um valor vazio se o cliente não 
-	     *     for encontrado.
+	     * 3. `operacoesClienteService.excluir(id)`: O cliente é removido diretamente pelo ID, em uma única ida ao banco de dados, e o documento 
+	     *     removido é devolvido.
 	     *     
-	     * 4. `flatMap(c -> { ... }):` Em seguida, é usado o operador `flatMap` para processar o cliente encontrado (`c`) ou o valor vazio (caso o cliente 
-	     *     não seja encontrado).
+	     * 4. `fotoService.liberar(c.getFoto())`: A referência do cliente à foto é liberada, já que vários clientes podem compartilhar o mesmo 
+	     *     arquivo de foto.
 	     *     
-	     * 5. `return clienteService.delete(c).then(Mono.just(new ResponseEntity<Void>(HttpStatus.NO_CONTENT)));`: No bloco dentro de `flatMap`, o método 
-	     *     `delete` do serviço `clienteService` é chamado para excluir o cliente. O operador `then` é usado para executar uma ação após a exclusão, 
-	     *      que neste caso cria uma resposta com um código de status "No Content" (código 204) para indicar que a exclusão foi bem-sucedida.
-	     *      
-	     * 6. `defaultIfEmpty(new ResponseEntity<Void>(HttpStatus.NOT_FOUND));`: Se o `Mono` resultante de `clienteService.findById(id)` não emitiu um 
-	     *     cliente (ou seja, o cliente não foi encontrado), o método `defaultIfEmpty` é usado para fornecer uma resposta com um código de status "Não 
-	     *     Encontrado" (código 404).
+	     * 5. `defaultIfEmpty(...)`: Se um documento foi removido, a resposta é "No Content" (código 204). Se nenhum foi removido, o cliente não 
+	     *     existia e a resposta é "Não Encontrado" (código 404).
 	     *     
-	     * Em resumo, este método de controlador lida com a exclusão de um cliente com base em seu ID. Ele encontra o cliente existente, exclui-o do banco 
-	     * de dados, e fornece uma resposta apropriada, seja com um código de status "No Content" se a exclusão for bem-sucedida, ou com um código de 
-	     * status "Não Encontrado" se o cliente não for encontrado. O método retorna um `Mono` que emite a resposta, tornando-o adequado para operações 
-	     * assíncronas em um ambiente reativo.
+	     * Em resumo, este método de controlador lida com a exclusão de um cliente com base em seu ID, sem precisar buscá-lo antes. O método retorna um 
+	     * `Mono` que emite a resposta, tornando-o adequado para operações assíncronas em um ambiente reativo.
 	     */
 	    @DeleteMapping("/{id}")
 	    public Mono<ResponseEntity<Void>> deletarCliente(@PathVariable String id){
 	    	
-	    	return clienteService.findById(id).flatMap(c -> {
-	    		return clienteService.delete(c).then(Mono.just(new ResponseEntity<Void>(HttpStatus.NO_CONTENT)));
-	    	}).defaultIfEmpty(new ResponseEntity<Void>(HttpStatus.NOT_FOUND));
+	    	return operacoesClienteService.excluir(id)
+	    			.map(c -> new ResponseEntity<Void>(HttpStatus.NO_CONTENT))
+	    			.defaultIfEmpty(new ResponseEntity<Void>(HttpStatus.NOT_FOUND));
+	    }
+	    
+	    
+	    private int limitarTamanho(int tamanho) {
+	    	return ParametrosClientes.limitarTamanho(tamanho, tamanhoMaximoPagina);
 	    }
 }
@@ -0,0 +1,378 @@
+package com.daniel.controller;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.bind.support.WebExchangeDataBinder;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.UnsupportedMediaTypeStatusException;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.ClienteCriado;
+import com.daniel.dto.ClientePorId;
+import com.daniel.dto.ErroValidacao;
+import com.daniel.dto.EventoCliente;
+import com.daniel.dto.ResultadoLote;
+import com.daniel.formatos.FormatosConfig;
+import com.daniel.service.AlteracoesClienteService;
+import com.daniel.service.ClienteService;
+import com.daniel.service.FotoService;
+import com.daniel.service.OperacoesClienteService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Variante funcional da API de clientes: as mesmas rotas, códigos de status e corpos do {@link ClienteController}, registradas por
+ * {@link ClienteRouter} quando `config.clientes.api.modo=funcional`. Cada rota é uma referência de método resolvida uma única vez na
+ * subida; não há resolução de argumentos por anotação nem chamada por reflexão a cada requisição. Os parâmetros são lidos e convertidos
+ * aqui mesmo, com os mesmos padrões e as mesmas respostas de erro da variante anotada. Os fluxos que combinam cliente e foto ficam em
+ * {@link OperacoesClienteService}, chamado pelas duas variantes; aqui só se lê a requisição e se monta a resposta.
+ */
+@Component
+@ConditionalOnProperty(name = "config.clientes.api.modo", havingValue = "funcional")
+public class ClienteHandler {
+
+	private static final List<MediaType> TIPOS_LISTA = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM, 
+			FormatosConfig.APPLICATION_SMILE, FormatosConfig.APPLICATION_STREAM_SMILE);
+
+	private static final List<MediaType> TIPOS_ALTERACOES = List.of(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_NDJSON);
+
+	private static final ParameterizedTypeReference<List<String>> LISTA_IDS = new ParameterizedTypeReference<List<String>>() {
+	};
+
+	@Autowired
+	private ClienteService clienteService;
+
+	@Autowired
+	private FotoService fotoService;
+
+	@Autowired
+	private OperacoesClienteService operacoesClienteService;
+
+	@Autowired
+	private AlteracoesClienteService alteracoesClienteService;
+
+	private SpringValidatorAdapter validator;
+
+	@Value("${config.clientes.stream.prefetch:256}")
+	private int prefetch;
+
+	@Value("${config.clientes.pagina.tamanho-maximo:500}")
+	private int tamanhoMaximoPagina;
+
+	@Value("${config.clientes.lote-ids.maximo:1000}")
+	private int maximoIdsLote;
+
+	// Mesmo validador do `@Valid` da variante anotada, então as mensagens de erro são as mesmas
+	@Autowired
+	public void setValidator(Validator validator) {
+		this.validator = new SpringValidatorAdapter(validator);
+	}
+
+	// POST /api/clientes/registrarClienteFoto - os campos do formulário são ligados ao Cliente como o `@ModelAttribute` implícito faria
+	public Mono<ServerResponse> registrarClienteComFoto(ServerRequest request) {
+		Cliente cliente = new Cliente();
+		WebExchangeDataBinder binder = new WebExchangeDataBinder(cliente, "cliente");
+
+		return binder.bind(request.exchange()).then(Mono.defer(() -> {
+			if (binder.getBindingResult().hasErrors()) {
+				return ServerResponse.badRequest().bodyValue(ErroValidacao.de(binder.getBindingResult().getFieldErrors()));
+			}
+			return arquivo(request).flatMap(file -> operacoesClienteService.registrarComFoto(cliente, file.filename(), file.content()))
+					.flatMap(c -> ServerResponse.created(URI.create("/api/clientes".concat(c.getId())))
+							.contentType(MediaType.APPLICATION_JSON_UTF8).bodyValue(c));
+		}));
+	}
+
+	// POST /api/clientes/upload/{id}
+	public Mono<ServerResponse> subirFoto(ServerRequest request) {
+		String id = request.pathVariable("id");
+
+		return arquivo(request).flatMap(file -> operacoesClienteService.trocarFoto(id, file.filename(), file.content()))
+				.flatMap(c -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(c))
+				.switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+	}
+
+	// GET /api/clientes/{id}/foto?size={tamanho} - ETag/Last-Modified (304) e Range (206) são tratados pelo próprio WebFlux
+	public Mono<ServerResponse> verFoto(ServerRequest request) {
+		Integer tamanho = inteiro(request, "size", null);
+
+		if (tamanho != null && !fotoService.suportaTamanho(tamanho)) {
+			return ServerResponse.badRequest().build();
+		}
+
+		return operacoesClienteService.carregarFoto(request.pathVariable("id"), tamanho)
+				.flatMap(foto -> ServerResponse.ok()
+						.eTag(foto.getEtag())
+						.lastModified(foto.getUltimaModificacao())
+						.cacheControl(CacheControl.noCache())
+						.contentType(MediaTypeFactory.getMediaType(foto.getNome()).orElse(MediaType.APPLICATION_OCTET_STREAM))
+						.body(BodyInserters.fromResource(foto.getRecurso())))
+				.switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+	}
+
+	// GET /api/clientes - array JSON por padrão (ou Smile); NDJSON, SSE ou Smile em streaming (com limitRate) quando o Accept pede
+	public Mono<ServerResponse> listarClientes(ServerRequest request) {
+		MediaType tipo = negociar(request, TIPOS_LISTA);
+
+		if (tipo == null || MediaType.APPLICATION_JSON.equals(tipo) || FormatosConfig.APPLICATION_SMILE.equals(tipo)) {
+			MediaType tipoArray = FormatosConfig.APPLICATION_SMILE.equals(tipo) ? tipo : MediaType.APPLICATION_JSON_UTF8;
+			return ServerResponse.ok().contentType(tipoArray).body(clienteService.findAll(), Cliente.class);
+		}
+		return ServerResponse.ok().contentType(tipo).body(clienteService.findAll().limitRate(prefetch), Cliente.class);
+	}
+
+	// GET /api/clientes/pagina?cursor={cursor}&tamanho={tamanho}
+	public Mono<ServerResponse> listarClientesPaginados(ServerRequest request) {
+		String cursor = request.queryParam("cursor").orElse(null);
+		int tamanho = inteiro(request, "tamanho", 50);
+
+		return clienteService.findPagina(cursor, ParametrosClientes.limitarTamanho(tamanho, tamanhoMaximoPagina))
+				// If-None-Match ainda atual vira 304 sem corpo
+				.flatMap(pagina -> ServerResponse.ok().eTag(ParametrosClientes.etagPagina(pagina)).contentType(MediaType.APPLICATION_JSON_UTF8)
+						.bodyValue(pagina))
+				.onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest().build());
+	}
+
+	// GET /api/clientes/busca/nome?nome={nome}&sobrenome={sobrenome}&pagina=0&tamanho=50&campos=nome,sobrenome
+	public Mono<ServerResponse> buscarPorNome(ServerRequest request) {
+		String nome = request.queryParam("nome").orElseThrow(() -> parametroAusente("nome"));
+		String sobrenome = request.queryParam("sobrenome").orElse(null);
+
+		return buscar(request, (pagina, tamanho, campos) -> clienteService.findByNome(nome, sobrenome, pagina, tamanho, campos));
+	}
+
+	// GET /api/clientes/busca/idade?min={min}&max={max}&pagina=0&tamanho=50&campos=nome,idade
+	public Mono<ServerResponse> buscarPorIdade(ServerRequest request) {
+		Integer min = inteiro(request, "min", null);
+		Integer max = inteiro(request, "max", null);
+
+		ParametrosClientes.validarFaixa(min, max);
+		return buscar(request, (pagina, tamanho, campos) -> clienteService.findByIdade(min, max, pagina, tamanho, campos));
+	}
+
+	// GET /api/clientes/busca/salario?min={min}&max={max}&pagina=0&tamanho=50&campos=nome,salario
+	public Mono<ServerResponse> buscarPorSalario(ServerRequest request) {
+		Double min = decimal(request, "min");
+		Double max = decimal(request, "max");
+
+		ParametrosClientes.validarFaixa(min, max);
+		return buscar(request, (pagina, tamanho, campos) -> clienteService.findBySalario(min, max, pagina, tamanho, campos));
+	}
+
+	// GET /api/clientes/changes?token={token} - SSE (com id = token, retomável por Last-Event-ID) ou NDJSON
+	public Mono<ServerResponse> acompanharAlteracoes(ServerRequest request) {
+		MediaType tipo = negociar(request, TIPOS_ALTERACOES);
+		String token = request.queryParam("token").orElse(null);
+
+		if (tipo == null) {
+			throw new NotAcceptableStatusException(TIPOS_ALTERACOES);
+		}
+		if (MediaType.TEXT_EVENT_STREAM.equals(tipo)) {
+			Flux<ServerSentEvent<EventoCliente>> eventos = alteracoesClienteService.acompanhar(token != null ? token : request.headers().firstHeader("Last-Event-ID"))
+					.map(evento -> ServerSentEvent.builder(evento).id(evento.getToken()).event(evento.getOperacao()).build())
+					.onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+			return ServerResponse.ok().contentType(tipo).body(BodyInserters.fromServerSentEvents(eventos));
+		}
+		return ServerResponse.ok().contentType(tipo).body(alteracoesClienteService.acompanhar(token)
+				.onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage())), EventoCliente.class);
+	}
+
+	// GET /api/clientes/estatisticas?idadeMin={idadeMin}&idadeMax={idadeMax}
+	public Mono<ServerResponse> estatisticas(ServerRequest request) {
+		Integer idadeMin = inteiro(request, "idadeMin", null);
+		Integer idadeMax = inteiro(request, "idadeMax", null);
+
+		return clienteService.calcularEstatisticas(idadeMin, idadeMax)
+				.flatMap(estatisticas -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON_UTF8).bodyValue(estatisticas))
+				.switchIfEmpty(Mono.defer(() -> ServerResponse.ok().build()));
+	}
+
+	// GET /api/clientes/{id} - JSON, ou Smile com `Accept: application/x-jackson-smile`
+	public Mono<ServerResponse> verDetalhesDeCliente(ServerRequest request) {
+		MediaType tipo = ParametrosClientes.tipoCliente(request.headers().accept());
+		boolean condicional = !request.headers().header(HttpHeaders.IF_NONE_MATCH).isEmpty();
+
+		return operacoesClienteService.ler(request.pathVariable("id"), condicional ? request.exchange()::checkNotModified : null)
+				.flatMap(leitura -> leitura.isModificado()
+						? ServerResponse.ok().eTag(String.valueOf(leitura.getVersao())).contentType(tipo).bodyValue(leitura.getCliente())
+						: ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(String.valueOf(leitura.getVersao())).build())
+				.switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+	}
+
+	// POST /api/clientes - validação feita aqui, com o mesmo corpo 400 do ValidacaoControllerAdvice
+	public Mono<ServerResponse> criarCliente(ServerRequest request) {
+		return corpo(request).flatMap(cliente -> {
+			Errors erros = new BeanPropertyBindingResult(cliente, "cliente");
+			validator.validate(cliente, erros);
+			if (erros.hasErrors()) {
+				return ServerResponse.badRequest().bodyValue(ErroValidacao.de(erros.getFieldErrors()));
+			}
+			return clienteService.save(cliente).flatMap(c -> ServerResponse.created(URI.create("/api/clientes/".concat(c.getId())))
+					.contentType(MediaType.APPLICATION_JSON_UTF8)
+					.bodyValue(new ClienteCriado(c, "Cliente criado com sucesso", new Date())));
+		});
+	}
+
+	// POST /api/clientes/bulk (application/x-ndjson)
+	public Mono<ServerResponse> importarClientes(ServerRequest request) {
+		MediaType recebido = request.headers().contentType().orElse(MediaType.APPLICATION_OCTET_STREAM);
+		if (!MediaType.APPLICATION_NDJSON.includes(recebido)) {
+			throw new UnsupportedMediaTypeStatusException(recebido, List.of(MediaType.APPLICATION_NDJSON));
+		}
+		MediaType tipo = negociar(request, TIPOS_LISTA);
+		if (tipo == null) {
+			throw new NotAcceptableStatusException(TIPOS_LISTA);
+		}
+
+		return ServerResponse.ok().contentType(tipo).body(clienteService.insertAll(request.bodyToFlux(Cliente.class)), ResultadoLote.class);
+	}
+
+	// POST /api/clientes/batch-get - array JSON de ids; um item por id, na ordem pedida, com os inexistentes marcados
+	public Mono<ServerResponse> buscarPorIds(ServerRequest request) {
+		MediaType tipo = negociar(request, TIPOS_LISTA);
+		if (tipo == null) {
+			throw new NotAcceptableStatusException(TIPOS_LISTA);
+		}
+
+		return ids(request).flatMap(ids -> ServerResponse.ok().contentType(tipo).body(clienteService.findAllById(ids), ClientePorId.class));
+	}
+
+	// POST /api/clientes/batch-delete - mesmo corpo; as fotos dos clientes removidos são liberadas como na exclusão individual
+	public Mono<ServerResponse> deletarPorIds(ServerRequest request) {
+		MediaType tipo = negociar(request, TIPOS_LISTA);
+		if (tipo == null) {
+			throw new NotAcceptableStatusException(TIPOS_LISTA);
+		}
+
+		return ids(request).flatMap(ids -> ServerResponse.ok().contentType(tipo).body(operacoesClienteService.excluirPorIds(ids), ClientePorId.class));
+	}
+
+	// PUT /api/clientes/{id} - If-Match opcional com a versão; 412 quando o documento mudou, 404 quando não existe
+	public Mono<ServerResponse> editarCliente(ServerRequest request) {
+		String id = request.pathVariable("id");
+		Long versao = ParametrosClientes.versaoDoETag(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+
+		return corpo(request).flatMap(cliente -> operacoesClienteService.editar(id, cliente, versao))
+				.flatMap(c -> ServerResponse.created(URI.create("/api/clientes/".concat(c.getId())))
+						.eTag(String.valueOf(c.getVersao()))
+						.contentType(MediaType.APPLICATION_JSON_UTF8)
+						.bodyValue(c))
+				.switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+	}
+
+	// DELETE /api/clientes/{id}
+	public Mono<ServerResponse> deletarCliente(ServerRequest request) {
+		return operacoesClienteService.excluir(request.pathVariable("id"))
+				.flatMap(c -> ServerResponse.noContent().build())
+				.switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+	}
+
+	// Parâmetros de paginação e projeção comuns às três buscas
+	private Mono<ServerResponse> buscar(ServerRequest request, Busca busca) {
+		MediaType tipo = negociar(request, TIPOS_LISTA);
+		if (tipo == null) {
+			throw new NotAcceptableStatusException(TIPOS_LISTA);
+		}
+		int pagina = Math.max(inteiro(request, "pagina", 0), 0);
+		int tamanho = ParametrosClientes.limitarTamanho(inteiro(request, "tamanho", 50), tamanhoMaximoPagina);
+		Set<String> campos = ParametrosClientes.validarCampos(campos(request));
+
+		return ServerResponse.ok().contentType(tipo).body(busca.executar(pagina, tamanho, campos), Cliente.class);
+	}
+
+	private interface Busca {
+
+		Flux<Cliente> executar(int pagina, int tamanho, Set<String> campos);
+	}
+
+	// `@RequestBody` obrigatório: corpo ausente é "Solicitação Inválida" (código 400), como na variante anotada
+	private static Mono<Cliente> corpo(ServerRequest request) {
+		return request.bodyToMono(Cliente.class).switchIfEmpty(Mono.error(() -> new ServerWebInputException("No request body")));
+	}
+
+	private static Mono<FilePart> arquivo(ServerRequest request) {
+		return request.multipartData().flatMap(partes -> {
+			Part parte = partes.getFirst("file");
+			return parte instanceof FilePart ? Mono.just((FilePart) parte) : Mono.error(new ServerWebInputException("Required request part 'file' is not present"));
+		});
+	}
+
+	private static MediaType negociar(ServerRequest request, List<MediaType> produziveis) {
+		return ParametrosClientes.negociar(request.headers().accept(), produziveis);
+	}
+
+	private static Integer inteiro(ServerRequest request, String nome, Integer padrao) {
+		return converter(request, nome, padrao, Integer::valueOf);
+	}
+
+	private static Double decimal(ServerRequest request, String nome) {
+		return converter(request, nome, null, Double::valueOf);
+	}
+
+	// Valor mal formado é "Solicitação Inválida" (código 400), como a conversão de `@RequestParam`
+	private static <T> T converter(ServerRequest request, String nome, T padrao, Function<String, T> conversor) {
+		String valor = request.queryParam(nome).filter(StringUtils::hasText).orElse(null);
+		if (valor == null) {
+			return padrao;
+		}
+		try {
+			return conversor.apply(valor.trim());
+		} catch (NumberFormatException e) {
+			throw new ServerWebInputException("Type mismatch for query parameter '" + nome + "': " + valor);
+		}
+	}
+
+	// Aceita `campos=nome,idade` e `campos=nome&campos=idade`
+	private static Set<String> campos(ServerRequest request) {
+		List<String> valores = request.queryParams().get("campos");
+		if (valores == null) {
+			return null;
+		}
+		Set<String> campos = new LinkedHashSet<>();
+		for (String valor : valores) {
+			Collections.addAll(campos, StringUtils.tokenizeToStringArray(valor, ","));
+		}
+		return campos;
+	}
+
+	private static ServerWebInputException parametroAusente(String nome) {
+		return new ServerWebInputException("Required query parameter '" + nome + "' is not present");
+	}
+
+	private Mono<List<String>> ids(ServerRequest request) {
+		return request.bodyToMono(LISTA_IDS)
+				.switchIfEmpty(Mono.error(() -> new ServerWebInputException("Informe a lista de ids")))
+				.map(ids -> ParametrosClientes.validarIds(ids, maximoIdsLote));
+	}
+}
@@ -0,0 +1,42 @@
+package com.daniel.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Rotas de `/api/clientes` no modelo funcional, ativadas com `config.clientes.api.modo=funcional` (no lugar do {@link ClienteController}). 
+ * As rotas fixas vêm antes de `/{id}`, já que a primeira rota que casa com a requisição é a que responde.
+ */
+@Configuration
+@ConditionalOnProperty(name = "config.clientes.api.modo", havingValue = "funcional")
+public class ClienteRouter {
+
+	private static final String BASE = "/api/clientes";
+
+	@Bean
+	public RouterFunction<ServerResponse> rotasClientes(ClienteHandler handler) {
+		return RouterFunctions.route()
+				.POST(BASE + "/registrarClienteFoto", handler::registrarClienteComFoto)
+				.POST(BASE + "/upload/{id}", handler::subirFoto)
+				.POST(BASE + "/bulk", handler::importarClientes)
+				.POST(BASE + "/batch-get", handler::buscarPorIds)
+				.POST(BASE + "/batch-delete", handler::deletarPorIds)
+				.GET(BASE + "/pagina", handler::listarClientesPaginados)
+				.GET(BASE + "/busca/nome", handler::buscarPorNome)
+				.GET(BASE + "/busca/idade", handler::buscarPorIdade)
+				.GET(BASE + "/busca/salario", handler::buscarPorSalario)
+				.GET(BASE + "/changes", handler::acompanharAlteracoes)
+				.GET(BASE + "/estatisticas", handler::estatisticas)
+				.GET(BASE + "/{id}/foto", handler::verFoto)
+				.GET(BASE + "/{id}", handler::verDetalhesDeCliente)
+				.GET(BASE, handler::listarClientes)
+				.POST(BASE, handler::criarCliente)
+				.PUT(BASE + "/{id}", handler::editarCliente)
+				.DELETE(BASE + "/{id}", handler::deletarCliente)
+				.build();
+	}
+}
@@ -0,0 +1,110 @@
+package com.daniel.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.PaginaClientes;
+import com.daniel.formatos.FormatosConfig;
+
+// Validação e conversão dos parâmetros comuns às duas variantes da API de clientes (ClienteController e ClienteHandler)
+final class ParametrosClientes {
+
+	// Campos que podem ser pedidos em `campos` nas buscas (o id sempre vem)
+	private static final Set<String> CAMPOS_PROJETAVEIS = Set.of("nome", "sobrenome", "idade", "salario", "foto", "miniaturas", "versao", 
+			"atualizadoEm");
+
+	private static final List<MediaType> TIPOS_CLIENTE = List.of(MediaType.APPLICATION_JSON, FormatosConfig.APPLICATION_SMILE);
+
+	private ParametrosClientes() {
+	}
+
+	// Converte o ETag recebido (ex.: "3" ou W/"3") na versão do documento; "*" ou ausente significa qualquer versão
+	static Long versaoDoETag(String etag) {
+		if (etag == null || etag.trim().equals("*")) {
+			return null;
+		}
+		try {
+			return Long.valueOf(etag.trim().replace("W/", "").replace("\"", ""));
+		} catch (NumberFormatException e) {
+			return -1L;
+		}
+	}
+
+	// ETag de uma página: resumo dos ids e versões que ela traz, então muda com qualquer inclusão, alteração ou exclusão dentro da faixa da
+	// página e não custa consulta além da própria página. Fraco, já que a mesma página pode ir em JSON, Smile ou comprimida
+	static String etagPagina(PaginaClientes pagina) {
+		StringBuilder conteudo = new StringBuilder();
+		for (Cliente cliente : pagina.getClientes()) {
+			conteudo.append(cliente.getId()).append(':').append(cliente.getVersao()).append('\n');
+		}
+		return "W/\"" + DigestUtils.md5DigestAsHex(conteudo.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+
+	static int limitarTamanho(int tamanho, int tamanhoMaximo) {
+		return Math.min(Math.max(tamanho, 1), tamanhoMaximo);
+	}
+
+	// Sem nenhum limite a busca viraria uma varredura da coleção inteira
+	static void validarFaixa(Object min, Object max) {
+		if (min == null && max == null) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe min e/ou max");
+		}
+	}
+
+	static Set<String> validarCampos(Set<String> campos) {
+		if (campos == null) {
+			return Collections.emptySet();
+		}
+		for (String campo : campos) {
+			if (!CAMPOS_PROJETAVEIS.contains(campo)) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Campo desconhecido: " + campo);
+			}
+		}
+		return campos;
+	}
+
+	// Corpo das operações em lote: array JSON com ao menos um id e no máximo `maximo`
+	static List<String> validarIds(List<String> ids, int maximo) {
+		if (ids.isEmpty()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe ao menos um id");
+		}
+		if (ids.size() > maximo) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No máximo " + maximo + " ids por requisição");
+		}
+		if (ids.contains(null)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Id nulo na lista");
+		}
+		return ids;
+	}
+
+	// Respostas com Content-Type explícito (um cliente ou a lista em array): Smile só quando pedido, senão o JSON de sempre
+	static MediaType tipoCliente(List<MediaType> aceitos) {
+		return FormatosConfig.APPLICATION_SMILE.equals(negociar(aceitos, TIPOS_CLIENTE)) ? FormatosConfig.APPLICATION_SMILE : MediaType.APPLICATION_JSON_UTF8;
+	}
+
+	// Primeiro tipo produzível compatível com o Accept (ordenado por especificidade e qualidade); null quando nenhum é aceito
+	static MediaType negociar(List<MediaType> aceitos, List<MediaType> produziveis) {
+		if (aceitos.isEmpty()) {
+			return produziveis.get(0);
+		}
+		List<MediaType> ordenados = new ArrayList<>(aceitos);
+		MediaType.sortBySpecificityAndQuality(ordenados);
+		for (MediaType aceito : ordenados) {
+			for (MediaType produzivel : produziveis) {
+				if (aceito.isCompatibleWith(produzivel)) {
+					return produzivel;
+				}
+			}
+		}
+		return null;
+	}
+}
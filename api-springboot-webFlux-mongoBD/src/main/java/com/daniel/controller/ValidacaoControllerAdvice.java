@@ -0,0 +1,21 @@
+package com.daniel.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import com.daniel.dto.ErroValidacao;
+
+/**
+ * Tratamento único dos erros de validação (`@Valid`) de todos os controllers. A lista de mensagens é montada com um laço simples, sem 
+ * operadores reativos, e outros erros seguem para o tratamento padrão do Spring em vez de virarem respostas vazias.
+ */
+@RestControllerAdvice
+public class ValidacaoControllerAdvice {
+
+	@ExceptionHandler(WebExchangeBindException.class)
+	public ResponseEntity<ErroValidacao> tratarValidacao(WebExchangeBindException e) {
+		return ResponseEntity.badRequest().body(ErroValidacao.de(e.getFieldErrors()));
+	}
+}
@@ -1,9 +1,51 @@
 package com.daniel.daos;
 
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
 import com.daniel.documentos.Cliente;
 
+import reactor.core.publisher.Flux;
+
 public interface ClienteDao extends ReactiveMongoRepository<Cliente, String>{
 
+	// Português sem diferenciar maiúsculas de minúsculas; precisa ser a mesma do índice nome_sobrenome_id (ver ClienteIndices)
+	String COLLATION_NOME = "{ 'locale': 'pt', 'strength': 2 }";
+
+	// Varredura completa com lotes limitados do cursor (evita que o driver traga lotes enormes de uma vez)
+	@Meta(cursorBatchSize = 256)
+	Flux<Cliente> findAllBy();
+
+	// Primeira página da paginação por cursor (keyset) ordenada por _id
+	@Meta(cursorBatchSize = 256)
+	Flux<Cliente> findAllByOrderByIdAsc(Pageable pageable);
+
+	// Páginas seguintes: continua a partir do último _id entregue
+	@Meta(cursorBatchSize = 256)
+	Flux<Cliente> findByIdGreaterThanOrderByIdAsc(ObjectId id, Pageable pageable);
+
+	// Páginas seguintes quando o último _id foi gravado como texto: o MongoDB ordena textos antes de ObjectIds e o $gt só compara
+	// valores do mesmo tipo, então os ObjectIds entram todos pelo $type. A ordenação por _id vem no Pageable
+	@Meta(cursorBatchSize = 256)
+	@Query("{ '$or': [ { '_id': { '$gt': ?0 } }, { '_id': { '$type': 'objectId' } } ] }")
+	Flux<Cliente> findPaginaAposIdTexto(String id, Pageable pageable);
+
+	// Busca por prefixo de nome: a faixa [prefixo, prefixo + '\uffff') com a collation usa o índice e ignora maiúsculas/minúsculas
+	@Meta(cursorBatchSize = 256)
+	@Query(collation = COLLATION_NOME)
+	Flux<Cliente> findByNomeBetween(Range<String> nome, Pageable pageable);
+
+	@Meta(cursorBatchSize = 256)
+	@Query(collation = COLLATION_NOME)
+	Flux<Cliente> findByNomeBetweenAndSobrenomeBetween(Range<String> nome, Range<String> sobrenome, Pageable pageable);
+
+	@Meta(cursorBatchSize = 256)
+	Flux<Cliente> findByIdadeBetween(Range<Integer> idade, Pageable pageable);
+
+	@Meta(cursorBatchSize = 256)
+	Flux<Cliente> findBySalarioBetween(Range<Double> salario, Pageable pageable);
 }
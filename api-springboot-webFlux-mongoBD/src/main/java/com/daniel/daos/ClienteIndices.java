@@ -0,0 +1,42 @@
+package com.daniel.daos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.stereotype.Component;
+
+import com.daniel.documentos.Cliente;
+
+/**
+ * Cria na subida da aplicação o índice de nome e sobrenome com a collation {@link ClienteDao#COLLATION_NOME}. O `@CompoundIndex` desta 
+ * versão do Spring Data não aceita collation, e sem ela a busca por prefixo ignorando maiúsculas/minúsculas não consegue usar o índice. 
+ * A criação é assíncrona e idempotente: se o MongoDB estiver fora do ar a aplicação sobe do mesmo jeito e o erro fica no log.
+ */
+@Component
+public class ClienteIndices {
+
+	    private static final Logger log = LoggerFactory.getLogger(ClienteIndices.class);
+
+	    @Autowired
+	    private ReactiveMongoTemplate mongoTemplate;
+
+	    @EventListener(ApplicationReadyEvent.class)
+	    public void criarIndices() {
+	      Index nomeSobrenome = new Index()
+	          .on("nome", Sort.Direction.ASC)
+	          .on("sobrenome", Sort.Direction.ASC)
+	          .on("_id", Sort.Direction.ASC)
+	          .named("nome_sobrenome_id")
+	          .collation(Collation.parse(ClienteDao.COLLATION_NOME));
+
+	      mongoTemplate.indexOps(Cliente.class).ensureIndex(nomeSobrenome)
+	          .subscribe(nome -> log.info("Índice {} verificado", nome), 
+	              erro -> log.warn("Não foi possível criar o índice nome_sobrenome_id", erro));
+	    }
+}
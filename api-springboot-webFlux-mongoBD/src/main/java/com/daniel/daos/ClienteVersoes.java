@@ -0,0 +1,55 @@
+package com.daniel.daos;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.daniel.documentos.Cliente;
+
+/**
+ * Preenche na subida da aplicação `versao: 0` nos clientes gravados antes do campo existir. Sem versão o Spring Data trata o documento
+ * como novo (o `save()` tenta inseri-lo e esbarra na chave duplicada) e a ETag sai como "null", que nunca casa com o `If-Match`. Roda
+ * como `ApplicationRunner`, como o {@link com.daniel.recursos.Aquecimento}: a aplicação só é marcada como pronta
+ * (`/actuator/health/readiness`) depois do preenchimento, então o tráfego não encontra documentos sem versão. É idempotente (só toca
+ * documentos sem o campo); uma falha ou o estouro de `config.clientes.versoes.tempo-maximo` só gera um aviso, e até a próxima subida o
+ * `update` trata a versão ausente como 0.
+ */
+@Component
+public class ClienteVersoes implements ApplicationRunner {
+
+	    private static final Logger log = LoggerFactory.getLogger(ClienteVersoes.class);
+
+	    @Autowired
+	    private ReactiveMongoTemplate mongoTemplate;
+
+	    @Value("${config.clientes.versoes.tempo-maximo:2m}")
+	    private Duration tempoMaximo;
+
+	    @Override
+	    public void run(ApplicationArguments args) {
+	      try {
+	        // O $set em versao também impede o template de acrescentar o próprio $inc da versão ao update
+	        long preenchidos = mongoTemplate.updateMulti(Query.query(Criteria.where("versao").exists(false)), new Update().set("versao", 0L), 
+	            Cliente.class)
+	            .timeout(tempoMaximo)
+	            .blockOptional()
+	            .map(resultado -> resultado.getModifiedCount())
+	            .orElse(0L);
+	        if (preenchidos > 0) {
+	          log.info("Versão inicial preenchida em {} clientes antigos", preenchidos);
+	        }
+	      } catch (RuntimeException e) {
+	        log.warn("Não foi possível preencher a versão dos clientes antigos", e);
+	      }
+	    }
+}
@@ -1,12 +1,25 @@
 package com.daniel.documentos;
 
+import java.time.Instant;
+import java.util.Map;
+
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+// Índices das buscas por faixa; o _id no fim mantém a ordem das páginas estável entre clientes com o mesmo valor. O índice de nome e 
+// sobrenome precisa de collation e é criado em ClienteIndices
 @Document(collection = "clientes")
+@CompoundIndexes({
+    @CompoundIndex(name = "idade_id", def = "{'idade': 1, '_id': 1}"),
+    @CompoundIndex(name = "salario_id", def = "{'salario': 1, '_id': 1}")
+})
 public class Cliente {
 
 	@Id
@@ -24,8 +37,21 @@ public class Cliente {
     @NotNull
     private Double salario;
 
+    // Esparso: a coleta de fotos confere por ele se algum cliente ainda usa um arquivo antes de apagá-lo
+    @Indexed(name = "foto", sparse = true)
     private String foto;
 
+    // Tamanho da miniatura (maior lado em pixels) -> nome do arquivo gerado a partir da foto
+    private Map<String, String> miniaturas;
+
+    // Incrementada a cada alteração; usada como ETag para detectar atualizações perdidas
+    @Version
+    private Long versao;
+
+    // Momento da última escrita: nas alterações pelo relógio do banco ($currentDate), na inclusão pelo da aplicação (o insert não aceita
+    // $currentDate). Só informativo; ETags vêm da versão
+    private Instant atualizadoEm;
+
     // Constructor
     public Cliente() {
 
@@ -79,4 +105,28 @@ public class Cliente {
     public void setFoto(String foto) {
         this.foto = foto;
     }
+
+    public Map<String, String> getMiniaturas() {
+        return miniaturas;
+    }
+
+    public void setMiniaturas(Map<String, String> miniaturas) {
+        this.miniaturas = miniaturas;
+    }
+
+    public Long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(Long versao) {
+        this.versao = versao;
+    }
+
+    public Instant getAtualizadoEm() {
+        return atualizadoEm;
+    }
+
+    public void setAtualizadoEm(Instant atualizadoEm) {
+        this.atualizadoEm = atualizadoEm;
+    }
 }
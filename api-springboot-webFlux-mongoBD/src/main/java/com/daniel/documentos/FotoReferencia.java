@@ -0,0 +1,49 @@
+package com.daniel.documentos;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Contador de quantos clientes usam cada arquivo de foto; o nome do arquivo é o SHA-256 do conteúdo
+@Document(collection = "fotos")
+public class FotoReferencia {
+
+	@Id
+    private String id;
+
+    private long referencias;
+
+    // Última alteração da contagem; a reconciliação só corrige contagens que ninguém tocou durante a carência
+    private Instant atualizadaEm;
+
+    // Constructor
+    public FotoReferencia() {
+
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getReferencias() {
+        return referencias;
+    }
+
+    public void setReferencias(long referencias) {
+        this.referencias = referencias;
+    }
+
+    public Instant getAtualizadaEm() {
+        return atualizadaEm;
+    }
+
+    public void setAtualizadaEm(Instant atualizadaEm) {
+        this.atualizadaEm = atualizadaEm;
+    }
+}
@@ -0,0 +1,101 @@
+package com.daniel.documentos;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Uma requisição com Idempotency-Key: reservada enquanto executa e, depois de concluída com sucesso, a resposta guardada para repetir. O 
+// índice TTL em criadoEm é criado pelo IdempotenciaWebFilter
+@Document(collection = "idempotencia")
+public class RequisicaoIdempotente {
+
+	public enum Estado { EM_ANDAMENTO, CONCLUIDA }
+
+	// Cliente (endereço remoto) + caminho da requisição + a chave enviada por ele
+	@Id
+    private String id;
+
+    private Estado estado;
+
+    private Date criadoEm;
+
+    private int status;
+
+    // Content-Type, Location e ETag da resposta original
+    private Map<String, String> cabecalhos;
+
+    private byte[] corpo;
+
+    // SHA-256 de método, caminho, Content-Type e corpo da requisição original; nulo em respostas guardadas sem ele
+    private String resumo;
+
+    // Constructor
+    public RequisicaoIdempotente() {
+
+    }
+
+    public RequisicaoIdempotente(String id, Estado estado, Date criadoEm) {
+        this.id = id;
+        this.estado = estado;
+        this.criadoEm = criadoEm;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Estado estado) {
+        this.estado = estado;
+    }
+
+    public Date getCriadoEm() {
+        return criadoEm;
+    }
+
+    public void setCriadoEm(Date criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Map<String, String> getCabecalhos() {
+        return cabecalhos;
+    }
+
+    public void setCabecalhos(Map<String, String> cabecalhos) {
+        this.cabecalhos = cabecalhos;
+    }
+
+    public byte[] getCorpo() {
+        return corpo;
+    }
+
+    public void setCorpo(byte[] corpo) {
+        this.corpo = corpo;
+    }
+
+    public String getResumo() {
+        return resumo;
+    }
+
+    public void setResumo(String resumo) {
+        this.resumo = resumo;
+    }
+}
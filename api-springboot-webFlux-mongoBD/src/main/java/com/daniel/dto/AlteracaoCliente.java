@@ -0,0 +1,34 @@
+package com.daniel.dto;
+
+import java.util.Set;
+
+import com.daniel.documentos.Cliente;
+
+// Alterações já acumuladas de um cliente: `cliente` traz os valores finais (e a versão final), `campos` quais deles gravar e 
+// `versaoBase` a versão gravada de onde as alterações partiram
+public class AlteracaoCliente {
+
+	private final Cliente cliente;
+
+	private final Set<String> campos;
+
+	private final Long versaoBase;
+
+	public AlteracaoCliente(Cliente cliente, Set<String> campos, Long versaoBase) {
+		this.cliente = cliente;
+		this.campos = campos;
+		this.versaoBase = versaoBase;
+	}
+
+	public Cliente getCliente() {
+		return cliente;
+	}
+
+	public Set<String> getCampos() {
+		return campos;
+	}
+
+	public Long getVersaoBase() {
+		return versaoBase;
+	}
+}
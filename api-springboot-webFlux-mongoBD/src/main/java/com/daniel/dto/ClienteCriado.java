@@ -0,0 +1,33 @@
+package com.daniel.dto;
+
+import java.util.Date;
+
+import com.daniel.documentos.Cliente;
+
+// Resposta de POST /api/clientes; mesmas chaves do mapa usado antes (cliente, mensagem, timestamp)
+public class ClienteCriado {
+
+	private final Cliente cliente;
+
+	private final String mensagem;
+
+	private final Date timestamp;
+
+	public ClienteCriado(Cliente cliente, String mensagem, Date timestamp) {
+		this.cliente = cliente;
+		this.mensagem = mensagem;
+		this.timestamp = timestamp;
+	}
+
+	public Cliente getCliente() {
+		return cliente;
+	}
+
+	public String getMensagem() {
+		return mensagem;
+	}
+
+	public Date getTimestamp() {
+		return timestamp;
+	}
+}
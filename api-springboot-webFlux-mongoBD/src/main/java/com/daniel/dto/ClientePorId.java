@@ -0,0 +1,31 @@
+package com.daniel.dto;
+
+import com.daniel.documentos.Cliente;
+
+// Resultado de um id pedido nas operações em lote: `encontrado` é false quando o cliente não existe
+public class ClientePorId {
+
+	private final String id;
+
+	private final boolean encontrado;
+
+	private final Cliente cliente;
+
+	public ClientePorId(String id, boolean encontrado, Cliente cliente) {
+		this.id = id;
+		this.encontrado = encontrado;
+		this.cliente = cliente;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public boolean isEncontrado() {
+		return encontrado;
+	}
+
+	public Cliente getCliente() {
+		return cliente;
+	}
+}
@@ -0,0 +1,24 @@
+package com.daniel.dto;
+
+import java.util.List;
+
+public class ErroRegistro {
+
+	// Posição do registro no fluxo recebido (começando em 0)
+	private final long indice;
+
+	private final List<String> mensagens;
+
+	public ErroRegistro(long indice, List<String> mensagens) {
+		this.indice = indice;
+		this.mensagens = mensagens;
+	}
+
+	public long getIndice() {
+		return indice;
+	}
+
+	public List<String> getMensagens() {
+		return mensagens;
+	}
+}
@@ -0,0 +1,46 @@
+package com.daniel.dto;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.FieldError;
+
+// Resposta 400 de validação; mesmas chaves do mapa usado antes (errors, timestamp, status)
+public class ErroValidacao {
+
+	private final List<String> errors;
+
+	private final Date timestamp;
+
+	private final int status;
+
+	public ErroValidacao(List<String> errors, Date timestamp, int status) {
+		this.errors = errors;
+		this.timestamp = timestamp;
+		this.status = status;
+	}
+
+	// Usado pelo ValidacaoControllerAdvice e pelo ClienteHandler, para que as duas variantes da API devolvam o mesmo corpo
+	public static ErroValidacao de(List<FieldError> camposInvalidos) {
+		List<String> erros = new ArrayList<>(camposInvalidos.size());
+		for (FieldError fieldError : camposInvalidos) {
+			// Mensagem mantida exatamente como no contrato original da API ("O campo" + nome do campo, sem espaço)
+			erros.add("O campo" + fieldError.getField() + " " + fieldError.getDefaultMessage());
+		}
+		return new ErroValidacao(erros, new Date(), HttpStatus.BAD_REQUEST.value());
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	public Date getTimestamp() {
+		return timestamp;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+}
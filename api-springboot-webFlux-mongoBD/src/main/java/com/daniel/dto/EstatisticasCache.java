@@ -0,0 +1,49 @@
+package com.daniel.dto;
+
+public class EstatisticasCache {
+
+	private final long requisicoes;
+
+	private final long acertos;
+
+	private final long falhas;
+
+	private final double taxaAcerto;
+
+	private final long despejos;
+
+	private final long tamanhoEstimado;
+
+	public EstatisticasCache(long requisicoes, long acertos, long falhas, double taxaAcerto, long despejos, long tamanhoEstimado) {
+		this.requisicoes = requisicoes;
+		this.acertos = acertos;
+		this.falhas = falhas;
+		this.taxaAcerto = taxaAcerto;
+		this.despejos = despejos;
+		this.tamanhoEstimado = tamanhoEstimado;
+	}
+
+	public long getRequisicoes() {
+		return requisicoes;
+	}
+
+	public long getAcertos() {
+		return acertos;
+	}
+
+	public long getFalhas() {
+		return falhas;
+	}
+
+	public double getTaxaAcerto() {
+		return taxaAcerto;
+	}
+
+	public long getDespejos() {
+		return despejos;
+	}
+
+	public long getTamanhoEstimado() {
+		return tamanhoEstimado;
+	}
+}
@@ -0,0 +1,47 @@
+package com.daniel.dto;
+
+import java.util.List;
+
+public class EstatisticasClientes {
+
+	private final long total;
+
+	private final ResumoCampo salario;
+
+	private final ResumoCampo idade;
+
+	// Faixas com aproximadamente a mesma quantidade de clientes cada ($bucketAuto): com 10 faixas, os limites são os decis do salário
+	private final List<FaixaHistograma> faixasSalario;
+
+	// Faixas etárias fixas, configuradas em config.clientes.estatisticas.faixas-idade ($bucket)
+	private final List<FaixaHistograma> faixasIdade;
+
+	public EstatisticasClientes(long total, ResumoCampo salario, ResumoCampo idade, List<FaixaHistograma> faixasSalario, 
+			List<FaixaHistograma> faixasIdade) {
+		this.total = total;
+		this.salario = salario;
+		this.idade = idade;
+		this.faixasSalario = faixasSalario;
+		this.faixasIdade = faixasIdade;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public ResumoCampo getSalario() {
+		return salario;
+	}
+
+	public ResumoCampo getIdade() {
+		return idade;
+	}
+
+	public List<FaixaHistograma> getFaixasSalario() {
+		return faixasSalario;
+	}
+
+	public List<FaixaHistograma> getFaixasIdade() {
+		return faixasIdade;
+	}
+}
@@ -0,0 +1,48 @@
+package com.daniel.dto;
+
+import java.time.Instant;
+
+import com.daniel.documentos.Cliente;
+
+// Uma alteração na coleção de clientes; o token permite retomar o acompanhamento logo depois deste evento
+public class EventoCliente {
+
+	private final String token;
+
+	private final String operacao;
+
+	private final String id;
+
+	// Documento completo após a alteração; nulo na exclusão
+	private final Cliente cliente;
+
+	private final Instant momento;
+
+	public EventoCliente(String token, String operacao, String id, Cliente cliente, Instant momento) {
+		this.token = token;
+		this.operacao = operacao;
+		this.id = id;
+		this.cliente = cliente;
+		this.momento = momento;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public String getOperacao() {
+		return operacao;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Cliente getCliente() {
+		return cliente;
+	}
+
+	public Instant getMomento() {
+		return momento;
+	}
+}
@@ -0,0 +1,29 @@
+package com.daniel.dto;
+
+// Faixa [inicio, fim) de um histograma; inicio e fim nulos identificam os valores fora de todas as faixas configuradas
+public class FaixaHistograma {
+
+	private final Double inicio;
+
+	private final Double fim;
+
+	private final long quantidade;
+
+	public FaixaHistograma(Double inicio, Double fim, long quantidade) {
+		this.inicio = inicio;
+		this.fim = fim;
+		this.quantidade = quantidade;
+	}
+
+	public Double getInicio() {
+		return inicio;
+	}
+
+	public Double getFim() {
+		return fim;
+	}
+
+	public long getQuantidade() {
+		return quantidade;
+	}
+}
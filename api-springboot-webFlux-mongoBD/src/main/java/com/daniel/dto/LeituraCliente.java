@@ -0,0 +1,28 @@
+package com.daniel.dto;
+
+import com.daniel.documentos.Cliente;
+
+// Resultado de uma leitura condicional: sem cliente quando a versão pedida no If-None-Match ainda é a atual (304)
+public class LeituraCliente {
+
+	private final Long versao;
+
+	private final Cliente cliente;
+
+	public LeituraCliente(Long versao, Cliente cliente) {
+		this.versao = versao;
+		this.cliente = cliente;
+	}
+
+	public Long getVersao() {
+		return versao;
+	}
+
+	public Cliente getCliente() {
+		return cliente;
+	}
+
+	public boolean isModificado() {
+		return cliente != null;
+	}
+}
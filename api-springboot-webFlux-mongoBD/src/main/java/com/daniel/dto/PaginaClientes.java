@@ -0,0 +1,25 @@
+package com.daniel.dto;
+
+import java.util.List;
+
+import com.daniel.documentos.Cliente;
+
+public class PaginaClientes {
+
+	private final List<Cliente> clientes;
+
+	private final String proximoCursor;
+
+	public PaginaClientes(List<Cliente> clientes, String proximoCursor) {
+		this.clientes = clientes;
+		this.proximoCursor = proximoCursor;
+	}
+
+	public List<Cliente> getClientes() {
+		return clientes;
+	}
+
+	public String getProximoCursor() {
+		return proximoCursor;
+	}
+}
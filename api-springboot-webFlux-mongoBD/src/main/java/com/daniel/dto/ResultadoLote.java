@@ -0,0 +1,37 @@
+package com.daniel.dto;
+
+import java.util.List;
+
+public class ResultadoLote {
+
+	private final long lote;
+
+	private final int recebidos;
+
+	private final int inseridos;
+
+	private final List<ErroRegistro> erros;
+
+	public ResultadoLote(long lote, int recebidos, int inseridos, List<ErroRegistro> erros) {
+		this.lote = lote;
+		this.recebidos = recebidos;
+		this.inseridos = inseridos;
+		this.erros = erros;
+	}
+
+	public long getLote() {
+		return lote;
+	}
+
+	public int getRecebidos() {
+		return recebidos;
+	}
+
+	public int getInseridos() {
+		return inseridos;
+	}
+
+	public List<ErroRegistro> getErros() {
+		return erros;
+	}
+}
@@ -0,0 +1,36 @@
+package com.daniel.dto;
+
+// Resumo de um campo numérico; média, mínimo e máximo ficam nulos quando nenhum cliente entrou no cálculo
+public class ResumoCampo {
+
+	private final double soma;
+
+	private final Double media;
+
+	private final Double minimo;
+
+	private final Double maximo;
+
+	public ResumoCampo(double soma, Double media, Double minimo, Double maximo) {
+		this.soma = soma;
+		this.media = media;
+		this.minimo = minimo;
+		this.maximo = maximo;
+	}
+
+	public double getSoma() {
+		return soma;
+	}
+
+	public Double getMedia() {
+		return media;
+	}
+
+	public Double getMinimo() {
+		return minimo;
+	}
+
+	public Double getMaximo() {
+		return maximo;
+	}
+}
@@ -0,0 +1,24 @@
+package com.daniel.dto;
+
+import com.daniel.documentos.Cliente;
+
+// Resultado da troca de foto: o cliente já com a foto nova e a foto que ela substituiu no banco, que só esta troca deve liberar
+public class TrocaFoto {
+
+	private final Cliente cliente;
+
+	private final String fotoAnterior;
+
+	public TrocaFoto(Cliente cliente, String fotoAnterior) {
+		this.cliente = cliente;
+		this.fotoAnterior = fotoAnterior;
+	}
+
+	public Cliente getCliente() {
+		return cliente;
+	}
+
+	public String getFotoAnterior() {
+		return fotoAnterior;
+	}
+}
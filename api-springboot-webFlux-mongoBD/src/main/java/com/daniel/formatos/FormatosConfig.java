@@ -0,0 +1,43 @@
+package com.daniel.formatos;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Smile: JSON binário do Jackson, pedido com `Accept: application/x-jackson-smile` (ou `application/stream+x-jackson-smile` para um 
+ * cliente por vez em streaming). O WebFlux já registra os codecs Smile depois dos de JSON, então quem não pede Smile explicitamente 
+ * continua recebendo JSON; aqui eles só passam a usar o `ObjectMapper` configurado pelo Spring Boot (datas ISO-8601, módulos), como o de 
+ * JSON.
+ */
+@Configuration
+public class FormatosConfig {
+
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+	public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+	public static final String APPLICATION_STREAM_SMILE_VALUE = "application/stream+x-jackson-smile";
+
+	public static final MediaType APPLICATION_STREAM_SMILE = MediaType.parseMediaType(APPLICATION_STREAM_SMILE_VALUE);
+
+	@Bean
+	public CodecCustomizer smileCodecs(Jackson2ObjectMapperBuilder builder) {
+		ObjectMapper smile = builder.factory(new SmileFactory()).build();
+		// Sem tipos explícitos, os construtores assumem os de JSON
+		MimeType[] tipos = { APPLICATION_SMILE, MimeTypeUtils.parseMimeType("application/*+x-jackson-smile") };
+		return configurer -> {
+			configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smile, tipos));
+			configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile, tipos));
+		};
+	}
+}
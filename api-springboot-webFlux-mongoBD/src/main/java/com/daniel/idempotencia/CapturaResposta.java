@@ -0,0 +1,77 @@
+package com.daniel.idempotencia;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+
+import com.daniel.documentos.RequisicaoIdempotente;
+
+import reactor.core.publisher.Mono;
+
+// Guarda status, cabeçalhos e corpo da resposta antes de enviá-la: se a conexão cair no meio do envio, o que foi feito continua 
+// registrado para a próxima tentativa
+final class CapturaResposta extends ServerHttpResponseDecorator {
+
+	private static final List<String> CABECALHOS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.LOCATION, HttpHeaders.ETAG);
+
+	private final String chave;
+
+	private volatile RequisicaoIdempotente resposta;
+
+	CapturaResposta(ServerHttpResponse delegate, String chave) {
+		super(delegate);
+		this.chave = chave;
+	}
+
+	@Override
+	public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+		// As respostas destas rotas são um único objeto; juntar os buffers não muda o que o cliente recebe
+		return DataBufferUtils.join(body).map(buffer -> {
+			byte[] bytes = new byte[buffer.readableByteCount()];
+			buffer.read(bytes);
+			DataBufferUtils.release(buffer);
+			return bytes;
+		}).defaultIfEmpty(new byte[0]).flatMap(bytes -> {
+			capturar(bytes);
+			return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+		});
+	}
+
+	@Override
+	public Mono<Void> setComplete() {
+		if (resposta == null) {
+			capturar(new byte[0]);
+		}
+		return super.setComplete();
+	}
+
+	// null enquanto nada foi escrito
+	RequisicaoIdempotente getResposta() {
+		return resposta;
+	}
+
+	RequisicaoIdempotente capturar(byte[] corpo) {
+		Map<String, String> cabecalhos = new LinkedHashMap<>();
+		for (String nome : CABECALHOS) {
+			String valor = getHeaders().getFirst(nome);
+			if (valor != null) {
+				cabecalhos.put(nome, valor);
+			}
+		}
+		RequisicaoIdempotente capturada = new RequisicaoIdempotente(chave, RequisicaoIdempotente.Estado.EM_ANDAMENTO, new Date());
+		Integer status = getRawStatusCode();
+		capturada.setStatus(status == null ? 200 : status);
+		capturada.setCabecalhos(cabecalhos);
+		capturada.setCorpo(corpo);
+		resposta = capturada;
+		return capturada;
+	}
+}
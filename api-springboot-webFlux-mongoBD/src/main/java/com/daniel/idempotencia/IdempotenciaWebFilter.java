@@ -0,0 +1,294 @@
+package com.daniel.idempotencia;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.daniel.documentos.RequisicaoIdempotente;
+import com.daniel.limites.ClienteRemoto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * `POST` com o cabeçalho `Idempotency-Key` nas rotas de criação (`config.idempotencia.rotas`): a primeira requisição com uma chave
+ * executa normalmente e, se der certo (2xx), a resposta fica guardada; novas tentativas com a mesma chave recebem a mesma resposta (com
+ * `Idempotent-Replayed: true`) sem chegar ao controller, ao `ClienteService` nem ao armazenamento de fotos. Respostas de erro não são
+ * guardadas, e a chave fica livre para uma nova tentativa.
+ *
+ * A chave vale por cliente (o endereço remoto, como no limite de taxa) e por rota, e fica presa à requisição que a usou primeiro: junto da
+ * resposta vai o resumo de método, caminho, Content-Type e corpo, e a mesma chave com outra requisição recebe "Entidade Não Processável"
+ * (422) em vez da resposta de outro pedido.
+ *
+ * Na instância, um cache Caffeine limitado guarda o `CompletableFuture` de cada chave: tentativas que chegam enquanto a primeira ainda
+ * executa esperam por ela em vez de executar de novo. Entre instâncias, a coleção `idempotencia` (com índice TTL) faz o papel de trava:
+ * a chave é reservada com um insert antes da execução, e uma tentativa que encontra a reserva de outra instância recebe "Conflito" (409).
+ * Reservas mais antigas que `config.idempotencia.andamento-maximo-segundos` são de instâncias que caíram e podem ser assumidas.
+ *
+ * A execução não é cancelada quando o cliente desiste da conexão (o caso típico de timeout no celular): ela termina e registra a
+ * resposta, que a próxima tentativa recebe.
+ */
+@Component
+public class IdempotenciaWebFilter implements WebFilter, Ordered {
+
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+	public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+	private static final Logger log = LoggerFactory.getLogger(IdempotenciaWebFilter.class);
+
+	private static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ServerCodecConfigurer codecs;
+
+	@Value("${config.idempotencia.habilitado:true}")
+	private boolean habilitado;
+
+	@Value("${config.idempotencia.rotas:/api/clientes,/api/clientes/registrarClienteFoto,/api/clientes/upload/{id}}")
+	private List<String> padroes;
+
+	@Value("${config.idempotencia.ttl-horas:24}")
+	private long ttlHoras;
+
+	@Value("${config.idempotencia.cache.tamanho-maximo:10000}")
+	private long tamanhoMaximoCache;
+
+	@Value("${config.idempotencia.andamento-maximo-segundos:120}")
+	private long andamentoMaximoSegundos;
+
+	private List<PathPattern> rotas;
+
+	private Cache<String, CompletableFuture<RequisicaoIdempotente>> execucoes;
+
+	private Counter repeticoesMemoria;
+
+	private Counter repeticoesMongo;
+
+	@PostConstruct
+	public void iniciar() {
+		rotas = new ArrayList<>(padroes.size());
+		for (String padrao : padroes) {
+			rotas.add(PathPatternParser.defaultInstance.parse(padrao.trim()));
+		}
+		// Execuções que falham ou terminam sem sucesso são removidas, deixando a chave livre
+		execucoes = Caffeine.newBuilder()
+				.maximumSize(tamanhoMaximoCache)
+				.expireAfterWrite(Duration.ofHours(ttlHoras))
+				.build();
+		repeticoesMemoria = Counter.builder("clientes.idempotencia.repeticoes").tag("origem", "memoria").register(meterRegistry);
+		repeticoesMongo = Counter.builder("clientes.idempotencia.repeticoes").tag("origem", "mongodb").register(meterRegistry);
+	}
+
+	// O MongoDB remove as chaves vencidas sozinho; a criação segue o padrão de ClienteIndices (assíncrona, erro só no log)
+	@EventListener(ApplicationReadyEvent.class)
+	public void criarIndiceTtl() {
+		Index ttl = new Index().on("criadoEm", Sort.Direction.ASC).named("criadoEm_ttl").expire(Duration.ofHours(ttlHoras));
+		mongoTemplate.indexOps(RequisicaoIdempotente.class).ensureIndex(ttl)
+				.subscribe(nome -> log.info("Índice {} verificado", nome),
+						erro -> log.warn("Não foi possível criar o índice criadoEm_ttl", erro));
+	}
+
+	// Depois do limite de taxa: requisições rejeitadas com 429 não chegam a reservar a chave
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 20;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		String chaveCliente = exchange.getRequest().getHeaders().getFirst(IDEMPOTENCY_KEY);
+		PathContainer caminho = exchange.getRequest().getPath().pathWithinApplication();
+		if (!habilitado || chaveCliente == null || !HttpMethod.POST.equals(exchange.getRequest().getMethod()) || !rotaIdempotente(caminho)) {
+			return chain.filter(exchange);
+		}
+		if (chaveCliente.isBlank() || chaveCliente.length() > TAMANHO_MAXIMO_CHAVE) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key inválida"));
+		}
+
+		String chave = ClienteRemoto.de(exchange) + " " + caminho.value() + " " + chaveCliente;
+		return Mono.deferContextual(contexto -> {
+			CompletableFuture<RequisicaoIdempotente> execucao = new CompletableFuture<>();
+			CompletableFuture<RequisicaoIdempotente> anterior = execucoes.asMap().putIfAbsent(chave, execucao);
+			if (anterior == null) {
+				executar(chave, exchange, chain, execucao, contexto);
+				// copy(): o cancelamento desta requisição não interrompe a execução. Resposta já enviada significa que foi esta requisição que
+				// executou; senão, a resposta veio concluída do MongoDB
+				return Mono.fromFuture(execucao.copy())
+						.flatMap(resposta -> exchange.getResponse().isCommitted() ? Mono.empty() : conferir(exchange, resposta)
+								.then(Mono.defer(() -> {
+									repeticoesMongo.increment();
+									return repetir(exchange, resposta);
+								})));
+			}
+			// Mesma chave em execução ou já concluída nesta instância. Só respostas guardadas são repetidas: se a execução anterior falhou
+			// (ou não teve sucesso), esta tentativa passa a valer por si, com o próprio corpo
+			return Mono.fromFuture(anterior.copy()).map(Optional::of).onErrorReturn(Optional.empty()).flatMap(resposta -> {
+				if (resposta.isPresent() && resposta.get().getEstado() == RequisicaoIdempotente.Estado.CONCLUIDA) {
+					return conferir(exchange, resposta.get()).then(Mono.defer(() -> {
+						repeticoesMemoria.increment();
+						return repetir(exchange, resposta.get());
+					}));
+				}
+				return filter(exchange, chain);
+			});
+		});
+	}
+
+	private boolean rotaIdempotente(PathContainer caminho) {
+		for (PathPattern rota : rotas) {
+			if (rota.matches(caminho)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// A reserva (EM_ANDAMENTO) é desta requisição; CONCLUIDA é uma resposta a repetir; reserva de outra instância em andamento é 409
+	private Mono<RequisicaoIdempotente> reservar(String chave) {
+		return mongoTemplate.insert(new RequisicaoIdempotente(chave, RequisicaoIdempotente.Estado.EM_ANDAMENTO, new Date()))
+				.onErrorResume(DuplicateKeyException.class, e -> mongoTemplate.findById(chave, RequisicaoIdempotente.class)
+						.flatMap(existente -> existente.getEstado() == RequisicaoIdempotente.Estado.CONCLUIDA
+								? Mono.just(existente)
+								: assumirAbandonada(existente))
+						// Liberada (ou vencida) entre o insert e a busca
+						.switchIfEmpty(Mono.defer(() -> reservar(chave))));
+	}
+
+	private Mono<RequisicaoIdempotente> assumirAbandonada(RequisicaoIdempotente existente) {
+		Date limite = new Date(System.currentTimeMillis() - Duration.ofSeconds(andamentoMaximoSegundos).toMillis());
+		if (existente.getCriadoEm() != null && existente.getCriadoEm().after(limite)) {
+			return Mono.error(emAndamento());
+		}
+		Query query = Query.query(Criteria.where("id").is(existente.getId())
+				.and("estado").is(RequisicaoIdempotente.Estado.EM_ANDAMENTO)
+				.and("criadoEm").is(existente.getCriadoEm()));
+		return mongoTemplate.findAndModify(query, new Update().set("criadoEm", new Date()), FindAndModifyOptions.options().returnNew(true),
+				RequisicaoIdempotente.class).switchIfEmpty(Mono.error(emAndamento()));
+	}
+
+	// Só repete para a mesma requisição; o corpo desta tentativa, que não vai executar, é lido apenas para o resumo
+	private static Mono<Void> conferir(ServerWebExchange exchange, RequisicaoIdempotente resposta) {
+		if (resposta.getResumo() == null) {
+			return Mono.empty();
+		}
+		return ResumoRequisicao.de(exchange.getRequest())
+				.filter(resposta.getResumo()::equals)
+				.switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+						"Idempotency-Key já usada com outra requisição")))
+				.then();
+	}
+
+	private static ResponseStatusException emAndamento() {
+		return new ResponseStatusException(HttpStatus.CONFLICT, "Requisição com a mesma Idempotency-Key em andamento");
+	}
+
+	// Assinada à parte da requisição, para que a desconexão do cliente não interrompa a execução pela metade
+	private void executar(String chave, ServerWebExchange exchange, WebFilterChain chain, CompletableFuture<RequisicaoIdempotente> execucao,
+			ContextView contexto) {
+		CapturaResposta captura = new CapturaResposta(exchange.getResponse(), chave);
+		ResumoRequisicao requisicao = new ResumoRequisicao(exchange.getRequest());
+		reservar(chave).flatMap(reservada -> {
+			if (reservada.getEstado() == RequisicaoIdempotente.Estado.CONCLUIDA) {
+				return Mono.just(reservada);
+			}
+			return chain.filter(new MultipartResumido(exchange.mutate().request(requisicao).response(captura).build(), codecs))
+					.then(Mono.defer(() -> finalizar(chave, captura, requisicao, null)))
+					.onErrorResume(erro -> finalizar(chave, captura, requisicao, erro));
+		}).contextWrite(contexto).subscribe(resposta -> {
+			// Remove antes de completar: quem recebe a resposta pode tentar de novo antes de o callback terminar
+			if (resposta.getEstado() != RequisicaoIdempotente.Estado.CONCLUIDA) {
+				execucoes.asMap().remove(chave, execucao);
+			}
+			execucao.complete(resposta);
+		}, erro -> falhar(chave, execucao, erro));
+	}
+
+	private void falhar(String chave, CompletableFuture<RequisicaoIdempotente> execucao, Throwable erro) {
+		execucoes.asMap().remove(chave, execucao);
+		execucao.completeExceptionally(erro);
+	}
+
+	private Mono<RequisicaoIdempotente> finalizar(String chave, CapturaResposta captura, ResumoRequisicao requisicao, Throwable erro) {
+		RequisicaoIdempotente resposta = captura.getResposta();
+		if (resposta == null && erro == null) {
+			resposta = captura.capturar(new byte[0]);
+		}
+
+		if (resposta == null || !HttpStatus.Series.SUCCESSFUL.equals(HttpStatus.Series.resolve(resposta.getStatus()))) {
+			// Nada a preservar: a chave é liberada para que uma nova tentativa execute de novo
+			Mono<RequisicaoIdempotente> resultado = erro != null ? Mono.error(erro) : Mono.just(resposta);
+			Query reserva = Query.query(Criteria.where("id").is(chave).and("estado").is(RequisicaoIdempotente.Estado.EM_ANDAMENTO));
+			return mongoTemplate.remove(reserva, RequisicaoIdempotente.class)
+					.onErrorResume(e -> {
+						log.warn("Não foi possível liberar a Idempotency-Key", e);
+						return Mono.empty();
+					})
+					.then(resultado);
+		}
+
+		// Com a resposta já capturada, um erro aqui é só do envio (cliente desconectado); o efeito aconteceu e fica registrado
+		RequisicaoIdempotente concluida = resposta;
+		concluida.setEstado(RequisicaoIdempotente.Estado.CONCLUIDA);
+		concluida.setResumo(requisicao.resumo());
+		return mongoTemplate.save(concluida)
+				.onErrorResume(e -> {
+					log.warn("Não foi possível registrar a resposta da Idempotency-Key {}", concluida.getId(), e);
+					return Mono.just(concluida);
+				});
+	}
+
+	private static Mono<Void> repetir(ServerWebExchange exchange, RequisicaoIdempotente resposta) {
+		ServerHttpResponse response = exchange.getResponse();
+		response.setRawStatusCode(resposta.getStatus());
+		if (resposta.getCabecalhos() != null) {
+			resposta.getCabecalhos().forEach(response.getHeaders()::set);
+		}
+		response.getHeaders().set(IDEMPOTENT_REPLAYED, "true");
+		return response.writeWith(Mono.just(response.bufferFactory().wrap(resposta.getCorpo() == null ? new byte[0] : resposta.getCorpo())));
+	}
+}
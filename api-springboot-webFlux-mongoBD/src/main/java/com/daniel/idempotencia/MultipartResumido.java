@@ -0,0 +1,46 @@
+package com.daniel.idempotencia;
+
+import java.util.Map;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+
+import reactor.core.publisher.Mono;
+
+// O exchange original lê o multipart (de @RequestPart e de ServerRequest.multipartData()) direto da requisição de origem, passando por 
+// fora de ResumoRequisicao; este o lê da requisição já decorada, com os mesmos leitores configurados no WebFlux
+final class MultipartResumido extends ServerWebExchangeDecorator {
+
+	private static final ResolvableType TIPO_MULTIPART = ResolvableType.forClassWithGenerics(MultiValueMap.class, String.class, Part.class);
+
+	private final Mono<MultiValueMap<String, Part>> multipart;
+
+	@SuppressWarnings("unchecked")
+	MultipartResumido(ServerWebExchange delegate, ServerCodecConfigurer codecs) {
+		super(delegate);
+		MediaType tipo = delegate.getRequest().getHeaders().getContentType();
+		if (tipo == null || !MediaType.MULTIPART_FORM_DATA.isCompatibleWith(tipo)) {
+			multipart = Mono.just(new LinkedMultiValueMap<>());
+			return;
+		}
+		HttpMessageReader<MultiValueMap<String, Part>> leitor = (HttpMessageReader<MultiValueMap<String, Part>>) codecs.getReaders().stream()
+				.filter(candidato -> candidato.canRead(TIPO_MULTIPART, MediaType.MULTIPART_FORM_DATA))
+				.findFirst()
+				.orElseThrow(() -> new IllegalStateException("Nenhum leitor de multipart/form-data configurado"));
+		multipart = leitor.readMono(TIPO_MULTIPART, delegate.getRequest(), Map.of())
+				.switchIfEmpty(Mono.fromSupplier(LinkedMultiValueMap::new))
+				.cache();
+	}
+
+	@Override
+	public Mono<MultiValueMap<String, Part>> getMultipartData() {
+		return multipart;
+	}
+}
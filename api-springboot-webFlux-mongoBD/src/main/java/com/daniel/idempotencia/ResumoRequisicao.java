@@ -0,0 +1,85 @@
+package com.daniel.idempotencia;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// SHA-256 de método, caminho, Content-Type (sem parâmetros) e corpo: o que a requisição pede, para que a mesma Idempotency-Key com outro 
+// pedido não receba a resposta do primeiro. O corpo é resumido enquanto passa, sem ser guardado; uploads de foto seguem direto para o disco
+final class ResumoRequisicao extends ServerHttpRequestDecorator {
+
+	private final MessageDigest corpo = novoDigest();
+
+	private volatile boolean completo;
+
+	private long lidos;
+
+	ResumoRequisicao(ServerHttpRequest delegate) {
+		super(delegate);
+	}
+
+	@Override
+	public Flux<DataBuffer> getBody() {
+		return super.getBody().doOnNext(buffer -> {
+			synchronized (corpo) {
+				corpo.update(buffer.asByteBuffer());
+				lidos += buffer.readableByteCount();
+			}
+		}).doOnComplete(() -> completo = true);
+	}
+
+	// null se o controller não leu o corpo até o fim: sem resumo, a resposta é repetida sem comparar. O leitor de multipart cancela o 
+	// corpo depois do delimitador final, sem o sinal de fim; aí vale o Content-Length
+	String resumo() {
+		synchronized (corpo) {
+			long tamanho = getHeaders().getContentLength();
+			if (!completo && (tamanho < 0 || lidos != tamanho)) {
+				return null;
+			}
+			return resumir(getDelegate(), corpo.digest());
+		}
+	}
+
+	// Para uma nova tentativa, que não executa: lê o corpo inteiro só para resumi-lo
+	static Mono<String> de(ServerHttpRequest request) {
+		MessageDigest corpo = novoDigest();
+		return request.getBody().doOnNext(buffer -> {
+			corpo.update(buffer.asByteBuffer());
+			DataBufferUtils.release(buffer);
+		}).then(Mono.fromCallable(() -> resumir(request, corpo.digest())));
+	}
+
+	private static String resumir(ServerHttpRequest request, byte[] corpo) {
+		MediaType tipo = request.getHeaders().getContentType();
+		MessageDigest digest = novoDigest();
+		digest.update((request.getMethodValue() + " " + request.getPath().pathWithinApplication().value() + " "
+				+ (tipo == null ? "" : tipo.getType() + "/" + tipo.getSubtype()) + " ").getBytes(StandardCharsets.UTF_8));
+		digest.update(corpo);
+		return hex(digest.digest());
+	}
+
+	private static MessageDigest novoDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
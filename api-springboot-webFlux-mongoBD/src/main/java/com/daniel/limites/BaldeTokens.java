@@ -0,0 +1,33 @@
+package com.daniel.limites;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de tokens de um cliente em uma rota, guardado em um único `long` (algoritmo GCRA): em vez de contar tokens e recarregá-los, guarda 
+ * o instante teórico em que o balde estaria cheio de novo. Consumir é um laço de compare-and-set, sem lock e sem alocação.
+ */
+final class BaldeTokens {
+
+	// Long.MIN_VALUE: balde cheio na primeira requisição, qualquer que seja o valor de System.nanoTime()
+	private final AtomicLong chegadaTeorica = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * @param agora     instante atual (System.nanoTime())
+	 * @param intervalo nanossegundos para repor um token (1s / requisições por segundo)
+	 * @param limite    intervalo * rajada: quanto a chegada teórica pode estar à frente de agora
+	 * @return 0 se a requisição foi aceita; senão, nanossegundos até haver um token disponível
+	 */
+	long consumir(long agora, long intervalo, long limite) {
+		while (true) {
+			long atual = chegadaTeorica.get();
+			long proxima = Math.max(atual, agora) + intervalo;
+			long adiantamento = proxima - agora;
+			if (adiantamento > limite) {
+				return adiantamento - limite;
+			}
+			if (chegadaTeorica.compareAndSet(atual, proxima)) {
+				return 0;
+			}
+		}
+	}
+}
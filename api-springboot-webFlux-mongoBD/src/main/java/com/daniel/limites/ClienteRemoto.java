@@ -0,0 +1,21 @@
+package com.daniel.limites;
+
+import java.net.InetSocketAddress;
+
+import org.springframework.web.server.ServerWebExchange;
+
+// Identifica quem fez a requisição pelo endereço remoto; atrás de um proxy, `server.forward-headers-strategy=framework` faz o endereço 
+// refletir o `X-Forwarded-For`. Usado pelo limite de taxa e pelo escopo das chaves de idempotência
+public final class ClienteRemoto {
+
+	private ClienteRemoto() {
+	}
+
+	public static String de(ServerWebExchange exchange) {
+		InetSocketAddress endereco = exchange.getRequest().getRemoteAddress();
+		if (endereco == null) {
+			return "desconhecido";
+		}
+		return endereco.getAddress() != null ? endereco.getAddress().getHostAddress() : endereco.getHostString();
+	}
+}
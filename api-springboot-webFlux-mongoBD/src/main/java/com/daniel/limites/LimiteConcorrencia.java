@@ -0,0 +1,193 @@
+package com.daniel.limites;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Limite adaptativo (AIMD) de operações simultâneas no MongoDB. Cada operação que termina dentro de `latencia-alvo-ms` aumenta o limite 
+ * em 1/limite (cerca de +1 a cada "limite" operações); uma operação mais lenta que isso o multiplica por `fator-reducao`, no máximo uma 
+ * vez por janela: só conta a lentidão de operações iniciadas depois da última redução, já que as que estavam em andamento viram o mesmo 
+ * congestionamento. Operações pesadas por natureza (agregações, lotes) usam {@link #protegerPesada(Mono)}, medidas contra 
+ * `latencia-alvo-pesada-ms`. Acima do limite a operação nem chega ao pool de conexões do driver: falha na hora com 
+ * {@link SobrecargaException} (código 503), em vez de esperar na fila junto com todas as outras até o timeout.
+ */
+@Component
+public class LimiteConcorrencia {
+
+	@Value("${config.limites.concorrencia.habilitado:true}")
+	private boolean habilitado;
+
+	@Value("${config.limites.concorrencia.inicial:50}")
+	private int inicial;
+
+	@Value("${config.limites.concorrencia.minimo:4}")
+	private int minimo;
+
+	@Value("${config.limites.concorrencia.maximo:500}")
+	private int maximo;
+
+	@Value("${config.limites.concorrencia.latencia-alvo-ms:100}")
+	private long latenciaAlvoMs;
+
+	@Value("${config.limites.concorrencia.latencia-alvo-pesada-ms:2000}")
+	private long latenciaAlvoPesadaMs;
+
+	@Value("${config.limites.concorrencia.fator-reducao:0.9}")
+	private double fatorReducao;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final AtomicInteger emAndamento = new AtomicInteger();
+
+	// Limite atual (double, para acumular os incrementos fracionários) guardado como bits em um AtomicLong
+	private final AtomicLong limite = new AtomicLong();
+
+	// Momento (System.nanoTime) da última redução; operações iniciadas antes dele não reduzem de novo
+	private final AtomicLong ultimaReducao = new AtomicLong();
+
+	private long latenciaAlvoNanos;
+
+	private long latenciaAlvoPesadaNanos;
+
+	private Counter rejeicoes;
+
+	@PostConstruct
+	public void iniciar() {
+		limite.set(Double.doubleToLongBits(inicial));
+		ultimaReducao.set(System.nanoTime());
+		latenciaAlvoNanos = TimeUnit.MILLISECONDS.toNanos(latenciaAlvoMs);
+		latenciaAlvoPesadaNanos = TimeUnit.MILLISECONDS.toNanos(latenciaAlvoPesadaMs);
+		rejeicoes = Counter.builder("clientes.limites.rejeicoes").tag("tipo", "concorrencia").tag("rota", "mongodb").register(meterRegistry);
+		Gauge.builder("clientes.limites.concorrencia.limite", this, LimiteConcorrencia::limiteAtual).register(meterRegistry);
+		Gauge.builder("clientes.limites.concorrencia.em-andamento", emAndamento, AtomicInteger::get).register(meterRegistry);
+	}
+
+	// A vaga é ocupada na assinatura e devolvida no sinal final
+	public <T> Mono<T> proteger(Mono<T> mono) {
+		return proteger(mono, latenciaAlvoNanos);
+	}
+
+	// Ocupa uma vaga como as demais, mas só conta como lenta acima de latencia-alvo-pesada-ms: uma agregação ou um lote de mil documentos 
+	// levar mais que a latência de uma busca por id não indica banco sobrecarregado
+	public <T> Mono<T> protegerPesada(Mono<T> mono) {
+		return proteger(mono, latenciaAlvoPesadaNanos);
+	}
+
+	// Para consultas em streaming a vaga é devolvida no primeiro elemento: a partir daí o ritmo é do consumidor, não do banco
+	public <T> Flux<T> proteger(Flux<T> flux) {
+		if (!habilitado) {
+			return flux;
+		}
+		return Flux.defer(() -> {
+			if (!adquirir()) {
+				return Flux.error(rejeitar());
+			}
+			long inicio = System.nanoTime();
+			AtomicBoolean liberada = new AtomicBoolean();
+			return flux.doOnNext(elemento -> {
+				if (liberada.compareAndSet(false, true)) {
+					liberar(SignalType.ON_NEXT, inicio, latenciaAlvoNanos);
+				}
+			}).doFinally(sinal -> {
+				if (liberada.compareAndSet(false, true)) {
+					liberar(sinal, inicio, latenciaAlvoNanos);
+				}
+			});
+		});
+	}
+
+	public int limiteAtual() {
+		return (int) Double.longBitsToDouble(limite.get());
+	}
+
+	private <T> Mono<T> proteger(Mono<T> mono, long alvoNanos) {
+		if (!habilitado) {
+			return mono;
+		}
+		return Mono.defer(() -> {
+			if (!adquirir()) {
+				return Mono.error(rejeitar());
+			}
+			long inicio = System.nanoTime();
+			return mono.doFinally(sinal -> liberar(sinal, inicio, alvoNanos));
+		});
+	}
+
+	private boolean adquirir() {
+		int limiteAtual = limiteAtual();
+		while (true) {
+			int atual = emAndamento.get();
+			if (atual >= limiteAtual) {
+				return false;
+			}
+			if (emAndamento.compareAndSet(atual, atual + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private SobrecargaException rejeitar() {
+		rejeicoes.increment();
+		return new SobrecargaException(limiteAtual());
+	}
+
+	private void liberar(SignalType sinal, long inicio, long alvoNanos) {
+		emAndamento.decrementAndGet();
+		// Cancelamento diz respeito ao cliente da API, não ao banco. Erros contam só pela duração: um timeout é lento, um cursor inválido 
+		// não diz nada sobre a carga do banco
+		if (sinal == SignalType.CANCEL) {
+			return;
+		}
+		long agora = System.nanoTime();
+		if (agora - inicio > alvoNanos) {
+			reduzir(inicio, agora);
+		} else {
+			aumentar();
+		}
+	}
+
+	private void reduzir(long inicio, long agora) {
+		// Só quem começou depois da última redução pode reduzir, e só o primeiro deles: uma rajada de operações lentas que estavam 
+		// juntas em andamento vale uma redução, não uma por operação
+		long reducao = ultimaReducao.get();
+		if (inicio - reducao < 0 || !ultimaReducao.compareAndSet(reducao, agora)) {
+			return;
+		}
+		while (true) {
+			long bits = limite.get();
+			double atual = Double.longBitsToDouble(bits);
+			double novo = Math.max(minimo, atual * fatorReducao);
+			if (novo == atual || limite.compareAndSet(bits, Double.doubleToLongBits(novo))) {
+				return;
+			}
+		}
+	}
+
+	private void aumentar() {
+		while (true) {
+			long bits = limite.get();
+			double atual = Double.longBitsToDouble(bits);
+			double novo = Math.min(maximo, atual + 1 / atual);
+			if (novo == atual || limite.compareAndSet(bits, Double.doubleToLongBits(novo))) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.daniel.limites;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Limite de requisições por cliente (endereço remoto) e por rota, com balde de tokens. Requisições acima do limite recebem "Muitas 
+ * Requisições" (código 429) com `Retry-After` na hora, sem chegar ao controller nem ao MongoDB.
+ * 
+ * Os baldes ficam em um cache Caffeine por rota (tabela particionada, leituras sem lock) e cada balde é um único `AtomicLong`. Atrás de 
+ * um proxy, `server.forward-headers-strategy=framework` faz o endereço remoto refletir o `X-Forwarded-For`.
+ */
+@Component
+public class LimiteTaxaWebFilter implements WebFilter, Ordered {
+
+	@Autowired
+	private LimitesTaxaProperties propriedades;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private List<RotaLimitada> rotas;
+
+	@PostConstruct
+	public void iniciar() {
+		rotas = new ArrayList<>(propriedades.getRotas().size());
+		for (LimitesTaxaProperties.Rota rota : propriedades.getRotas()) {
+			rotas.add(new RotaLimitada(rota));
+		}
+	}
+
+	// Logo depois do MetricsWebFilter, para que as rejeições também apareçam em http.server.requests com status 429
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 10;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (!propriedades.isHabilitado()) {
+			return chain.filter(exchange);
+		}
+
+		RotaLimitada rota = rotaDe(exchange.getRequest().getPath().pathWithinApplication());
+		if (rota == null) {
+			return chain.filter(exchange);
+		}
+
+		long espera = rota.consumir(ClienteRemoto.de(exchange));
+		if (espera == 0) {
+			return chain.filter(exchange);
+		}
+
+		rota.rejeicoes.increment();
+		ServerHttpResponse response = exchange.getResponse();
+		response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+		response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(espera + 999_999_999))));
+		return response.setComplete();
+	}
+
+	private RotaLimitada rotaDe(PathContainer caminho) {
+		for (RotaLimitada rota : rotas) {
+			if (rota.padrao.matches(caminho)) {
+				return rota;
+			}
+		}
+		return null;
+	}
+
+	private final class RotaLimitada {
+
+		private final PathPattern padrao;
+
+		private final long intervalo;
+
+		private final long limite;
+
+		private final Cache<String, BaldeTokens> baldes;
+
+		private final Counter rejeicoes;
+
+		RotaLimitada(LimitesTaxaProperties.Rota rota) {
+			this.padrao = PathPatternParser.defaultInstance.parse(rota.getPadrao());
+			this.intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / rota.getRequisicoesPorSegundo());
+			this.limite = intervalo * Math.max(rota.getRajada(), 1);
+			// Um balde parado por mais que `limite` já está cheio de novo; descartá-lo equivale a mantê-lo
+			this.baldes = Caffeine.newBuilder()
+					.maximumSize(propriedades.getClientesMaximo())
+					.expireAfterAccess(Duration.ofNanos(limite))
+					.build();
+			this.rejeicoes = Counter.builder("clientes.limites.rejeicoes")
+					.tag("tipo", "taxa").tag("rota", rota.getNome())
+					.register(meterRegistry);
+		}
+
+		long consumir(String cliente) {
+			return baldes.get(cliente, c -> new BaldeTokens()).consumir(System.nanoTime(), intervalo, limite);
+		}
+	}
+}
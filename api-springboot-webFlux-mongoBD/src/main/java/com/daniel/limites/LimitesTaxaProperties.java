@@ -0,0 +1,93 @@
+package com.daniel.limites;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuração de `config.limites.taxa`. As rotas são uma lista (e não um mapa) porque a ordem importa: vale a primeira cujo padrão casa 
+ * com o caminho da requisição, então as rotas mais restritas vêm antes da rota geral.
+ */
+@Component
+@ConfigurationProperties(prefix = "config.limites.taxa")
+public class LimitesTaxaProperties {
+
+	private boolean habilitado = true;
+
+	// Clientes (endereços) acompanhados por rota; os que ficam parados por mais tempo que a recarga do balde são descartados antes
+	private long clientesMaximo = 100_000;
+
+	private List<Rota> rotas = new ArrayList<>();
+
+	public boolean isHabilitado() {
+		return habilitado;
+	}
+
+	public void setHabilitado(boolean habilitado) {
+		this.habilitado = habilitado;
+	}
+
+	public long getClientesMaximo() {
+		return clientesMaximo;
+	}
+
+	public void setClientesMaximo(long clientesMaximo) {
+		this.clientesMaximo = clientesMaximo;
+	}
+
+	public List<Rota> getRotas() {
+		return rotas;
+	}
+
+	public void setRotas(List<Rota> rotas) {
+		this.rotas = rotas;
+	}
+
+	public static class Rota {
+
+		// Usado na tag `rota` das métricas de rejeição
+		private String nome;
+
+		// Padrão de caminho do WebFlux, ex.: /api/clientes/upload/{id} ou /api/clientes/**
+		private String padrao;
+
+		private double requisicoesPorSegundo;
+
+		// Requisições aceitas de uma vez quando o balde está cheio
+		private int rajada = 1;
+
+		public String getNome() {
+			return nome;
+		}
+
+		public void setNome(String nome) {
+			this.nome = nome;
+		}
+
+		public String getPadrao() {
+			return padrao;
+		}
+
+		public void setPadrao(String padrao) {
+			this.padrao = padrao;
+		}
+
+		public double getRequisicoesPorSegundo() {
+			return requisicoesPorSegundo;
+		}
+
+		public void setRequisicoesPorSegundo(double requisicoesPorSegundo) {
+			this.requisicoesPorSegundo = requisicoesPorSegundo;
+		}
+
+		public int getRajada() {
+			return rajada;
+		}
+
+		public void setRajada(int rajada) {
+			this.rajada = rajada;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.daniel.limites;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Rejeição rápida por excesso de operações simultâneas no banco: "Serviço Indisponível" (código 503). Sem stack trace, que custaria mais 
+// do que a própria rejeição e não diz nada além da mensagem
+public class SobrecargaException extends ResponseStatusException {
+
+	private static final long serialVersionUID = 1L;
+
+	public SobrecargaException(int limite) {
+		super(HttpStatus.SERVICE_UNAVAILABLE, "Limite de " + limite + " operações simultâneas no banco atingido");
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
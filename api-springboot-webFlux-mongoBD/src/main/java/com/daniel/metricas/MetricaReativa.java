@@ -0,0 +1,52 @@
+package com.daniel.metricas;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Cronometra um {@link Mono} ou {@link Flux} da assinatura até o sinal final, separando sucesso, erro e cancelamento pela tag 
+ * `resultado`. Os {@link Timer}s são criados uma única vez no construtor: no caminho quente sobra apenas a leitura do relógio e um 
+ * `doFinally`, sem busca de medidor no registro a cada chamada.
+ */
+public final class MetricaReativa {
+
+	    private final Clock clock;
+
+	    private final Timer sucesso;
+
+	    private final Timer erro;
+
+	    private final Timer cancelado;
+
+	    public MetricaReativa(MeterRegistry registry, String nome, String... tags) {
+	      this.clock = registry.config().clock();
+	      this.sucesso = Timer.builder(nome).tags(tags).tag("resultado", "sucesso").register(registry);
+	      this.erro = Timer.builder(nome).tags(tags).tag("resultado", "erro").register(registry);
+	      this.cancelado = Timer.builder(nome).tags(tags).tag("resultado", "cancelado").register(registry);
+	    }
+
+	    public <T> Mono<T> medir(Mono<T> mono) {
+	      return Mono.defer(() -> {
+	        long inicio = clock.monotonicTime();
+	        return mono.doFinally(sinal -> registrar(sinal, inicio));
+	      });
+	    }
+
+	    public <T> Flux<T> medir(Flux<T> flux) {
+	      return Flux.defer(() -> {
+	        long inicio = clock.monotonicTime();
+	        return flux.doFinally(sinal -> registrar(sinal, inicio));
+	      });
+	    }
+
+	    private void registrar(SignalType sinal, long inicio) {
+	      Timer timer = sinal == SignalType.ON_ERROR ? erro : sinal == SignalType.CANCEL ? cancelado : sucesso;
+	      timer.record(clock.monotonicTime() - inicio, TimeUnit.NANOSECONDS);
+	    }
+}
@@ -0,0 +1,18 @@
+package com.daniel.metricas;
+
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Métricas do servidor Reactor Netty (conexões, bytes trafegados, tarefas pendentes nos event loops). As métricas por endpoint já vêm 
+ * do `http.server.requests` do Spring, então a URI é reduzida a um valor fixo para não criar uma série por id de cliente.
+ */
+@Configuration
+public class MetricasConfig {
+
+	    @Bean
+	    public NettyServerCustomizer nettyMetricas() {
+	      return httpServer -> httpServer.metrics(true, uri -> "/");
+	    }
+}
@@ -0,0 +1,129 @@
+package com.daniel.recursos;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Map;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.daniel.documentos.Cliente;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Aquecimento na subida: abre as conexões mínimas do pool do MongoDB, exercita a serialização JSON e BSON de {@link Cliente} e faz 
+ * algumas rodadas de requisições de leitura ao próprio servidor. Roda como `ApplicationRunner`, ou seja, com o Netty já aceitando 
+ * conexões mas antes de o Spring Boot marcar a aplicação como pronta (`/actuator/health/readiness`); as primeiras requisições depois de 
+ * um deploy não pagam o custo de conexões, classes e JIT frios.
+ * 
+ * Falhas e o estouro de `config.recursos.aquecimento.tempo-maximo` só geram um aviso no log: a aplicação sobe do mesmo jeito.
+ */
+@Component
+public class Aquecimento implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(Aquecimento.class);
+
+	// Nenhum cliente tem este id: a rota de detalhes percorre cache, MongoDB e a resposta 404
+	private static final String ID_INEXISTENTE = "000000000000000000000000";
+
+	@Autowired
+	private RecursosProperties recursos;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private WebClient.Builder webClientBuilder;
+
+	@Autowired
+	private ApplicationContext contexto;
+
+	@Override
+	public void run(ApplicationArguments args) {
+		RecursosProperties.Aquecimento aquecimento = recursos.getAquecimento();
+		if (!aquecimento.isHabilitado()) {
+			return;
+		}
+
+		long inicio = System.nanoTime();
+		try {
+			Mono.when(abrirConexoes(), Mono.fromRunnable(() -> serializar(aquecimento.getIteracoes())).subscribeOn(Schedulers.boundedElastic()))
+					.then(exercitarRotas(aquecimento.getRodadas()))
+					.timeout(aquecimento.getTempoMaximo())
+					.block();
+			log.info("Aquecimento concluído em {} ms", (System.nanoTime() - inicio) / 1_000_000);
+		} catch (RuntimeException e) {
+			log.warn("Aquecimento interrompido após {} ms; a aplicação segue sem ele", (System.nanoTime() - inicio) / 1_000_000, e);
+		}
+	}
+
+	// Um ping simultâneo por conexão do pool mínimo obriga o driver a abri-las agora, e não na primeira requisição
+	private Mono<Void> abrirConexoes() {
+		Integer poolMinimo = recursos.getMongo().getPoolMinimo();
+		int conexoes = poolMinimo == null ? 1 : Math.max(poolMinimo, 1);
+		return Flux.range(0, conexoes).flatMap(i -> mongoTemplate.executeCommand("{ ping: 1 }"), conexoes).then();
+	}
+
+	private void serializar(int iteracoes) {
+		Cliente cliente = exemplo();
+		try {
+			for (int i = 0; i < iteracoes; i++) {
+				objectMapper.readValue(objectMapper.writeValueAsBytes(cliente), Cliente.class);
+				Document documento = new Document();
+				mongoTemplate.getConverter().write(cliente, documento);
+				mongoTemplate.getConverter().read(Cliente.class, documento);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Só rotas de leitura e baratas; sem servidor (testes com ambiente mock) não há o que exercitar
+	private Mono<Void> exercitarRotas(int rodadas) {
+		if (!(contexto instanceof WebServerApplicationContext) || ((WebServerApplicationContext) contexto).getWebServer() == null) {
+			return Mono.empty();
+		}
+		WebClient webClient = webClientBuilder.baseUrl("http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort())
+				.build();
+		return Flux.range(0, rodadas).concatMap(i -> Mono.when(
+				requisitar(webClient, "/api/clientes/pagina?tamanho=1"),
+				requisitar(webClient, "/api/clientes/" + ID_INEXISTENTE),
+				requisitar(webClient, "/api/clientes/busca/idade?min=0&max=0&tamanho=1"))).then();
+	}
+
+	private static Mono<Void> requisitar(WebClient webClient, String caminho) {
+		return webClient.get().uri(caminho).accept(MediaType.APPLICATION_JSON).exchangeToMono(resposta -> resposta.releaseBody());
+	}
+
+	private static Cliente exemplo() {
+		Cliente cliente = new Cliente();
+		cliente.setId(ID_INEXISTENTE);
+		cliente.setNome("Aquecimento");
+		cliente.setSobrenome("Aquecimento");
+		cliente.setIdade(30);
+		cliente.setSalario(1000.0);
+		cliente.setFoto("foto.png");
+		cliente.setMiniaturas(Map.of("64", "foto-64.png"));
+		cliente.setVersao(0L);
+		cliente.setAtualizadoEm(Instant.now());
+		return cliente;
+	}
+}
@@ -0,0 +1,133 @@
+package com.daniel.recursos;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Aplica {@link RecursosProperties} ao `MongoClient` criado pelo Spring Boot (depois das opções da URI, que continuam valendo para o que
+ * não for configurado aqui) e aos recursos do Reactor Netty usados pelo servidor HTTP e pelo `WebClient`.
+ */
+@Configuration
+public class RecursosConfig {
+
+	@Bean
+	public MongoClientSettingsBuilderCustomizer mongoRecursos(RecursosProperties recursos) {
+		RecursosProperties.Mongo mongo = recursos.getMongo();
+		List<MongoCompressor> compressores = mongo.getCompressores().stream().map(RecursosConfig::compressor).collect(Collectors.toList());
+		WriteConcern writeConcern = StringUtils.hasText(mongo.getWriteConcern()) ? writeConcern(mongo.getWriteConcern()) : null;
+
+		return settings -> {
+			settings.applyToConnectionPoolSettings(pool -> {
+				if (mongo.getPoolMinimo() != null) {
+					pool.minSize(mongo.getPoolMinimo());
+				}
+				if (mongo.getPoolMaximo() != null) {
+					pool.maxSize(mongo.getPoolMaximo());
+				}
+				if (mongo.getEsperaMaxima() != null) {
+					pool.maxWaitTime(mongo.getEsperaMaxima().toMillis(), TimeUnit.MILLISECONDS);
+				}
+				if (mongo.getOciosidadeMaxima() != null) {
+					pool.maxConnectionIdleTime(mongo.getOciosidadeMaxima().toMillis(), TimeUnit.MILLISECONDS);
+				}
+				if (mongo.getVidaMaxima() != null) {
+					pool.maxConnectionLifeTime(mongo.getVidaMaxima().toMillis(), TimeUnit.MILLISECONDS);
+				}
+			});
+			if (mongo.getSelecaoServidor() != null) {
+				settings.applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(mongo.getSelecaoServidor().toMillis(), TimeUnit.MILLISECONDS));
+			}
+			if (!compressores.isEmpty()) {
+				settings.compressorList(compressores);
+			}
+			if (writeConcern != null) {
+				settings.writeConcern(writeConcern);
+			}
+		};
+	}
+
+	// Declarar um template desliga o do Spring Boot; este é o mesmo, e continua sendo o injetado por tipo e o usado pelos repositórios
+	@Bean
+	@Primary
+	public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory fabrica, MongoConverter converter) {
+		return new ReactiveMongoTemplate(fabrica, converter);
+	}
+
+	// Mesmo pool de conexões, com a read preference de config.recursos.mongo.leitura-listagem
+	@Bean
+	public ReactiveMongoTemplate reactiveMongoTemplateListagem(ReactiveMongoDatabaseFactory fabrica, MongoConverter converter, 
+			RecursosProperties recursos) {
+		ReactiveMongoTemplate template = new ReactiveMongoTemplate(fabrica, converter);
+		template.setReadPreference(ReadPreference.valueOf(recursos.getMongo().getLeituraListagem()));
+		return template;
+	}
+
+	// Substitui o do Spring Boot; com threads definidas, servidor e WebClient passam a usar event loops próprios em vez dos globais.
+	// Pelo supplier (e não setLoopResources) a fábrica cria os event loops e passa a ser dona deles, liberando-os no shutdown
+	@Bean
+	public ReactorResourceFactory reactorResourceFactory(RecursosProperties recursos) {
+		ReactorResourceFactory fabrica = new ReactorResourceFactory();
+		int threads = recursos.getNetty().getThreads();
+		if (threads > 0) {
+			fabrica.setUseGlobalResources(false);
+			fabrica.setLoopResourcesSupplier(() -> LoopResources.create("clientes-http", threads, true));
+		}
+		return fabrica;
+	}
+
+	@Bean
+	public NettyServerCustomizer nettyRecursos(RecursosProperties recursos) {
+		int backlog = recursos.getNetty().getBacklog();
+		return servidor -> backlog > 0 ? servidor.option(ChannelOption.SO_BACKLOG, backlog) : servidor;
+	}
+
+	private static MongoCompressor compressor(String nome) {
+		switch (nome.trim().toLowerCase()) {
+		case "zstd":
+			exigirBiblioteca(nome, "com.github.luben.zstd.Zstd", "com.github.luben:zstd-jni");
+			return MongoCompressor.createZstdCompressor();
+		case "snappy":
+			exigirBiblioteca(nome, "org.xerial.snappy.Snappy", "org.xerial.snappy:snappy-java");
+			return MongoCompressor.createSnappyCompressor();
+		case "zlib":
+			return MongoCompressor.createZlibCompressor();
+		default:
+			throw new IllegalArgumentException("Compressor desconhecido em config.recursos.mongo.compressores: " + nome);
+		}
+	}
+
+	// Sem a biblioteca o driver só falha ao negociar a compressão, e o pool de conexões fica inutilizado; melhor não subir
+	private static void exigirBiblioteca(String compressor, String classe, String dependencia) {
+		if (!ClassUtils.isPresent(classe, RecursosConfig.class.getClassLoader())) {
+			throw new IllegalStateException("O compressor " + compressor + " precisa da dependência " + dependencia);
+		}
+	}
+
+	private static WriteConcern writeConcern(String nome) {
+		WriteConcern writeConcern = WriteConcern.valueOf(nome.trim());
+		if (writeConcern == null) {
+			throw new IllegalArgumentException("Write concern desconhecido em config.recursos.mongo.write-concern: " + nome);
+		}
+		return writeConcern;
+	}
+}
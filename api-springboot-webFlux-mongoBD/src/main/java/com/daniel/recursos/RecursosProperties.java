@@ -0,0 +1,203 @@
+package com.daniel.recursos;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuração de `config.recursos`: pool e opções do driver do MongoDB, event loops do Netty e o aquecimento na subida. Valores não 
+ * informados (null ou zero) mantêm o que vier da `spring.data.mongodb.uri` ou o padrão do driver/Reactor Netty, então cada ambiente só 
+ * precisa declarar o que quer mudar.
+ */
+@Component
+@ConfigurationProperties(prefix = "config.recursos")
+public class RecursosProperties {
+
+	private final Mongo mongo = new Mongo();
+
+	private final Netty netty = new Netty();
+
+	private final Aquecimento aquecimento = new Aquecimento();
+
+	public Mongo getMongo() {
+		return mongo;
+	}
+
+	public Netty getNetty() {
+		return netty;
+	}
+
+	public Aquecimento getAquecimento() {
+		return aquecimento;
+	}
+
+	public static class Mongo {
+
+		private Integer poolMinimo;
+
+		private Integer poolMaximo;
+
+		// Tempo máximo esperando uma conexão livre do pool; o padrão do driver (2 minutos) segura a requisição por tempo demais
+		private Duration esperaMaxima;
+
+		private Duration ociosidadeMaxima;
+
+		private Duration vidaMaxima;
+
+		private Duration selecaoServidor;
+
+		// Em ordem de preferência (zstd, snappy, zlib); o servidor escolhe o primeiro que também suporta
+		private List<String> compressores = new ArrayList<>();
+
+		// Ex.: majority, w1, acknowledged
+		private String writeConcern;
+
+		// Read preference das listagens e buscas (ex.: secondaryPreferred); leituras por id e escritas continuam no primário
+		private String leituraListagem = "primary";
+
+		public Integer getPoolMinimo() {
+			return poolMinimo;
+		}
+
+		public void setPoolMinimo(Integer poolMinimo) {
+			this.poolMinimo = poolMinimo;
+		}
+
+		public Integer getPoolMaximo() {
+			return poolMaximo;
+		}
+
+		public void setPoolMaximo(Integer poolMaximo) {
+			this.poolMaximo = poolMaximo;
+		}
+
+		public Duration getEsperaMaxima() {
+			return esperaMaxima;
+		}
+
+		public void setEsperaMaxima(Duration esperaMaxima) {
+			this.esperaMaxima = esperaMaxima;
+		}
+
+		public Duration getOciosidadeMaxima() {
+			return ociosidadeMaxima;
+		}
+
+		public void setOciosidadeMaxima(Duration ociosidadeMaxima) {
+			this.ociosidadeMaxima = ociosidadeMaxima;
+		}
+
+		public Duration getVidaMaxima() {
+			return vidaMaxima;
+		}
+
+		public void setVidaMaxima(Duration vidaMaxima) {
+			this.vidaMaxima = vidaMaxima;
+		}
+
+		public Duration getSelecaoServidor() {
+			return selecaoServidor;
+		}
+
+		public void setSelecaoServidor(Duration selecaoServidor) {
+			this.selecaoServidor = selecaoServidor;
+		}
+
+		public List<String> getCompressores() {
+			return compressores;
+		}
+
+		public void setCompressores(List<String> compressores) {
+			this.compressores = compressores;
+		}
+
+		public String getWriteConcern() {
+			return writeConcern;
+		}
+
+		public void setWriteConcern(String writeConcern) {
+			this.writeConcern = writeConcern;
+		}
+
+		public String getLeituraListagem() {
+			return leituraListagem;
+		}
+
+		public void setLeituraListagem(String leituraListagem) {
+			this.leituraListagem = leituraListagem;
+		}
+	}
+
+	public static class Netty {
+
+		// Threads de event loop do servidor HTTP e do WebClient; 0 mantém o padrão do Reactor Netty (núcleos, no mínimo 4)
+		private int threads;
+
+		// Fila de conexões aceitas pelo sistema operacional e ainda não atendidas (SO_BACKLOG); 0 mantém o padrão
+		private int backlog;
+
+		public int getThreads() {
+			return threads;
+		}
+
+		public void setThreads(int threads) {
+			this.threads = threads;
+		}
+
+		public int getBacklog() {
+			return backlog;
+		}
+
+		public void setBacklog(int backlog) {
+			this.backlog = backlog;
+		}
+	}
+
+	public static class Aquecimento {
+
+		private boolean habilitado = true;
+
+		// Serializações de um Cliente (JSON e BSON) e rodadas de requisições às rotas de leitura
+		private int iteracoes = 200;
+
+		private int rodadas = 20;
+
+		// A aplicação fica pronta mesmo se o aquecimento não terminar neste tempo (MongoDB fora do ar, por exemplo)
+		private Duration tempoMaximo = Duration.ofSeconds(10);
+
+		public boolean isHabilitado() {
+			return habilitado;
+		}
+
+		public void setHabilitado(boolean habilitado) {
+			this.habilitado = habilitado;
+		}
+
+		public int getIteracoes() {
+			return iteracoes;
+		}
+
+		public void setIteracoes(int iteracoes) {
+			this.iteracoes = iteracoes;
+		}
+
+		public int getRodadas() {
+			return rodadas;
+		}
+
+		public void setRodadas(int rodadas) {
+			this.rodadas = rodadas;
+		}
+
+		public Duration getTempoMaximo() {
+			return tempoMaximo;
+		}
+
+		public void setTempoMaximo(Duration tempoMaximo) {
+			this.tempoMaximo = tempoMaximo;
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.daniel.service;
+
+import com.daniel.dto.EventoCliente;
+
+import reactor.core.publisher.Flux;
+
+public interface AlteracoesClienteService {
+
+	// Sem token: alterações a partir de agora. Com token: continua logo depois do evento que o devolveu
+	public Flux<EventoCliente> acompanhar(String token);
+}
@@ -0,0 +1,147 @@
+package com.daniel.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.EventoCliente;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+/**
+ * Acompanhamento das alterações da coleção de clientes via change stream. Todos os consumidores sem token compartilham um único change 
+ * stream no servidor, aberto quando o primeiro se conecta e fechado quando o último sai, e recebem os eventos por um {@link Sinks.Many}. 
+ * Cada consumidor tem o seu próprio buffer limitado: um consumidor lento perde eventos ou é desconectado (conforme 
+ * `config.clientes.alteracoes.politica`) sem atrasar os demais. Consumidores que informam um token ganham um change stream próprio, 
+ * retomado logo depois daquele evento.
+ */
+@Service
+public class AlteracoesClienteServiceImpl implements AlteracoesClienteService {
+
+	    private static final Logger log = LoggerFactory.getLogger(AlteracoesClienteServiceImpl.class);
+
+	    private static final Pattern TOKEN = Pattern.compile("[0-9A-Fa-f]+");
+
+	    @Autowired
+	    private ReactiveMongoTemplate mongoTemplate;
+
+	    @Autowired
+	    private MeterRegistry meterRegistry;
+
+	    @Value("${config.clientes.alteracoes.buffer:256}")
+	    private int tamanhoBuffer;
+
+	    // "desconectar" (padrão): o consumidor que estoura o buffer é desconectado e reconecta com o último token, sem perder eventos.
+	    // "descartar": os eventos mais antigos do buffer são descartados e a conexão continua
+	    @Value("${config.clientes.alteracoes.politica:desconectar}")
+	    private String politica;
+
+	    // directBestEffort: um assinante sem demanda não bloqueia a entrega aos outros
+	    private final Sinks.Many<EventoCliente> sink = Sinks.many().multicast().directBestEffort();
+
+	    private final AtomicInteger assinantes = new AtomicInteger();
+
+	    private Disposable streamCompartilhado;
+
+	    private Counter descartados;
+
+	    private Counter desconectados;
+
+	    @PostConstruct
+	    public void iniciar() {
+	      descartados = Counter.builder("clientes.alteracoes.descartados").register(meterRegistry);
+	      desconectados = Counter.builder("clientes.alteracoes.desconectados").register(meterRegistry);
+	      meterRegistry.gauge("clientes.alteracoes.assinantes", assinantes);
+	    }
+
+	    @PreDestroy
+	    public synchronized void encerrar() {
+	      if (streamCompartilhado != null) {
+	        streamCompartilhado.dispose();
+	      }
+	      sink.tryEmitComplete();
+	    }
+
+	    @Override
+	    public Flux<EventoCliente> acompanhar(String token) {
+	      if (token != null && !TOKEN.matcher(token).matches()) {
+	        return Flux.error(new IllegalArgumentException("Token inválido"));
+	      }
+	      Flux<EventoCliente> eventos = token == null
+	          ? sink.asFlux().doOnSubscribe(s -> entrar()).doFinally(s -> sair())
+	          : abrirStream(new BsonDocument("_data", new BsonString(token)));
+	      return limitar(eventos);
+	    }
+
+	    private synchronized void entrar() {
+	      if (assinantes.incrementAndGet() == 1) {
+	        // Falhas do stream compartilhado (queda do primário, rede) são refeitas com espera crescente a partir do último token visto
+	        streamCompartilhado = abrirStream(null)
+	            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+	                .doBeforeRetry(sinal -> log.warn("Change stream de clientes interrompido, reabrindo", sinal.failure())))
+	            .subscribe(evento -> sink.tryEmitNext(evento));
+	      }
+	    }
+
+	    private synchronized void sair() {
+	      if (assinantes.decrementAndGet() == 0 && streamCompartilhado != null) {
+	        streamCompartilhado.dispose();
+	        streamCompartilhado = null;
+	      }
+	    }
+
+	    private Flux<EventoCliente> abrirStream(BsonValue tokenInicial) {
+	      AtomicReference<BsonValue> ultimoToken = new AtomicReference<>(tokenInicial);
+	      return Flux.defer(() -> {
+	            ChangeStreamOptions.ChangeStreamOptionsBuilder opcoes = ChangeStreamOptions.builder().returnFullDocumentOnUpdate();
+	            if (ultimoToken.get() != null) {
+	              opcoes.resumeAfter(ultimoToken.get());
+	            }
+	            return mongoTemplate.changeStream(mongoTemplate.getCollectionName(Cliente.class), opcoes.build(), Cliente.class);
+	          })
+	          .doOnNext(evento -> ultimoToken.set(evento.getResumeToken()))
+	          .map(this::converter);
+	    }
+
+	    private Flux<EventoCliente> limitar(Flux<EventoCliente> eventos) {
+	      if ("descartar".equals(politica)) {
+	        return eventos.onBackpressureBuffer(tamanhoBuffer, evento -> descartados.increment(), BufferOverflowStrategy.DROP_OLDEST);
+	      }
+	      return eventos.onBackpressureBuffer(tamanhoBuffer, evento -> desconectados.increment());
+	    }
+
+	    private EventoCliente converter(ChangeStreamEvent<Cliente> evento) {
+	      BsonValue token = evento.getResumeToken();
+	      BsonDocument chave = evento.getRaw() == null ? null : evento.getRaw().getDocumentKey();
+	      BsonValue id = chave == null ? null : chave.get("_id");
+	      return new EventoCliente(
+	          token == null ? null : token.asDocument().getString("_data").getValue(),
+	          evento.getOperationType() == null ? null : evento.getOperationType().getValue(),
+	          id == null ? null : id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.toString(),
+	          evento.getBody(),
+	          evento.getTimestamp());
+	    }
+}
@@ -1,6 +1,15 @@
 package com.daniel.service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import com.daniel.documentos.Cliente;
+import com.daniel.dto.ClientePorId;
+import com.daniel.dto.EstatisticasClientes;
+import com.daniel.dto.PaginaClientes;
+import com.daniel.dto.ResultadoLote;
+import com.daniel.dto.TrocaFoto;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -9,9 +18,45 @@ public interface ClienteService {
 
 	public Flux<Cliente> findAll();
 
+    public Mono<PaginaClientes> findPagina(String cursor, int tamanho);
+
     public Mono<Cliente> findById(String id);
 
+    // Um item por id pedido, na ordem pedida, com os inexistentes marcados; as buscas vão ao banco em blocos de `$in`
+    public Flux<ClientePorId> findAllById(List<String> ids);
+
+    // Só a versão do cliente (vazio se não existir), para responder 304 sem carregar o documento
+    public Mono<Long> findVersaoById(String id);
+
+    // Buscas paginadas; com `campos` informado o MongoDB devolve apenas esses campos (e o id)
+    public Flux<Cliente> findByNome(String nome, String sobrenome, int pagina, int tamanho, Set<String> campos);
+
+    public Flux<Cliente> findByIdade(Integer minima, Integer maxima, int pagina, int tamanho, Set<String> campos);
+
+    public Flux<Cliente> findBySalario(Double minimo, Double maximo, int pagina, int tamanho, Set<String> campos);
+
+    // Agregação no MongoDB; idadeMinima e idadeMaxima (inclusivas, opcionais) filtram os clientes considerados
+    public Mono<EstatisticasClientes> calcularEstatisticas(Integer idadeMinima, Integer idadeMaxima);
+
     public Mono<Cliente> save(Cliente cliente);
 
+    public Flux<ResultadoLote> insertAll(Flux<Cliente> clientes);
+
+    public Mono<Cliente> update(String id, Cliente cliente, Long versao);
+
+    public Mono<Cliente> updateMiniaturas(String id, String foto, Map<String, String> miniaturas);
+
+    // Troca a foto (e zera as miniaturas) direto no banco e devolve a foto que a troca substituiu; vazio se o cliente não existir
+    public Mono<TrocaFoto> updateFoto(String id, String foto);
+
     public Mono<Void> delete(Cliente cliente);
+
+    public Mono<Long> deleteById(String id);
+
+    public Mono<Cliente> findAndDeleteById(String id);
+
+    // Remoção em blocos de `$in`, um item por id pedido; o cliente do item traz só o id e a foto, para liberar a referência
+    public Flux<ClientePorId> deleteAllById(List<String> ids);
+
+    public Mono<Boolean> existsById(String id);
 }
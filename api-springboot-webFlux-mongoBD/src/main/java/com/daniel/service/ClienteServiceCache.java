@@ -0,0 +1,209 @@
+package com.daniel.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.ClientePorId;
+import com.daniel.dto.EstatisticasCache;
+import com.daniel.dto.EstatisticasClientes;
+import com.daniel.dto.PaginaClientes;
+import com.daniel.dto.ResultadoLote;
+import com.daniel.dto.TrocaFoto;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorador de {@link ClienteService} que mantém em memória os clientes buscados por id. O cache é limitado por tamanho (W-TinyLFU do 
+ * Caffeine) e por tempo, e buscas simultâneas do mesmo id compartilham uma única consulta ao MongoDB. Toda escrita invalida a entrada antes 
+ * de começar e de novo ao terminar.
+ *
+ * A invalidação só alcança o cache desta instância: com várias instâncias, uma leitura por id pode trazer o cliente como estava até
+ * `config.clientes.cache.ttl-segundos` antes. Por isso a versão usada no `If-None-Match` não passa por aqui.
+ */
+@Service
+@Primary
+public class ClienteServiceCache implements ClienteService {
+
+	    @Autowired
+	    @Qualifier("clienteServiceEscritaAdiada")
+	    private ClienteService clienteService;
+
+	    @Value("${config.clientes.cache.tamanho-maximo:10000}")
+	    private long tamanhoMaximo;
+
+	    @Value("${config.clientes.cache.ttl-segundos:60}")
+	    private long ttlSegundos;
+
+	    @Value("${config.clientes.estatisticas.ttl-segundos:30}")
+	    private long ttlEstatisticasSegundos;
+
+	    @Autowired
+	    private MeterRegistry meterRegistry;
+
+	    private AsyncCache<String, Cliente> cache;
+
+	    // Resultado recente das agregações por faixa de idade: painéis consultando ao mesmo tempo disparam uma única agregação
+	    private AsyncCache<String, EstatisticasClientes> cacheEstatisticas;
+
+	    @PostConstruct
+	    public void iniciar() {
+	      cache = Caffeine.newBuilder()
+	          .maximumSize(tamanhoMaximo)
+	          .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+	          .recordStats()
+	          .buildAsync();
+	      CaffeineCacheMetrics.monitor(meterRegistry, cache, "clientes");
+
+	      cacheEstatisticas = Caffeine.newBuilder()
+	          .maximumSize(100)
+	          .expireAfterWrite(Duration.ofSeconds(ttlEstatisticasSegundos))
+	          .recordStats()
+	          .buildAsync();
+	      CaffeineCacheMetrics.monitor(meterRegistry, cacheEstatisticas, "clientes.estatisticas");
+	    }
+
+	    @Override
+	    public Flux<Cliente> findAll() {
+	      return clienteService.findAll();
+	    }
+
+	    @Override
+	    public Mono<PaginaClientes> findPagina(String cursor, int tamanho) {
+	      return clienteService.findPagina(cursor, tamanho);
+	    }
+
+	    @Override
+	    public Mono<Cliente> findById(String id) {
+	      // Um cliente inexistente completa o future com null e o Caffeine descarta a entrada; copy() evita que o cancelamento de um
+	      // assinante cancele a consulta compartilhada pelos demais
+	      return Mono.defer(() -> Mono.fromFuture(cache.get(id, (chave, executor) -> clienteService.findById(chave).toFuture()).copy()));
+	    }
+
+	    @Override
+	    public Flux<ClientePorId> findAllById(List<String> ids) {
+	      return clienteService.findAllById(ids);
+	    }
+
+	    @Override
+	    public Mono<Long> findVersaoById(String id) {
+	      // Sempre do banco (uma projeção pelo _id): o cache é desta instância e não vê as escritas feitas pelas outras, então um 304
+	      // respondido por ele esconderia a alteração até o fim do TTL
+	      return clienteService.findVersaoById(id);
+	    }
+
+	    @Override
+	    public Flux<Cliente> findByNome(String nome, String sobrenome, int pagina, int tamanho, Set<String> campos) {
+	      return clienteService.findByNome(nome, sobrenome, pagina, tamanho, campos);
+	    }
+
+	    @Override
+	    public Flux<Cliente> findByIdade(Integer minima, Integer maxima, int pagina, int tamanho, Set<String> campos) {
+	      return clienteService.findByIdade(minima, maxima, pagina, tamanho, campos);
+	    }
+
+	    @Override
+	    public Flux<Cliente> findBySalario(Double minimo, Double maximo, int pagina, int tamanho, Set<String> campos) {
+	      return clienteService.findBySalario(minimo, maximo, pagina, tamanho, campos);
+	    }
+
+	    @Override
+	    public Mono<EstatisticasClientes> calcularEstatisticas(Integer idadeMinima, Integer idadeMaxima) {
+	      // Escritas não invalidam este cache: o resultado pode ficar até config.clientes.estatisticas.ttl-segundos desatualizado
+	      String chave = idadeMinima + ":" + idadeMaxima;
+	      return Mono.defer(() -> Mono.fromFuture(cacheEstatisticas.get(chave, 
+	          (k, executor) -> clienteService.calcularEstatisticas(idadeMinima, idadeMaxima).toFuture()).copy()));
+	    }
+
+	    @Override
+	    public Mono<Cliente> save(Cliente cliente) {
+	      // Cliente novo ainda não tem id: a entrada só existe (e só é invalidada) depois da gravação
+	      return invalidando(cliente.getId(), clienteService.save(cliente).doOnNext(c -> invalidar(c.getId())));
+	    }
+
+	    @Override
+	    public Flux<ResultadoLote> insertAll(Flux<Cliente> clientes) {
+	      return clienteService.insertAll(clientes);
+	    }
+
+	    @Override
+	    public Mono<Cliente> update(String id, Cliente cliente, Long versao) {
+	      return invalidando(id, clienteService.update(id, cliente, versao));
+	    }
+
+	    @Override
+	    public Mono<Cliente> updateMiniaturas(String id, String foto, Map<String, String> miniaturas) {
+	      return invalidando(id, clienteService.updateMiniaturas(id, foto, miniaturas));
+	    }
+
+	    @Override
+	    public Mono<TrocaFoto> updateFoto(String id, String foto) {
+	      return invalidando(id, clienteService.updateFoto(id, foto));
+	    }
+
+	    @Override
+	    public Mono<Void> delete(Cliente cliente) {
+	      return invalidando(cliente.getId(), clienteService.delete(cliente));
+	    }
+
+	    @Override
+	    public Mono<Long> deleteById(String id) {
+	      return invalidando(id, clienteService.deleteById(id));
+	    }
+
+	    @Override
+	    public Mono<Cliente> findAndDeleteById(String id) {
+	      return invalidando(id, clienteService.findAndDeleteById(id));
+	    }
+
+	    @Override
+	    public Flux<ClientePorId> deleteAllById(List<String> ids) {
+	      return Flux.defer(() -> {
+	        ids.forEach(this::invalidar);
+	        return clienteService.deleteAllById(ids);
+	      }).doFinally(sinal -> ids.forEach(this::invalidar));
+	    }
+
+	    @Override
+	    public Mono<Boolean> existsById(String id) {
+	      return clienteService.existsById(id);
+	    }
+
+	    public EstatisticasCache estatisticas() {
+	      CacheStats stats = cache.synchronous().stats();
+	      return new EstatisticasCache(stats.requestCount(), stats.hitCount(), stats.missCount(), stats.hitRate(), 
+	          stats.evictionCount(), cache.synchronous().estimatedSize());
+	    }
+
+	    // Antes: quem buscar durante a escrita vai ao banco em vez de receber a entrada que a escrita está tornando antiga. Depois: descarta
+	    // o que uma busca concorrente tenha carregado antes de a escrita chegar ao banco
+	    private <T> Mono<T> invalidando(String id, Mono<T> escrita) {
+	      return Mono.defer(() -> {
+	        invalidar(id);
+	        return escrita;
+	      }).doFinally(sinal -> invalidar(id));
+	    }
+
+	    private void invalidar(String id) {
+	      if (id != null) {
+	        cache.synchronous().invalidate(id);
+	      }
+	    }
+}
@@ -0,0 +1,507 @@
+package com.daniel.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.AlteracaoCliente;
+import com.daniel.dto.ClientePorId;
+import com.daniel.dto.EstatisticasClientes;
+import com.daniel.dto.PaginaClientes;
+import com.daniel.dto.ResultadoLote;
+import com.daniel.dto.TrocaFoto;
+import com.daniel.limites.SobrecargaException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Decorador de {@link ClienteService} com escrita adiada (write-behind) para alterações sem versão esperada (`PUT` sem `If-Match`),
+ * habilitado por `config.clientes.escrita-adiada.habilitado`. A alteração é aplicada a uma cópia do cliente em memória e respondida na
+ * hora; alterações seguidas do mesmo cliente se combinam (o último valor de cada campo vence, a versão avança uma vez por alteração) e
+ * chegam ao MongoDB em um bulk ordenado quando a listra junta `tamanho-lote` clientes ou a cada `janela-ms`. Cada cliente é gravado com
+ * a versão final e só se ainda estiver na versão de onde as alterações partiram: repetir um lote que falhou não aplica nada duas vezes, e
+ * se outra escrita passou no meio as alterações voltam para a fila sobre o documento atual.
+ *
+ * Os clientes são distribuídos em listras pelo hash do id, cada uma com seu lock e no máximo uma gravação em andamento, o que mantém a
+ * ordem das alterações de um mesmo cliente. Com `pendentes-maximo` clientes aguardando em uma listra, novas alterações esperam a gravação
+ * abrir espaço. `findById`, `findVersaoById` e `existsById` consultam as alterações pendentes antes do banco; as demais escritas de um
+ * cliente gravam antes o que estiver pendente na listra dele. Listagens e buscas só enxergam as alterações depois de gravadas.
+ *
+ * As pendências ficam só na memória desta instância: o encerramento do contexto grava tudo, mas uma queda do processo perde o que ainda
+ * não foi gravado, e outras instâncias não enxergam as alterações antes da gravação.
+ */
+@Service
+public class ClienteServiceEscritaAdiada implements ClienteService {
+
+	    private static final Logger log = LoggerFactory.getLogger(ClienteServiceEscritaAdiada.class);
+
+	    // A implementação direta, e não a interface: a gravação em lote (updateAll) não faz parte de ClienteService
+	    @Autowired
+	    private ClienteServiceImpl clienteService;
+
+	    @Value("${config.clientes.escrita-adiada.habilitado:false}")
+	    private boolean habilitado;
+
+	    @Value("${config.clientes.escrita-adiada.listras:16}")
+	    private int quantidadeListras;
+
+	    @Value("${config.clientes.escrita-adiada.tamanho-lote:500}")
+	    private int tamanhoLote;
+
+	    @Value("${config.clientes.escrita-adiada.pendentes-maximo:2000}")
+	    private int pendentesMaximo;
+
+	    @Value("${config.clientes.escrita-adiada.janela-ms:200}")
+	    private long janelaMs;
+
+	    @Value("${config.clientes.escrita-adiada.encerramento-segundos:30}")
+	    private long encerramentoSegundos;
+
+	    @Autowired
+	    private MeterRegistry meterRegistry;
+
+	    private Listra[] listras;
+
+	    private Disposable gravacaoPeriodica;
+
+	    private Counter combinadas;
+
+	    @PostConstruct
+	    public void iniciar() {
+	      if (!habilitado) {
+	        return;
+	      }
+	      listras = new Listra[quantidadeListras];
+	      for (int i = 0; i < listras.length; i++) {
+	        listras[i] = new Listra();
+	      }
+
+	      Gauge.builder("clientes.escrita-adiada.pendentes", this, ClienteServiceEscritaAdiada::pendentes)
+	          .description("Clientes com alterações ainda não gravadas no MongoDB")
+	          .register(meterRegistry);
+	      combinadas = Counter.builder("clientes.escrita-adiada.combinadas")
+	          .description("Alterações combinadas a outra pendente do mesmo cliente, sem escrita própria no MongoDB")
+	          .register(meterRegistry);
+
+	      // Falhas já foram registradas e as alterações voltaram para a fila; a próxima janela tenta de novo
+	      gravacaoPeriodica = Flux.interval(Duration.ofMillis(janelaMs))
+	          .onBackpressureDrop()
+	          .concatMap(tick -> gravarTodas().onErrorResume(e -> Mono.empty()), 1)
+	          .subscribe();
+	    }
+
+	    @PreDestroy
+	    public void encerrar() {
+	      if (!habilitado) {
+	        return;
+	      }
+	      gravacaoPeriodica.dispose();
+	      try {
+	        // Alterações que esbarraram em outra escrita voltam para a fila durante a própria gravação
+	        gravarTodas().repeat(() -> pendentes() > 0).then().block(Duration.ofSeconds(encerramentoSegundos));
+	      } catch (RuntimeException e) {
+	        log.error("Encerrando com {} clientes com alterações não gravadas", pendentes(), e);
+	      }
+	    }
+
+	    @Override
+	    public Flux<Cliente> findAll() {
+	      return clienteService.findAll();
+	    }
+
+	    @Override
+	    public Mono<PaginaClientes> findPagina(String cursor, int tamanho) {
+	      return clienteService.findPagina(cursor, tamanho);
+	    }
+
+	    @Override
+	    public Mono<Cliente> findById(String id) {
+	      if (!habilitado) {
+	        return clienteService.findById(id);
+	      }
+	      return Mono.defer(() -> {
+	        Cliente pendente = pendente(id);
+	        return pendente != null ? Mono.just(pendente) : clienteService.findById(id);
+	      });
+	    }
+
+	    @Override
+	    public Flux<ClientePorId> findAllById(List<String> ids) {
+	      if (!habilitado) {
+	        return clienteService.findAllById(ids);
+	      }
+	      return clienteService.findAllById(ids).map(item -> {
+	        Cliente pendente = pendente(item.getId());
+	        return pendente != null ? new ClientePorId(item.getId(), true, pendente) : item;
+	      });
+	    }
+
+	    @Override
+	    public Mono<Long> findVersaoById(String id) {
+	      if (!habilitado) {
+	        return clienteService.findVersaoById(id);
+	      }
+	      return Mono.defer(() -> {
+	        Cliente pendente = pendente(id);
+	        return pendente != null ? Mono.justOrEmpty(pendente.getVersao()) : clienteService.findVersaoById(id);
+	      });
+	    }
+
+	    @Override
+	    public Flux<Cliente> findByNome(String nome, String sobrenome, int pagina, int tamanho, Set<String> campos) {
+	      return clienteService.findByNome(nome, sobrenome, pagina, tamanho, campos);
+	    }
+
+	    @Override
+	    public Flux<Cliente> findByIdade(Integer minima, Integer maxima, int pagina, int tamanho, Set<String> campos) {
+	      return clienteService.findByIdade(minima, maxima, pagina, tamanho, campos);
+	    }
+
+	    @Override
+	    public Flux<Cliente> findBySalario(Double minimo, Double maximo, int pagina, int tamanho, Set<String> campos) {
+	      return clienteService.findBySalario(minimo, maximo, pagina, tamanho, campos);
+	    }
+
+	    @Override
+	    public Mono<EstatisticasClientes> calcularEstatisticas(Integer idadeMinima, Integer idadeMaxima) {
+	      return clienteService.calcularEstatisticas(idadeMinima, idadeMaxima);
+	    }
+
+	    @Override
+	    public Mono<Cliente> save(Cliente cliente) {
+	      return cliente.getId() == null ? clienteService.save(cliente) : direta(cliente.getId(), clienteService.save(cliente));
+	    }
+
+	    @Override
+	    public Flux<ResultadoLote> insertAll(Flux<Cliente> clientes) {
+	      return clienteService.insertAll(clientes);
+	    }
+
+	    @Override
+	    public Mono<Cliente> update(String id, Cliente cliente, Long versao) {
+	      // Com versão esperada o MongoDB precisa conferir a versão gravada: o que estiver pendente vai antes
+	      if (!habilitado || versao != null) {
+	        return direta(id, clienteService.update(id, cliente, versao));
+	      }
+	      return Mono.defer(() -> adiar(id, cliente, null, 0));
+	    }
+
+	    @Override
+	    public Mono<Cliente> updateMiniaturas(String id, String foto, Map<String, String> miniaturas) {
+	      return direta(id, clienteService.updateMiniaturas(id, foto, miniaturas));
+	    }
+
+	    // A foto substituída tem de ser a que está no banco
+	    @Override
+	    public Mono<TrocaFoto> updateFoto(String id, String foto) {
+	      return direta(id, clienteService.updateFoto(id, foto));
+	    }
+
+	    @Override
+	    public Mono<Void> delete(Cliente cliente) {
+	      return direta(cliente.getId(), clienteService.delete(cliente));
+	    }
+
+	    @Override
+	    public Mono<Long> deleteById(String id) {
+	      return direta(id, clienteService.deleteById(id));
+	    }
+
+	    @Override
+	    public Mono<Cliente> findAndDeleteById(String id) {
+	      return direta(id, clienteService.findAndDeleteById(id));
+	    }
+
+	    @Override
+	    public Flux<ClientePorId> deleteAllById(List<String> ids) {
+	      if (!habilitado) {
+	        return clienteService.deleteAllById(ids);
+	      }
+	      List<Listra> afetadas = ids.stream().map(this::listra).distinct().collect(Collectors.toList());
+	      return Flux.fromIterable(afetadas).flatMap(this::gravar).thenMany(clienteService.deleteAllById(ids))
+	          .doFinally(sinal -> afetadas.forEach(this::avancar));
+	    }
+
+	    @Override
+	    public Mono<Boolean> existsById(String id) {
+	      if (!habilitado) {
+	        return clienteService.existsById(id);
+	      }
+	      return Mono.defer(() -> pendente(id) != null ? Mono.just(true) : clienteService.existsById(id));
+	    }
+
+	    // A primeira alteração de um cliente parte do que está sendo gravado ou, sem isso, do documento lido do banco; as seguintes,
+	    // da cópia pendente. O documento lido só vale se nenhuma escrita da listra terminou enquanto ele era lido: senão ele pode ser
+	    // anterior a ela, e a leitura se repete
+	    private Mono<Cliente> adiar(String id, Cliente alteracao, Cliente lido, long geracaoLida) {
+	      Listra listra = listra(id);
+	      Cliente resultado;
+	      boolean loteCompleto;
+	      synchronized (listra) {
+	        Pendente pendente = listra.pendentes.get(id);
+	        if (pendente == null) {
+	          if (listra.pendentes.size() >= pendentesMaximo) {
+	            // Listra cheia: quem altera espera a gravação abrir espaço
+	            return gravar(listra).then(Mono.defer(() -> adiar(id, alteracao, lido, geracaoLida)));
+	          }
+	          Pendente emGravacao = listra.emGravacao.get(id);
+	          Cliente base = emGravacao != null ? emGravacao.cliente : listra.geracao == geracaoLida ? lido : null;
+	          if (base == null) {
+	            long geracao = listra.geracao;
+	            return clienteService.findById(id).flatMap(cliente -> adiar(id, alteracao, cliente, geracao));
+	          }
+	          pendente = new Pendente(base);
+	          listra.pendentes.put(id, pendente);
+	        } else {
+	          combinadas.increment();
+	        }
+	        pendente.aplicar(alteracao);
+	        resultado = copiar(pendente.cliente);
+	        loteCompleto = listra.pendentes.size() >= tamanhoLote;
+	      }
+
+	      // Falhas da gravação já são registradas por ela
+	      if (loteCompleto) {
+	        gravar(listra).subscribe(null, e -> { });
+	      }
+	      return Mono.just(resultado);
+	    }
+
+	    private Mono<Void> gravar(String id) {
+	      return habilitado && id != null ? Mono.defer(() -> gravar(listra(id))) : Mono.empty();
+	    }
+
+	    // Escrita direta no banco: grava antes o que estiver pendente na listra do cliente e, ao terminar, invalida as leituras de base
+	    // em andamento nela
+	    private <T> Mono<T> direta(String id, Mono<T> escrita) {
+	      if (!habilitado || id == null) {
+	        return escrita;
+	      }
+	      return gravar(id).then(escrita).doFinally(sinal -> avancar(listra(id)));
+	    }
+
+	    private void avancar(Listra listra) {
+	      synchronized (listra) {
+	        listra.geracao++;
+	      }
+	    }
+
+	    private Mono<Void> gravarTodas() {
+	      return Flux.fromArray(listras).flatMap(this::gravar).then();
+	    }
+
+	    // Grava as pendências da listra em um bulk. A gravação segue mesmo se quem pediu desistir, e quem chega com outra em andamento
+	    // espera por ela e grava em seguida o que acumulou
+	    private Mono<Void> gravar(Listra listra) {
+	      Mono<Void> gravacao;
+	      synchronized (listra) {
+	        if (listra.gravacao != null) {
+	          return listra.gravacao.onErrorResume(e -> Mono.empty()).then(Mono.defer(() -> gravar(listra)));
+	        }
+	        if (listra.pendentes.isEmpty()) {
+	          return Mono.empty();
+	        }
+	        Map<String, Pendente> lote = listra.pendentes;
+	        listra.emGravacao = lote;
+	        listra.pendentes = new LinkedHashMap<>();
+
+	        List<AlteracaoCliente> alteracoes = lote.values().stream()
+	            .map(p -> new AlteracaoCliente(copiar(p.cliente), new HashSet<>(p.campos), p.versaoBase))
+	            .collect(Collectors.toList());
+	        gravacao = clienteService.updateAll(alteracoes)
+	            .retryWhen(Retry.backoff(5, Duration.ofMillis(100)).filter(SobrecargaException.class::isInstance))
+	            .doOnNext(conflitos -> rebasear(listra, lote, conflitos))
+	            .doOnError(e -> devolver(listra, lote))
+	            // Antes de avisar quem espera, que pode pedir outra gravação na mesma listra em seguida
+	            .doOnTerminate(() -> concluir(listra))
+	            .then()
+	            .cache();
+	        listra.gravacao = gravacao;
+	      }
+
+	      gravacao.subscribe(null, e -> log.warn("Falha ao gravar alterações adiadas; ficam pendentes para a próxima tentativa", e));
+	      return gravacao;
+	    }
+
+	    // O lote volta inteiro para a fila: cada alteração grava a versão final filtrando pela versão de onde partiu, então a que já
+	    // chegou ao banco não casa de novo. Alterações que chegaram durante a gravação partiram da cópia em gravação, então já trazem os
+	    // valores dela
+	    private void devolver(Listra listra, Map<String, Pendente> lote) {
+	      synchronized (listra) {
+	        lote.forEach((id, anterior) -> juntar(listra, id, anterior));
+	      }
+	    }
+
+	    // Clientes alterados por outra escrita enquanto as alterações esperavam: elas voltam para a fila aplicadas sobre o documento atual,
+	    // com a versão avançando a partir da gravada
+	    private void rebasear(Listra listra, Map<String, Pendente> lote, List<Cliente> atuais) {
+	      if (atuais.isEmpty()) {
+	        return;
+	      }
+	      log.info("{} clientes com alterações adiadas foram alterados por outra escrita; as alterações serão gravadas sobre a versão atual",
+	          atuais.size());
+	      synchronized (listra) {
+	        for (Cliente atual : atuais) {
+	          juntar(listra, atual.getId(), lote.get(atual.getId())).rebasear(atual);
+	        }
+	      }
+	    }
+
+	    // A pendente mais nova partiu da cópia em gravação, cuja versão o banco não tem; a combinação parte da versão da anterior, a mais
+	    // antiga, para que o filtro da próxima gravação case com o documento gravado
+	    private static Pendente juntar(Listra listra, String id, Pendente anterior) {
+	      Pendente atual = listra.pendentes.get(id);
+	      if (atual == null) {
+	        listra.pendentes.put(id, anterior);
+	        return anterior;
+	      }
+	      atual.campos.addAll(anterior.campos);
+	      atual.alteracoes += anterior.alteracoes;
+	      atual.versaoBase = anterior.versaoBase;
+	      return atual;
+	    }
+
+	    private void concluir(Listra listra) {
+	      synchronized (listra) {
+	        listra.emGravacao = Map.of();
+	        listra.gravacao = null;
+	        listra.geracao++;
+	      }
+	    }
+
+	    private Cliente pendente(String id) {
+	      Listra listra = listra(id);
+	      synchronized (listra) {
+	        Pendente pendente = listra.pendentes.get(id);
+	        if (pendente == null) {
+	          pendente = listra.emGravacao.get(id);
+	        }
+	        return pendente == null ? null : copiar(pendente.cliente);
+	      }
+	    }
+
+	    private double pendentes() {
+	      int total = 0;
+	      for (Listra listra : listras) {
+	        synchronized (listra) {
+	          total += listra.pendentes.size() + listra.emGravacao.size();
+	        }
+	      }
+	      return total;
+	    }
+
+	    private Listra listra(String id) {
+	      return listras[Math.floorMod(id.hashCode(), listras.length)];
+	    }
+
+	    private static Cliente copiar(Cliente original) {
+	      Cliente copia = new Cliente();
+	      copia.setId(original.getId());
+	      copia.setNome(original.getNome());
+	      copia.setSobrenome(original.getSobrenome());
+	      copia.setIdade(original.getIdade());
+	      copia.setSalario(original.getSalario());
+	      copia.setFoto(original.getFoto());
+	      copia.setMiniaturas(original.getMiniaturas() == null ? null : new HashMap<>(original.getMiniaturas()));
+	      copia.setVersao(original.getVersao());
+	      copia.setAtualizadoEm(original.getAtualizadoEm());
+	      return copia;
+	    }
+
+	    // Protegida pelo lock da própria instância
+	    private static final class Listra {
+
+	      private Map<String, Pendente> pendentes = new LinkedHashMap<>();
+
+	      private Map<String, Pendente> emGravacao = Map.of();
+
+	      private Mono<Void> gravacao;
+
+	      // Avança a cada gravação concluída na listra, em lote ou direta
+	      private long geracao;
+	    }
+
+	    private static final class Pendente {
+
+	      private final Cliente cliente;
+
+	      private final Set<String> campos = new HashSet<>();
+
+	      private long alteracoes;
+
+	      private Long versaoBase;
+
+	      private Pendente(Cliente base) {
+	        cliente = copiar(base);
+	        versaoBase = base.getVersao();
+	      }
+
+	      // Os campos alterados ficam; os demais e a versão vêm do documento gravado
+	      private void rebasear(Cliente atual) {
+	        Cliente alterado = copiar(cliente);
+	        cliente.setNome(campos.contains("nome") ? alterado.getNome() : atual.getNome());
+	        cliente.setSobrenome(campos.contains("sobrenome") ? alterado.getSobrenome() : atual.getSobrenome());
+	        cliente.setIdade(campos.contains("idade") ? alterado.getIdade() : atual.getIdade());
+	        cliente.setSalario(campos.contains("salario") ? alterado.getSalario() : atual.getSalario());
+	        cliente.setFoto(campos.contains("foto") ? alterado.getFoto() : atual.getFoto());
+	        cliente.setMiniaturas(campos.contains("miniaturas") ? alterado.getMiniaturas() : atual.getMiniaturas());
+	        versaoBase = atual.getVersao();
+	        cliente.setVersao((versaoBase == null ? 0 : versaoBase) + alteracoes);
+	      }
+
+	      // Mesma regra do update direto: só os campos informados mudam
+	      private void aplicar(Cliente alteracao) {
+	        if (alteracao.getNome() != null) {
+	          cliente.setNome(alteracao.getNome());
+	          campos.add("nome");
+	        }
+	        if (alteracao.getSobrenome() != null) {
+	          cliente.setSobrenome(alteracao.getSobrenome());
+	          campos.add("sobrenome");
+	        }
+	        if (alteracao.getIdade() != null) {
+	          cliente.setIdade(alteracao.getIdade());
+	          campos.add("idade");
+	        }
+	        if (alteracao.getSalario() != null) {
+	          cliente.setSalario(alteracao.getSalario());
+	          campos.add("salario");
+	        }
+	        if (alteracao.getFoto() != null) {
+	          cliente.setFoto(alteracao.getFoto());
+	          campos.add("foto");
+	        }
+	        if (alteracao.getMiniaturas() != null) {
+	          cliente.setMiniaturas(alteracao.getMiniaturas());
+	          campos.add("miniaturas");
+	        }
+	        alteracoes++;
+	        cliente.setVersao((cliente.getVersao() == null ? 0 : cliente.getVersao()) + 1);
+	        // Provisório, só para a leitura local; o updateAll grava atualizadoEm pelo relógio do banco
+	        cliente.setAtualizadoEm(Instant.now());
+	      }
+	    }
+}
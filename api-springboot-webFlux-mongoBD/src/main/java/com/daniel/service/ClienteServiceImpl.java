@@ -1,37 +1,632 @@
 package com.daniel.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Range.Bound;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.daniel.daos.ClienteDao;
 import com.daniel.documentos.Cliente;
+import com.daniel.dto.AlteracaoCliente;
+import com.daniel.dto.ClientePorId;
+import com.daniel.dto.ErroRegistro;
+import com.daniel.dto.EstatisticasClientes;
+import com.daniel.dto.FaixaHistograma;
+import com.daniel.dto.PaginaClientes;
+import com.daniel.dto.ResultadoLote;
+import com.daniel.dto.ResumoCampo;
+import com.daniel.dto.TrocaFoto;
+import com.daniel.limites.LimiteConcorrencia;
+import com.daniel.limites.SobrecargaException;
+import com.daniel.metricas.MetricaReativa;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.result.DeleteResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.retry.Retry;
 
 @Service
 public class ClienteServiceImpl implements ClienteService {
 
+	    private static final Logger log = LoggerFactory.getLogger(ClienteServiceImpl.class);
+
 	    @Autowired
 	    private ClienteDao clienteDao;
 
+	    @Autowired
+	    private ReactiveMongoTemplate mongoTemplate;
+
+	    // Listagens, buscas e estatísticas leem com a read preference de config.recursos.mongo.leitura-listagem (ex.: secundários);
+	    // findById, versões usadas em If-None-Match de um cliente e escritas continuam no primário
+	    @Autowired
+	    @Qualifier("reactiveMongoTemplateListagem")
+	    private ReactiveMongoTemplate mongoTemplateListagem;
+
+	    private ClienteDao clienteDaoListagem;
+
+	    @Autowired
+	    private Validator validator;
+
+	    @Value("${config.clientes.bulk.tamanho-lote:1000}")
+	    private int tamanhoLote;
+
+	    @Value("${config.clientes.bulk.janela-ms:500}")
+	    private long janelaMs;
+
+	    // Operações por lista de ids: ids por consulta `$in` e quantas consultas de uma mesma requisição rodam ao mesmo tempo
+	    @Value("${config.clientes.lote-ids.tamanho-bloco:100}")
+	    private int tamanhoBlocoIds;
+
+	    @Value("${config.clientes.lote-ids.concorrencia:4}")
+	    private int concorrenciaBlocosIds;
+
+	    // Releituras da troca de foto quando outra escrita altera o cliente entre a leitura e a troca; esgotadas, a resposta é 409
+	    @Value("${config.clientes.foto.tentativas-troca:8}")
+	    private int tentativasTrocaFoto;
+
+	    @Value("${config.clientes.estatisticas.faixas-salario:10}")
+	    private int faixasSalario;
+
+	    @Value("${config.clientes.estatisticas.faixas-idade:0,18,25,35,45,55,65,150}")
+	    private int[] faixasIdade;
+
+	    @Autowired
+	    private MeterRegistry meterRegistry;
+
+	    // Operações acima do limite adaptativo falham na hora com 503 em vez de esperar na fila do pool de conexões
+	    @Autowired
+	    private LimiteConcorrencia limiteConcorrencia;
+
+	    // Um timer "clientes.service" por método, com histograma de percentis habilitado no application.properties
+	    private MetricaReativa tempoFindAll;
+	    private MetricaReativa tempoFindPagina;
+	    private MetricaReativa tempoFindById;
+	    private MetricaReativa tempoFindAllById;
+	    private MetricaReativa tempoFindVersaoById;
+	    private MetricaReativa tempoFindByNome;
+	    private MetricaReativa tempoFindByIdade;
+	    private MetricaReativa tempoFindBySalario;
+	    private MetricaReativa tempoCalcularEstatisticas;
+	    private MetricaReativa tempoSave;
+	    private MetricaReativa tempoInsertAll;
+	    private MetricaReativa tempoUpdate;
+	    private MetricaReativa tempoUpdateAll;
+	    private MetricaReativa tempoUpdateMiniaturas;
+
+	    private MetricaReativa tempoUpdateFoto;
+	    private MetricaReativa tempoDelete;
+	    private MetricaReativa tempoDeleteById;
+	    private MetricaReativa tempoFindAndDeleteById;
+	    private MetricaReativa tempoDeleteAllById;
+	    private MetricaReativa tempoExistsById;
+
+	    @PostConstruct
+	    public void iniciarListagem() {
+	      clienteDaoListagem = new ReactiveMongoRepositoryFactory(mongoTemplateListagem).getRepository(ClienteDao.class);
+	    }
+
+	    @PostConstruct
+	    public void iniciarMetricas() {
+	      tempoFindAll = metrica("findAll");
+	      tempoFindPagina = metrica("findPagina");
+	      tempoFindById = metrica("findById");
+	      tempoFindAllById = metrica("findAllById");
+	      tempoFindVersaoById = metrica("findVersaoById");
+	      tempoFindByNome = metrica("findByNome");
+	      tempoFindByIdade = metrica("findByIdade");
+	      tempoFindBySalario = metrica("findBySalario");
+	      tempoCalcularEstatisticas = metrica("calcularEstatisticas");
+	      tempoSave = metrica("save");
+	      tempoInsertAll = metrica("insertAll");
+	      tempoUpdate = metrica("update");
+	      tempoUpdateAll = metrica("updateAll");
+	      tempoUpdateMiniaturas = metrica("updateMiniaturas");
+	      tempoUpdateFoto = metrica("updateFoto");
+	      tempoDelete = metrica("delete");
+	      tempoDeleteById = metrica("deleteById");
+	      tempoFindAndDeleteById = metrica("findAndDeleteById");
+	      tempoDeleteAllById = metrica("deleteAllById");
+	      tempoExistsById = metrica("existsById");
+	    }
+
 	    @Override
 	    public Flux<Cliente> findAll() {
-	      return clienteDao.findAll();
+	      return limiteConcorrencia.proteger(tempoFindAll.medir(clienteDaoListagem.findAllBy()));
+	    }
+
+	    @Override
+	    public Mono<PaginaClientes> findPagina(String cursor, int tamanho) {
+	      Pageable pagina = PageRequest.of(0, tamanho);
+	      Flux<Cliente> clientes = cursor == null
+	          ? clienteDaoListagem.findAllByOrderByIdAsc(pagina)
+	          : Mono.fromCallable(() -> CursorClientes.decodificar(cursor))
+	              .flatMapMany(ultimoId -> ultimoId instanceof ObjectId
+	                  ? clienteDaoListagem.findByIdGreaterThanOrderByIdAsc((ObjectId) ultimoId, pagina)
+	                  : clienteDaoListagem.findPaginaAposIdTexto((String) ultimoId, PageRequest.of(0, tamanho, Sort.by("id"))));
+
+	      return limiteConcorrencia.proteger(tempoFindPagina.medir(clientes.collectList().map(lista -> new PaginaClientes(lista, proximoCursor(lista, tamanho)))));
 	    }
 
 	    @Override
 	    public Mono<Cliente> findById(String id) {
-	      return clienteDao.findById(id);
+	      return limiteConcorrencia.proteger(tempoFindById.medir(clienteDao.findById(id)));
+	    }
+
+	    @Override
+	    public Flux<ClientePorId> findAllById(List<String> ids) {
+	      // Blocos consultados em paralelo, mas emitidos na ordem em que os ids foram pedidos
+	      return Flux.fromIterable(ids)
+	          .buffer(tamanhoBlocoIds)
+	          .flatMapSequential(bloco -> limiteConcorrencia.proteger(tempoFindAllById.medir(
+	                  clienteDao.findAllById(new LinkedHashSet<>(bloco)).collectMap(Cliente::getId)))
+	              .flatMapIterable(encontrados -> porId(bloco, encontrados)), concorrenciaBlocosIds);
+	    }
+
+	    @Override
+	    public Mono<Long> findVersaoById(String id) {
+	      Query query = Query.query(Criteria.where("id").is(id));
+	      query.fields().include("versao");
+	      return limiteConcorrencia.proteger(tempoFindVersaoById.medir(mongoTemplate.findOne(query, Cliente.class).map(ClienteServiceImpl::versaoOuZero)));
+	    }
+
+	    // Clientes gravados antes do campo versao existir contam como versão 0 até o ClienteVersoes preenchê-los, para que o If-Match
+	    // casse com eles mesmo se o preenchimento da subida falhou
+	    static long versaoOuZero(Cliente cliente) {
+	      return cliente.getVersao() == null ? 0L : cliente.getVersao();
+	    }
+
+	    private static Criteria versaoEsperada(long versao) {
+	      return versao == 0 ? Criteria.where("versao").in(0L, null) : Criteria.where("versao").is(versao);
+	    }
+
+	    @Override
+	    public Flux<Cliente> findByNome(String nome, String sobrenome, int pagina, int tamanho, Set<String> campos) {
+	      Range<String> faixaNome = prefixo(nome);
+	      Range<String> faixaSobrenome = sobrenome == null ? null : prefixo(sobrenome);
+	      Pageable paginacao = PageRequest.of(pagina, tamanho, Sort.by("nome", "sobrenome", "id"));
+
+	      if (!campos.isEmpty()) {
+	        Query query = Query.query(faixa("nome", faixaNome)).collation(Collation.parse(ClienteDao.COLLATION_NOME));
+	        if (faixaSobrenome != null) {
+	          query.addCriteria(faixa("sobrenome", faixaSobrenome));
+	        }
+	        return limiteConcorrencia.proteger(tempoFindByNome.medir(projetar(query, paginacao, campos)));
+	      }
+	      return limiteConcorrencia.proteger(tempoFindByNome.medir(faixaSobrenome == null
+	          ? clienteDaoListagem.findByNomeBetween(faixaNome, paginacao)
+	          : clienteDaoListagem.findByNomeBetweenAndSobrenomeBetween(faixaNome, faixaSobrenome, paginacao)));
+	    }
+
+	    @Override
+	    public Flux<Cliente> findByIdade(Integer minima, Integer maxima, int pagina, int tamanho, Set<String> campos) {
+	      Range<Integer> faixaIdade = Range.of(limite(minima), limite(maxima));
+	      Pageable paginacao = PageRequest.of(pagina, tamanho, Sort.by("idade", "id"));
+
+	      return limiteConcorrencia.proteger(tempoFindByIdade.medir(campos.isEmpty()
+	          ? clienteDaoListagem.findByIdadeBetween(faixaIdade, paginacao)
+	          : projetar(Query.query(faixa("idade", faixaIdade)), paginacao, campos)));
+	    }
+
+	    @Override
+	    public Flux<Cliente> findBySalario(Double minimo, Double maximo, int pagina, int tamanho, Set<String> campos) {
+	      Range<Double> faixaSalario = Range.of(limite(minimo), limite(maximo));
+	      Pageable paginacao = PageRequest.of(pagina, tamanho, Sort.by("salario", "id"));
+
+	      return limiteConcorrencia.proteger(tempoFindBySalario.medir(campos.isEmpty()
+	          ? clienteDaoListagem.findBySalarioBetween(faixaSalario, paginacao)
+	          : projetar(Query.query(faixa("salario", faixaSalario)), paginacao, campos)));
+	    }
+
+	    @Override
+	    public Mono<EstatisticasClientes> calcularEstatisticas(Integer idadeMinima, Integer idadeMaxima) {
+	      List<AggregationOperation> etapas = new ArrayList<>();
+	      if (idadeMinima != null || idadeMaxima != null) {
+	        etapas.add(Aggregation.match(faixa("idade", Range.of(limite(idadeMinima), limite(idadeMaxima)))));
+	      }
+	      // Uma única passada pela coleção alimenta o resumo e os dois histogramas
+	      etapas.add(Aggregation
+	          .facet(Aggregation.group().count().as("total")
+	              .sum("salario").as("somaSalario").avg("salario").as("mediaSalario")
+	              .min("salario").as("minimoSalario").max("salario").as("maximoSalario")
+	              .sum("idade").as("somaIdade").avg("idade").as("mediaIdade")
+	              .min("idade").as("minimoIdade").max("idade").as("maximoIdade")).as("resumo")
+	          .and(Aggregation.bucketAuto("salario", faixasSalario)).as("faixasSalario")
+	          .and(Aggregation.bucket("idade").withBoundaries(Arrays.stream(faixasIdade).boxed().toArray()).withDefaultBucket("outros"))
+	              .as("faixasIdade"));
+
+	      // allowDiskUse: $bucketAuto ordena a coleção inteira e pode passar do limite de memória por etapa do servidor
+	      AggregationOptions opcoes = AggregationOptions.builder().allowDiskUse(true).build();
+	      return limiteConcorrencia.protegerPesada(tempoCalcularEstatisticas.medir(
+	          mongoTemplateListagem.aggregate(Aggregation.newAggregation(Cliente.class, etapas).withOptions(opcoes), Document.class)
+	              .next()
+	              .map(this::converterEstatisticas)));
 	    }
 
 	    @Override
 	    public Mono<Cliente> save(Cliente cliente) {
-	       return clienteDao.save(cliente);
+	      // Versão e data vêm do corpo da requisição (um POST que repete a resposta de um GET traz as do documento lido): todo cliente novo
+	      // começa na versão 0 e atualizadoEm é o momento da inclusão, já que o insert não aceita $currentDate
+	      cliente.setVersao(0L);
+	      cliente.setAtualizadoEm(agora());
+	      return limiteConcorrencia.proteger(tempoSave.medir(clienteDao.insert(cliente)));
+	    }
+
+	    @Override
+	    public Flux<ResultadoLote> insertAll(Flux<Cliente> clientes) {
+	      // Agrupa por quantidade ou por tempo, o que vier primeiro, e grava um lote por vez. O limite de concorrência vale por lote (o 
+	      // tempo de upload do arquivo não é do banco); um lote rejeitado espera e tenta de novo, já que a importação já respondeu 200.
+	      // windowTimeout com backpressure justo em vez de bufferTimeout: com o banco lento, o bufferTimeout do Reactor 3.4 ainda emite
+	      // no fim da janela sem demanda e falha com OverflowException; aqui a leitura do upload espera o lote anterior ser gravado
+	      return tempoInsertAll.medir(clientes.index()
+	          .windowTimeout(tamanhoLote, Duration.ofMillis(janelaMs), true)
+	          .concatMap(Flux::collectList, 1)
+	          .filter(lote -> !lote.isEmpty())
+	          .index()
+	          .concatMap(lote -> limiteConcorrencia.protegerPesada(inserirLote(lote.getT1() + 1, lote.getT2()))
+	              .retryWhen(Retry.backoff(5, Duration.ofMillis(100)).filter(SobrecargaException.class::isInstance)), 1));
+	    }
+
+	    @Override
+	    public Mono<Cliente> update(String id, Cliente cliente, Long versao) {
+	      // Um único findAndModify: aplica $set apenas nos campos informados e devolve o documento já alterado. Com versão informada,
+	      // o filtro só casa se ninguém alterou o cliente desde a leitura
+	      Query query = Query.query(Criteria.where("id").is(id));
+	      if (versao != null) {
+	        query.addCriteria(versaoEsperada(versao));
+	      }
+
+	      Update update = new Update().inc("versao", 1).currentDate("atualizadoEm");
+	      setSeInformado(update, "nome", cliente.getNome());
+	      setSeInformado(update, "sobrenome", cliente.getSobrenome());
+	      setSeInformado(update, "idade", cliente.getIdade());
+	      setSeInformado(update, "salario", cliente.getSalario());
+	      setSeInformado(update, "foto", cliente.getFoto());
+	      setSeInformado(update, "miniaturas", cliente.getMiniaturas());
+
+	      return limiteConcorrencia.proteger(tempoUpdate.medir(mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Cliente.class)));
+	    }
+
+	    // Grava em um único bulk ordenado as alterações acumuladas pela escrita adiada, que chama este método direto (não faz parte de
+	    // ClienteService). Cada alteração só casa com o cliente ainda na versão de onde partiu e grava a versão final em vez de um $inc:
+	    // repetir um lote que falhou no meio, ou que chegou ao banco antes de a resposta se perder, não avança a versão duas vezes. Devolve
+	    // o documento atual dos clientes cujas alterações esbarraram em outra escrita; os removidos no meio não voltam
+	    public Mono<List<Cliente>> updateAll(List<AlteracaoCliente> alteracoes) {
+	      if (alteracoes.isEmpty()) {
+	        return Mono.just(List.of());
+	      }
+	      // O documento completo passa pelo conversor (id em ObjectId, Instant em Date) e só os campos alterados entram no $set, com
+	      // atualizadoEm pelo relógio do banco
+	      List<UpdateOneModel<Document>> operacoes = new ArrayList<>(alteracoes.size());
+	      Map<Object, Document> gravados = new HashMap<>();
+	      for (AlteracaoCliente alteracao : alteracoes) {
+	        Document documento = new Document();
+	        mongoTemplate.getConverter().write(alteracao.getCliente(), documento);
+	        Document campos = new Document();
+	        alteracao.getCampos().forEach(campo -> campos.put(campo, documento.get(campo)));
+	        campos.put("versao", alteracao.getCliente().getVersao());
+	        operacoes.add(new UpdateOneModel<>(new Document("_id", documento.get("_id")).append("versao", alteracao.getVersaoBase()), 
+	            new Document("$set", campos).append("$currentDate", new Document("atualizadoEm", true))));
+	        gravados.put(documento.get("_id"), campos);
+	      }
+
+	      String colecao = mongoTemplate.getCollectionName(Cliente.class);
+	      return limiteConcorrencia.protegerPesada(tempoUpdateAll.medir(mongoTemplate.getCollection(colecao)
+	          .flatMap(clientes -> Mono.from(clientes.bulkWrite(operacoes, new BulkWriteOptions().ordered(true))))))
+	          .flatMap(resultado -> resultado.getMatchedCount() == operacoes.size() 
+	              ? Mono.just(List.<Cliente>of()) 
+	              : limiteConcorrencia.proteger(naoAplicadas(colecao, gravados)));
+	    }
+
+	    // Sem casar o filtro, a alteração já pode estar no banco (uma tentativa anterior do mesmo lote chegou lá): só conta como conflito
+	    // o cliente que não tem a versão final e os valores gravados
+	    private Mono<List<Cliente>> naoAplicadas(String colecao, Map<Object, Document> gravados) {
+	      return mongoTemplate.find(Query.query(Criteria.where("_id").in(gravados.keySet())), Document.class, colecao)
+	          .filter(atual -> !gravados.get(atual.get("_id")).entrySet().stream()
+	              .allMatch(campo -> Objects.equals(atual.get(campo.getKey()), campo.getValue())))
+	          .map(atual -> mongoTemplate.getConverter().read(Cliente.class, atual))
+	          .collectList();
+	    }
+
+	    @Override
+	    public Mono<Cliente> updateMiniaturas(String id, String foto, Map<String, String> miniaturas) {
+	      // Só registra as miniaturas se a foto não foi trocada enquanto elas eram geradas
+	      Query query = Query.query(Criteria.where("id").is(id).and("foto").is(foto));
+	      Update update = new Update().set("miniaturas", miniaturas).inc("versao", 1).currentDate("atualizadoEm");
+
+	      return limiteConcorrencia.proteger(tempoUpdateMiniaturas.medir(
+	          mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Cliente.class)));
+	    }
+
+	    @Override
+	    public Mono<TrocaFoto> updateFoto(String id, String foto) {
+	      // A foto anterior é lida do banco e a troca só casa se o cliente ainda estiver na versão lida: com outra escrita no meio a
+	      // leitura se repete, então cada foto substituída é devolvida a uma única troca
+	      Mono<TrocaFoto> troca = Mono.defer(() -> {
+	        Query atual = Query.query(Criteria.where("id").is(id));
+	        atual.fields().include("foto").include("versao");
+
+	        return mongoTemplate.findOne(atual, Cliente.class).flatMap(lido -> {
+	          Query query = Query.query(Criteria.where("id").is(id).and("versao").is(lido.getVersao()));
+	          Update update = new Update().set("foto", foto).set("miniaturas", Collections.emptyMap()).inc("versao", 1)
+	              .currentDate("atualizadoEm");
+
+	          return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Cliente.class)
+	              .map(cliente -> new TrocaFoto(cliente, lido.getFoto()))
+	              .switchIfEmpty(Mono.error(() -> new OptimisticLockingFailureException("Cliente " + id + " alterado durante a troca da foto")));
+	        });
+	      });
+
+	      return limiteConcorrencia.proteger(tempoUpdateFoto.medir(troca.retryWhen(Retry.backoff(tentativasTrocaFoto, Duration.ofMillis(5))
+	          .filter(OptimisticLockingFailureException.class::isInstance)
+	          .onRetryExhaustedThrow((especificacao, sinal) -> new ResponseStatusException(HttpStatus.CONFLICT, 
+	              "O cliente foi alterado por outras requisições durante a troca da foto")))));
 	    }
 
 	    @Override
 	    public Mono<Void> delete(Cliente cliente) {
-	      return clienteDao.delete(cliente);
+	      return limiteConcorrencia.proteger(tempoDelete.medir(clienteDao.delete(cliente)));
+	    }
+
+	    @Override
+	    public Mono<Long> deleteById(String id) {
+	      return limiteConcorrencia.proteger(tempoDeleteById.medir(
+	          mongoTemplate.remove(Query.query(Criteria.where("id").is(id)), Cliente.class).map(DeleteResult::getDeletedCount)));
+	    }
+
+	    @Override
+	    public Mono<Cliente> findAndDeleteById(String id) {
+	      return limiteConcorrencia.proteger(tempoFindAndDeleteById.medir(mongoTemplate.findAndRemove(Query.query(Criteria.where("id").is(id)), Cliente.class)));
+	    }
+
+	    @Override
+	    public Flux<ClientePorId> deleteAllById(List<String> ids) {
+	      // Sem ids repetidos: dois blocos removendo o mesmo cliente liberariam a foto dele duas vezes
+	      return Flux.fromIterable(new LinkedHashSet<>(ids))
+	          .buffer(tamanhoBlocoIds)
+	          .flatMapSequential(bloco -> limiteConcorrencia.proteger(tempoDeleteAllById.medir(removerBloco(bloco)))
+	              .flatMapIterable(removidos -> porId(bloco, removidos)), concorrenciaBlocosIds);
+	    }
+
+	    @Override
+	    public Mono<Boolean> existsById(String id) {
+	      return limiteConcorrencia.proteger(tempoExistsById.medir(clienteDao.existsById(id)));
+	    }
+
+	    // Em milissegundos, a precisão com que o MongoDB guarda datas: o documento devolvido é igual ao gravado
+	    private static Instant agora() {
+	      return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+	    }
+
+	    private MetricaReativa metrica(String metodo) {
+	      return new MetricaReativa(meterRegistry, "clientes.service", "metodo", metodo);
+	    }
+
+	    // U+FFFF ordena depois de qualquer caractere na collation, então a faixa cobre exatamente os valores que começam com o prefixo
+	    private static Range<String> prefixo(String prefixo) {
+	      return Range.rightOpen(prefixo, prefixo + "\uffff");
+	    }
+
+	    private static <T extends Comparable<T>> Bound<T> limite(T valor) {
+	      return valor == null ? Bound.unbounded() : Bound.inclusive(valor);
+	    }
+
+	    private static Criteria faixa(String campo, Range<?> faixa) {
+	      Criteria criteria = Criteria.where(campo);
+	      Bound<?> inferior = faixa.getLowerBound();
+	      Bound<?> superior = faixa.getUpperBound();
+	      if (inferior.isBounded()) {
+	        if (inferior.isInclusive()) {
+	          criteria.gte(inferior.getValue().get());
+	        } else {
+	          criteria.gt(inferior.getValue().get());
+	        }
+	      }
+	      if (superior.isBounded()) {
+	        if (superior.isInclusive()) {
+	          criteria.lte(superior.getValue().get());
+	        } else {
+	          criteria.lt(superior.getValue().get());
+	        }
+	      }
+	      return criteria;
+	    }
+
+	    // Mesma busca do método derivado, mas trazendo do MongoDB só os campos pedidos
+	    private Flux<Cliente> projetar(Query query, Pageable paginacao, Set<String> campos) {
+	      query.with(paginacao).cursorBatchSize(256);
+	      query.fields().include(campos.toArray(new String[0]));
+	      return mongoTemplateListagem.find(query, Cliente.class);
+	    }
+
+	    // Dois round trips por bloco: lê id e foto dos clientes e remove esses mesmos clientes com um `$in` por foto lida, então um cliente 
+	    // que trocou de foto no meio não é removido (a referência liberada seria a errada). Se o total removido não fechar com o lido, outra 
+	    // requisição removeu ou alterou algum deles: os que continuam no banco saem do resultado e, dos que sumiram, não há como saber quem 
+	    // removeu cada um; as fotos desses não são devolvidas e a reconciliação da coleta de fotos corrige as contagens que sobrarem
+	    private Mono<Map<String, Cliente>> removerBloco(List<String> bloco) {
+	      Query existentes = Query.query(Criteria.where("id").in(bloco));
+	      existentes.fields().include("foto");
+
+	      return mongoTemplate.find(existentes, Cliente.class).collectMap(Cliente::getId)
+	          .flatMap(encontrados -> encontrados.isEmpty()
+	              ? Mono.just(encontrados)
+	              : mongoTemplate.remove(Query.query(mesmaFoto(encontrados.values())), Cliente.class)
+	                  .flatMap(resultado -> resultado.getDeletedCount() == encontrados.size()
+	                      ? Mono.just(encontrados)
+	                      : removidosPorOutros(encontrados, resultado.getDeletedCount())));
+	    }
+
+	    private static Criteria mesmaFoto(Collection<Cliente> clientes) {
+	      Map<String, List<String>> idsPorFoto = new HashMap<>();
+	      List<String> semFoto = new ArrayList<>();
+	      for (Cliente cliente : clientes) {
+	        if (cliente.getFoto() == null) {
+	          semFoto.add(cliente.getId());
+	        } else {
+	          idsPorFoto.computeIfAbsent(cliente.getFoto(), foto -> new ArrayList<>()).add(cliente.getId());
+	        }
+	      }
+	      List<Criteria> grupos = new ArrayList<>();
+	      idsPorFoto.forEach((foto, ids) -> grupos.add(Criteria.where("id").in(ids).and("foto").is(foto)));
+	      if (!semFoto.isEmpty()) {
+	        grupos.add(Criteria.where("id").in(semFoto).and("foto").is(null));
+	      }
+	      return grupos.size() == 1 ? grupos.get(0) : new Criteria().orOperator(grupos.toArray(new Criteria[0]));
+	    }
+
+	    private Mono<Map<String, Cliente>> removidosPorOutros(Map<String, Cliente> encontrados, long removidos) {
+	      log.warn("{} de {} clientes do bloco foram removidos ou alterados por outra requisição; as fotos do bloco ficam para a reconciliação",
+	          encontrados.size() - removidos, encontrados.size());
+	      Query restantes = Query.query(Criteria.where("id").in(encontrados.keySet()));
+	      restantes.fields().include("id");
+	      return mongoTemplate.find(restantes, Cliente.class)
+	          .doOnNext(cliente -> encontrados.remove(cliente.getId()))
+	          .then(Mono.fromCallable(() -> {
+	            encontrados.values().forEach(cliente -> cliente.setFoto(null));
+	            return encontrados;
+	          }));
+	    }
+
+	    private static List<ClientePorId> porId(List<String> bloco, Map<String, Cliente> encontrados) {
+	      List<ClientePorId> itens = new ArrayList<>(bloco.size());
+	      for (String id : bloco) {
+	        Cliente cliente = encontrados.get(id);
+	        itens.add(new ClientePorId(id, cliente != null, cliente));
+	      }
+	      return itens;
+	    }
+
+	    private EstatisticasClientes converterEstatisticas(Document resultado) {
+	      List<Document> resumos = resultado.getList("resumo", Document.class);
+	      Document resumo = resumos.isEmpty() ? new Document() : resumos.get(0);
+
+	      List<FaixaHistograma> salarios = new ArrayList<>();
+	      for (Document faixa : resultado.getList("faixasSalario", Document.class)) {
+	        Document limites = faixa.get("_id", Document.class);
+	        salarios.add(new FaixaHistograma(numero(limites.get("min")), numero(limites.get("max")), numero(faixa.get("count")).longValue()));
+	      }
+
+	      // $bucket omite faixas vazias; aqui todas as faixas configuradas aparecem, com quantidade zero quando for o caso
+	      Map<Object, Long> quantidades = new HashMap<>();
+	      for (Document faixa : resultado.getList("faixasIdade", Document.class)) {
+	        quantidades.put(faixa.get("_id"), numero(faixa.get("count")).longValue());
+	      }
+	      List<FaixaHistograma> idades = new ArrayList<>();
+	      for (int i = 0; i < faixasIdade.length - 1; i++) {
+	        idades.add(new FaixaHistograma((double) faixasIdade[i], (double) faixasIdade[i + 1], quantidades.getOrDefault(faixasIdade[i], 0L)));
+	      }
+	      if (quantidades.containsKey("outros")) {
+	        idades.add(new FaixaHistograma(null, null, quantidades.get("outros")));
+	      }
+
+	      Double total = numero(resumo.get("total"));
+	      return new EstatisticasClientes(total == null ? 0 : total.longValue(),
+	          resumoCampo(resumo, "Salario"), resumoCampo(resumo, "Idade"), salarios, idades);
+	    }
+
+	    private static ResumoCampo resumoCampo(Document resumo, String campo) {
+	      Double soma = numero(resumo.get("soma" + campo));
+	      return new ResumoCampo(soma == null ? 0 : soma, numero(resumo.get("media" + campo)), numero(resumo.get("minimo" + campo)), 
+	          numero(resumo.get("maximo" + campo)));
+	    }
+
+	    private static Double numero(Object valor) {
+	      return valor == null ? null : ((Number) valor).doubleValue();
+	    }
+
+	    private void setSeInformado(Update update, String campo, Object valor) {
+	      if (valor != null) {
+	        update.set(campo, valor);
+	      }
+	    }
+
+	    // Só existe próxima página quando a atual veio cheia
+	    private String proximoCursor(List<Cliente> lista, int tamanho) {
+	      return lista.size() < tamanho ? null : CursorClientes.codificar(lista.get(lista.size() - 1).getId());
+	    }
+
+	    // Valida cada registro e envia os válidos em um único insertMany não ordenado: uma falha não interrompe o restante do lote
+	    private Mono<ResultadoLote> inserirLote(long numero, List<Tuple2<Long, Cliente>> registros) {
+	      List<ErroRegistro> erros = new ArrayList<>();
+	      List<Document> documentos = new ArrayList<>(registros.size());
+	      List<Long> indices = new ArrayList<>(registros.size());
+	      Instant incluidoEm = agora();
+
+	      for (Tuple2<Long, Cliente> registro : registros) {
+	        Set<ConstraintViolation<Cliente>> violacoes = validator.validate(registro.getT2());
+	        if (!violacoes.isEmpty()) {
+	          erros.add(new ErroRegistro(registro.getT1(), violacoes.stream()
+	              .map(v -> "O campo" + v.getPropertyPath() + " " + v.getMessage())
+	              .collect(Collectors.toList())));
+	          continue;
+	        }
+	        // Mesma versão inicial e data de inclusão do save(), já no documento: o lote inteiro é uma única escrita
+	        registro.getT2().setVersao(0L);
+	        registro.getT2().setAtualizadoEm(incluidoEm);
+	        Document documento = new Document();
+	        mongoTemplate.getConverter().write(registro.getT2(), documento);
+	        documentos.add(documento);
+	        indices.add(registro.getT1());
+	      }
+
+	      if (documentos.isEmpty()) {
+	        return Mono.just(new ResultadoLote(numero, registros.size(), 0, erros));
+	      }
+
+	      return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cliente.class))
+	          .flatMap(colecao -> Mono.from(colecao.insertMany(documentos, new InsertManyOptions().ordered(false))))
+	          .map(resultado -> resultado.getInsertedIds().size())
+	          .onErrorResume(MongoBulkWriteException.class, e -> {
+	            e.getWriteErrors().forEach(w -> erros.add(new ErroRegistro(indices.get(w.getIndex()), List.of(w.getMessage()))));
+	            return Mono.just(documentos.size() - e.getWriteErrors().size());
+	          })
+	          .map(inseridos -> new ResultadoLote(numero, registros.size(), inseridos, erros));
 	    }
 }
@@ -0,0 +1,428 @@
+package com.daniel.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.documentos.FotoReferencia;
+import com.daniel.storage.FotoArmazenada;
+import com.daniel.storage.FotoStorage;
+import com.daniel.storage.GeradorMiniaturas;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Remove do armazenamento as fotos que nenhum cliente usa mais, junto com as miniaturas. Toda operação de E/S da coleta (ler uma entrada
+ * do diretório, consultar o registro da foto, renomear, apagar) espera a sua vez em um ritmo de `config.fotos.coleta.operacoes-por-segundo`,
+ * para não disputar disco e MongoDB com as requisições.
+ *
+ * Duas fontes alimentam a coleta. Quando a contagem de referências de uma foto chega a zero (exclusão do cliente ou troca da foto), ela
+ * entra em uma fila limitada a `fila` fotos; se a fila estiver cheia a foto fica para a reconciliação. A reconciliação roda a cada
+ * `intervalo` (a primeira depois de `atraso-inicial`): percorre o diretório aos poucos, em blocos de `bloco` arquivos, e decide cada bloco
+ * com uma consulta `$in` aos registros em `fotos` e outra ao índice `foto` dos clientes, sem carregar a coleção na memória, removendo
+ * arquivos sem cliente, miniaturas de fotos removidas, temporários de uploads interrompidos e corrigindo contagens que ficaram acima do
+ * real. A decisão do bloco é só uma triagem: toda remoção passa pela mesma conferência da coleta da fila. Arquivos e contagens alterados
+ * durante a `carencia` anterior ao início da rodada não são tocados.
+ *
+ * Uma foto só é apagada depois de removido o seu registro com contagem zero: o arquivo vai antes para um nome temporário e o registro é
+ * conferido de novo, então um upload do mesmo conteúdo que chegue no meio da coleta mantém a foto no lugar. Na mesma conferência a
+ * coleção de clientes é consultada pelo campo `foto`: se algum cliente ainda aponta para o arquivo (contagem abaixo do real), a foto
+ * volta para o lugar e a contagem é refeita a partir dos clientes.
+ */
+@Component
+public class ColetorFotos {
+
+	    private static final Logger log = LoggerFactory.getLogger(ColetorFotos.class);
+
+	    // Prefixo do arquivo enquanto a coleta confere se a foto voltou a ser usada
+	    private static final String LAPIDE = ".removendo-";
+
+	    private static final String UPLOAD = ".upload-";
+
+	    private static final Pattern MINIATURA = Pattern.compile("[0-9a-f]{64}-\\d+\\.jpg");
+
+	    @Autowired
+	    private FotoStorage fotoStorage;
+
+	    @Autowired
+	    private GeradorMiniaturas geradorMiniaturas;
+
+	    @Autowired
+	    private ReactiveMongoTemplate mongoTemplate;
+
+	    @Autowired
+	    private MeterRegistry meterRegistry;
+
+	    @Value("${config.fotos.coleta.habilitado:true}")
+	    private boolean habilitado;
+
+	    @Value("${config.fotos.coleta.operacoes-por-segundo:50}")
+	    private int operacoesPorSegundo;
+
+	    @Value("${config.fotos.coleta.fila:10000}")
+	    private int tamanhoFila;
+
+	    @Value("${config.fotos.coleta.intervalo:6h}")
+	    private Duration intervalo;
+
+	    @Value("${config.fotos.coleta.atraso-inicial:10m}")
+	    private Duration atrasoInicial;
+
+	    @Value("${config.fotos.coleta.carencia:1h}")
+	    private Duration carencia;
+
+	    @Value("${config.fotos.coleta.bloco:500}")
+	    private int tamanhoBloco;
+
+	    private long intervaloNanos;
+
+	    private final AtomicLong proximaVez = new AtomicLong(System.nanoTime());
+
+	    private Queue<String> pendentes;
+
+	    private Sinks.Many<String> fila;
+
+	    // Fotos com coleta em andamento nesta instância; a reconciliação não mexe nelas nem nos seus arquivos temporários
+	    private final Set<String> emColeta = ConcurrentHashMap.newKeySet();
+
+	    private Disposable consumo;
+
+	    private Disposable reconciliacaoPeriodica;
+
+	    private Counter verificadas;
+
+	    private Counter descartadas;
+
+	    private Counter bytesLiberados;
+
+	    private final AtomicLong verificadasNaRodada = new AtomicLong();
+
+	    private final AtomicLong ultimaReconciliacao = new AtomicLong();
+
+	    @PostConstruct
+	    public void iniciar() {
+	      intervaloNanos = Duration.ofSeconds(1).toNanos() / Math.max(operacoesPorSegundo, 1);
+	      pendentes = Queues.<String>get(tamanhoFila).get();
+	      fila = Sinks.many().unicast().onBackpressureBuffer(pendentes);
+
+	      Gauge.builder("fotos.coleta.fila", pendentes, Queue::size)
+	          .description("Fotos sem referências aguardando a remoção do arquivo")
+	          .register(meterRegistry);
+	      Gauge.builder("fotos.coleta.reconciliacao.verificadas", verificadasNaRodada, AtomicLong::get)
+	          .description("Arquivos examinados pela reconciliação em andamento (ou pela última)")
+	          .register(meterRegistry);
+	      Gauge.builder("fotos.coleta.reconciliacao.ultima", ultimaReconciliacao, AtomicLong::get)
+	          .description("Fim da última reconciliação concluída, em segundos desde a época")
+	          .baseUnit("seconds")
+	          .register(meterRegistry);
+	      verificadas = Counter.builder("fotos.coleta.verificadas")
+	          .description("Arquivos de foto examinados pela reconciliação")
+	          .register(meterRegistry);
+	      descartadas = Counter.builder("fotos.coleta.descartadas")
+	          .description("Fotos que não couberam na fila e ficaram para a reconciliação")
+	          .register(meterRegistry);
+	      bytesLiberados = Counter.builder("fotos.coleta.bytes-liberados")
+	          .baseUnit("bytes")
+	          .description("Espaço liberado no armazenamento pela coleta")
+	          .register(meterRegistry);
+
+	      // Uma foto por vez: o ritmo de E/S vale para a fila inteira, não para cada foto
+	      consumo = fila.asFlux()
+	          .concatMap(foto -> coletar(foto)
+	              .onErrorResume(e -> {
+	                log.warn("Falha ao remover a foto {}: {}", foto, e.getMessage());
+	                return Mono.empty();
+	              }), 1)
+	          .subscribe();
+	    }
+
+	    @EventListener(ApplicationReadyEvent.class)
+	    public void agendarReconciliacao() {
+	      if (!habilitado) {
+	        return;
+	      }
+	      reconciliacaoPeriodica = Flux.interval(atrasoInicial, intervalo)
+	          .onBackpressureDrop()
+	          .concatMap(tick -> reconciliar().onErrorResume(e -> {
+	            log.warn("Falha na reconciliação das fotos: {}", e.getMessage());
+	            return Mono.empty();
+	          }), 1)
+	          .subscribe();
+	    }
+
+	    @PreDestroy
+	    public void encerrar() {
+	      if (reconciliacaoPeriodica != null) {
+	        reconciliacaoPeriodica.dispose();
+	      }
+	      consumo.dispose();
+	    }
+
+	    // Chamado quando a contagem de referências da foto chega a zero; não bloqueia e não falha
+	    public void agendar(String foto) {
+	      if (!habilitado) {
+	        return;
+	      }
+	      Sinks.EmitResult resultado;
+	      synchronized (fila) {
+	        resultado = fila.tryEmitNext(foto);
+	      }
+	      if (resultado.isFailure()) {
+	        descartadas.increment();
+	      }
+	    }
+
+	    public Mono<Void> reconciliar() {
+	      return Mono.defer(() -> {
+	        Instant inicio = Instant.now();
+	        Instant limite = inicio.minus(carencia);
+	        AtomicLong removidas = new AtomicLong();
+	        verificadasNaRodada.set(0);
+
+	        // O diretório é lido uma entrada por vez, no ritmo da coleta, e decidido um bloco por vez
+	        return fotoStorage.listar()
+	            .concatMap(arquivo -> vez().thenReturn(arquivo), 1)
+	            .buffer(tamanhoBloco)
+	            .concatMap(bloco -> examinar(bloco, limite), 1)
+	            .filter(removida -> removida)
+	            .doOnNext(removida -> removidas.incrementAndGet())
+	            .then(Mono.fromRunnable(() -> {
+	              ultimaReconciliacao.set(Instant.now().getEpochSecond());
+	              log.info("Reconciliação das fotos concluída em {} s: {} arquivos examinados, {} removidos",
+	                  Duration.between(inicio, Instant.now()).toSeconds(), verificadasNaRodada.get(), removidas.get());
+	            }));
+	      });
+	    }
+
+	    // Temporários e lápides se resolvem sozinhos; fotos e miniaturas do bloco são consultadas juntas
+	    private Flux<Boolean> examinar(List<FotoArmazenada> bloco, Instant limite) {
+	      List<Mono<Boolean>> avulsos = new ArrayList<>();
+	      List<FotoArmazenada> fotos = new ArrayList<>();
+	      List<FotoArmazenada> miniaturas = new ArrayList<>();
+	      for (FotoArmazenada arquivo : bloco) {
+	        verificadas.increment();
+	        verificadasNaRodada.incrementAndGet();
+	        String nome = arquivo.getNome();
+	        if (arquivo.getUltimaModificacao().isAfter(limite) || emColeta.contains(nome)) {
+	          continue;
+	        }
+	        if (nome.startsWith(UPLOAD)) {
+	          avulsos.add(removerArquivo(arquivo, "temporario"));
+	        } else if (nome.startsWith(LAPIDE)) {
+	          avulsos.add(Mono.defer(() -> resolverLapide(arquivo)));
+	        } else if (MINIATURA.matcher(nome).matches()) {
+	          miniaturas.add(arquivo);
+	        } else {
+	          fotos.add(arquivo);
+	        }
+	      }
+	      return Flux.concat(Flux.concat(avulsos), examinarMiniaturas(miniaturas), examinarFotos(fotos, limite));
+	    }
+
+	    // A miniatura perdeu a extensão da foto original, mas mantém o hash: cada hash vira um padrão ancorado nas duas pontas, que o
+	    // índice `foto` dos clientes resolve pelo prefixo
+	    private Flux<Boolean> examinarMiniaturas(List<FotoArmazenada> miniaturas) {
+	      if (miniaturas.isEmpty()) {
+	        return Flux.empty();
+	      }
+	      List<Pattern> padroes = miniaturas.stream()
+	          .map(miniatura -> hash(miniatura.getNome()))
+	          .distinct()
+	          .map(hash -> Pattern.compile("^" + hash + "(\\.[A-Za-z0-9]{1,5})?$"))
+	          .collect(Collectors.toList());
+	      Query query = Query.query(Criteria.where("foto").in(padroes));
+	      return vez().then(mongoTemplate.findDistinct(query, "foto", Cliente.class, String.class)
+	              .map(geradorMiniaturas::semExtensao)
+	              .collect(Collectors.toSet()))
+	          .flatMapMany(usados -> Flux.fromIterable(miniaturas)
+	              .filter(miniatura -> !usados.contains(hash(miniatura.getNome())))
+	              .concatMap(miniatura -> removerArquivo(miniatura, "miniatura"), 1));
+	    }
+
+	    private static String hash(String miniatura) {
+	      return miniatura.substring(0, miniatura.lastIndexOf('-'));
+	    }
+
+	    // Sem registro a foto é órfã, com contagem zero vai para a coleta e com contagem positiva só é corrigida se nenhum cliente do
+	    // bloco de consultas aponta para ela
+	    private Flux<Boolean> examinarFotos(List<FotoArmazenada> fotos, Instant limite) {
+	      if (fotos.isEmpty()) {
+	        return Flux.empty();
+	      }
+	      List<String> nomes = fotos.stream().map(FotoArmazenada::getNome).collect(Collectors.toList());
+	      return vez().then(mongoTemplate.find(Query.query(Criteria.where("id").in(nomes)), FotoReferencia.class)
+	              .collectMap(FotoReferencia::getId))
+	          .flatMapMany(registros -> {
+	            List<String> positivas = nomes.stream()
+	                .filter(nome -> registros.containsKey(nome) && registros.get(nome).getReferencias() > 0)
+	                .collect(Collectors.toList());
+	            return usadasPorClientes(positivas)
+	                .flatMapMany(usadas -> Flux.fromIterable(nomes).concatMap(nome -> decidir(nome, registros, usadas, limite), 1));
+	          });
+	    }
+
+	    private Mono<Set<String>> usadasPorClientes(List<String> fotos) {
+	      if (fotos.isEmpty()) {
+	        return Mono.just(Set.of());
+	      }
+	      return vez().then(mongoTemplate.findDistinct(Query.query(Criteria.where("foto").in(fotos)), "foto", Cliente.class, String.class)
+	          .collect(Collectors.toSet()));
+	    }
+
+	    private Mono<Boolean> decidir(String nome, Map<String, FotoReferencia> registros, Set<String> usadas, Instant limite) {
+	      FotoReferencia referencia = registros.get(nome);
+	      if (referencia == null) {
+	        return apagar(nome, "orfa");
+	      }
+	      if (referencia.getReferencias() <= 0) {
+	        return coletar(nome);
+	      }
+	      return usadas.contains(nome) ? Mono.just(false) : corrigirContagem(referencia, limite);
+	    }
+
+	    // Remove o registro com contagem zero e, só se conseguir, o arquivo; uma nova referência no meio do caminho cancela a coleta
+	    private Mono<Boolean> coletar(String foto) {
+	      Query semReferencias = Query.query(Criteria.where("id").is(foto).and("referencias").lte(0));
+	      return vez().then(mongoTemplate.remove(semReferencias, FotoReferencia.class))
+	          .flatMap(resultado -> resultado.getDeletedCount() > 0 ? apagar(foto, "sem-referencias") : Mono.just(false));
+	    }
+
+	    private Mono<Boolean> apagar(String foto, String motivo) {
+	      if (!emColeta.add(foto)) {
+	        return Mono.just(false);
+	      }
+	      String lapide = LAPIDE + foto;
+	      return vez().then(fotoStorage.carregar(foto))
+	          .flatMap(arquivo -> vez().then(fotoStorage.renomear(foto, lapide))
+	              .then(vez().then(emUso(foto)))
+	              .flatMap(emUso -> emUso
+	                  ? vez().then(fotoStorage.renomear(lapide, foto)).thenReturn(false)
+	                  : vez().then(fotoStorage.remover(lapide))
+	                      .then(Mono.fromRunnable(() -> contarRemocao(motivo, arquivo.getTamanho())))
+	                      .then(removerMiniaturas(foto))
+	                      .thenReturn(true)))
+	          .defaultIfEmpty(false)
+	          .doFinally(sinal -> emColeta.remove(foto));
+	    }
+
+	    private Mono<Void> removerMiniaturas(String foto) {
+	      return Flux.fromArray(variantes(foto))
+	          .concatMap(variante -> vez().then(fotoStorage.carregar(variante))
+	              .flatMap(arquivo -> removerArquivo(arquivo, "miniatura")))
+	          .then();
+	    }
+
+	    private String[] variantes(String foto) {
+	      int[] tamanhos = geradorMiniaturas.getTamanhos();
+	      String[] variantes = new String[tamanhos.length];
+	      for (int i = 0; i < tamanhos.length; i++) {
+	        variantes[i] = geradorMiniaturas.nomeVariante(foto, tamanhos[i]);
+	      }
+	      return variantes;
+	    }
+
+	    // Sobra de uma coleta interrompida (queda do processo): a foto volta para o lugar se ainda estiver em uso
+	    private Mono<Boolean> resolverLapide(FotoArmazenada arquivo) {
+	      String foto = arquivo.getNome().substring(LAPIDE.length());
+	      if (!emColeta.add(foto)) {
+	        return Mono.just(false);
+	      }
+	      return vez().then(emUso(foto))
+	          .flatMap(emUso -> emUso
+	              ? vez().then(fotoStorage.renomear(arquivo.getNome(), foto)).thenReturn(false)
+	              : removerArquivo(arquivo, "temporario"))
+	          .doFinally(sinal -> emColeta.remove(foto));
+	    }
+
+	    // A contagem só é zerada se ninguém a alterou durante a carência anterior à rodada; um upload do meio do caminho a mantém
+	    private Mono<Boolean> corrigirContagem(FotoReferencia referencia, Instant limite) {
+	      if (referencia.getAtualizadaEm() != null && referencia.getAtualizadaEm().isAfter(limite)) {
+	        return Mono.just(false);
+	      }
+	      Query inalterada = Query.query(Criteria.where("id").is(referencia.getId())
+	          .and("referencias").is(referencia.getReferencias())
+	          .orOperator(Criteria.where("atualizadaEm").lte(limite), Criteria.where("atualizadaEm").exists(false)));
+	      Update zerar = new Update().set("referencias", 0).currentDate("atualizadaEm");
+	      return vez().then(mongoTemplate.updateFirst(inalterada, zerar, FotoReferencia.class))
+	          .filter(resultado -> resultado.getModifiedCount() > 0)
+	          .doOnNext(resultado -> log.warn("A foto {} tinha {} referências sem nenhum cliente usando; contagem zerada",
+	              referencia.getId(), referencia.getReferencias()))
+	          .flatMap(resultado -> coletar(referencia.getId()))
+	          .defaultIfEmpty(false);
+	    }
+
+	    private Mono<Boolean> removerArquivo(FotoArmazenada arquivo, String motivo) {
+	      return vez().then(fotoStorage.remover(arquivo.getNome()))
+	          .then(Mono.fromCallable(() -> {
+	            contarRemocao(motivo, arquivo.getTamanho());
+	            return true;
+	          }));
+	    }
+
+	    // Em uso se a contagem for positiva ou, com a contagem zerada ou sem registro, se algum cliente ainda apontar para a foto
+	    private Mono<Boolean> emUso(String foto) {
+	      return mongoTemplate.exists(Query.query(Criteria.where("id").is(foto).and("referencias").gt(0)), FotoReferencia.class)
+	          .flatMap(referenciada -> referenciada ? Mono.just(true) : vez().then(restaurarContagem(foto)));
+	    }
+
+	    // O $max não desfaz uploads que incrementaram a contagem depois da consulta aos clientes
+	    private Mono<Boolean> restaurarContagem(String foto) {
+	      return mongoTemplate.count(Query.query(Criteria.where("foto").is(foto)), Cliente.class)
+	          .flatMap(clientes -> {
+	            if (clientes == 0) {
+	              return Mono.just(false);
+	            }
+	            log.warn("A foto {} estava sem referências com {} clientes usando; contagem refeita", foto, clientes);
+	            Update contagem = new Update().max("referencias", clientes).currentDate("atualizadaEm");
+	            return vez().then(mongoTemplate.upsert(Query.query(Criteria.where("id").is(foto)), contagem, FotoReferencia.class))
+	                .thenReturn(true);
+	          });
+	    }
+
+	    private void contarRemocao(String motivo, long tamanho) {
+	      meterRegistry.counter("fotos.coleta.removidas", "motivo", motivo).increment();
+	      bytesLiberados.increment(tamanho);
+	    }
+
+	    // Espaça as operações em 1/operacoes-por-segundo: cada chamada reserva o próximo horário livre e espera até ele, sem acumular
+	    // rajadas enquanto a coleta está parada
+	    private Mono<Void> vez() {
+	      return Mono.defer(() -> {
+	        long agora = System.nanoTime();
+	        long reservada = Math.max(proximaVez.getAndAccumulate(agora, (proxima, a) -> Math.max(proxima, a) + intervaloNanos), agora);
+	        return reservada <= agora ? Mono.empty() : Mono.delay(Duration.ofNanos(reservada - agora)).then();
+	      });
+	    }
+}
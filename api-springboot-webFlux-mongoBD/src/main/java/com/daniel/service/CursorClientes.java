@@ -0,0 +1,32 @@
+package com.daniel.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Codifica e decodifica o cursor opaco usado na paginação por _id (keyset). O cliente da API apenas devolve o valor recebido em
+ * `proximoCursor`, sem depender do formato interno.
+ *
+ * O tipo BSON do _id vem junto com o próprio valor: o Spring Data grava como ObjectId todo id em texto que seja um ObjectId válido e
+ * como texto os demais (ids informados pelo cliente no POST ou na importação). A decodificação segue a mesma regra.
+ */
+public final class CursorClientes {
+
+	private CursorClientes() {
+	}
+
+	public static String codificar(String id) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// Devolve um ObjectId ou, para ids gravados como texto, a própria String
+	public static Object decodificar(String cursor) {
+		String id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		if (id.isEmpty()) {
+			throw new IllegalArgumentException("Cursor inválido: " + cursor);
+		}
+		return ObjectId.isValid(id) ? new ObjectId(id) : id;
+	}
+}
@@ -0,0 +1,22 @@
+package com.daniel.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.storage.FotoArmazenada;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface FotoService {
+
+	public Mono<String> salvar(String nomeArquivo, Flux<DataBuffer> conteudo);
+
+	public Mono<Void> liberar(String foto);
+
+	public Mono<FotoArmazenada> carregar(Cliente cliente, Integer tamanho);
+
+	public boolean suportaTamanho(int tamanho);
+
+	public void gerarMiniaturas(String clienteId, String foto);
+}
@@ -0,0 +1,162 @@
+package com.daniel.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.documentos.FotoReferencia;
+import com.daniel.storage.FotoArmazenada;
+import com.daniel.storage.FotoStorage;
+import com.daniel.storage.GeradorMiniaturas;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+@Service
+public class FotoServiceImpl implements FotoService {
+
+	    private static final Logger log = LoggerFactory.getLogger(FotoServiceImpl.class);
+
+	    private static final Pattern EXTENSAO = Pattern.compile("\\.([A-Za-z0-9]{1,5})$");
+
+	    @Autowired
+	    private FotoStorage fotoStorage;
+
+	    @Autowired
+	    private GeradorMiniaturas geradorMiniaturas;
+
+	    @Autowired
+	    private ClienteService clienteService;
+
+	    @Autowired
+	    private ColetorFotos coletorFotos;
+
+	    @Autowired
+	    private ReactiveMongoTemplate mongoTemplate;
+
+	    @Value("${config.fotos.tamanho-maximo:10MB}")
+	    private DataSize tamanhoMaximo;
+
+	    @Override
+	    public Mono<String> salvar(String nomeArquivo, Flux<DataBuffer> conteudo) {
+	      return Mono.defer(() -> {
+	        // O SHA-256 é calculado enquanto o conteúdo é gravado, sem ler o arquivo de novo; o hash vira o nome definitivo da foto
+	        MessageDigest digest = novoDigest();
+	        AtomicLong recebidos = new AtomicLong();
+	        String temporario = ".upload-" + UUID.randomUUID() + ".tmp";
+
+	        Flux<DataBuffer> conteudoVerificado = conteudo.handle((buffer, sink) -> {
+	          if (recebidos.addAndGet(buffer.readableByteCount()) > tamanhoMaximo.toBytes()) {
+	            DataBufferUtils.release(buffer);
+	            sink.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "A foto excede " + tamanhoMaximo));
+	            return;
+	          }
+	          digest.update(buffer.asByteBuffer());
+	          sink.next(buffer);
+	        });
+
+	        return fotoStorage.salvar(temporario, conteudoVerificado)
+	            .then(Mono.fromCallable(() -> hex(digest.digest()) + extensao(nomeArquivo)))
+	            // A referência é registrada antes de olhar o arquivo: assim a coleta de fotos, que confere o registro depois de tirar o 
+	            // arquivo do lugar, nunca apaga uma foto que este upload acabou de reaproveitar
+	            .flatMap(foto -> registrarReferencia(foto)
+	                .then(fotoStorage.existe(foto))
+	                // Conteúdo repetido: o arquivo já existe e o temporário é descartado
+	                .flatMap(existe -> existe ? fotoStorage.remover(temporario) : fotoStorage.renomear(temporario, foto))
+	                .thenReturn(foto))
+	            .onErrorResume(e -> fotoStorage.remover(temporario).then(Mono.error(e)));
+	      });
+	    }
+
+	    @Override
+	    public Mono<Void> liberar(String foto) {
+	      if (foto == null) {
+	        return Mono.empty();
+	      }
+	      Update update = new Update().inc("referencias", -1).currentDate("atualizadaEm");
+	      // Com a contagem zerada o arquivo e as miniaturas são removidos em segundo plano, no ritmo da coleta, que antes confere de novo a
+      // contagem e os clientes que usam a foto
+	      return mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(foto)), update, 
+	          FindAndModifyOptions.options().returnNew(true), FotoReferencia.class)
+	          .filter(referencia -> referencia.getReferencias() <= 0)
+	          .doOnNext(referencia -> coletorFotos.agendar(foto))
+	          .then();
+	    }
+
+	    @Override
+	    public Mono<FotoArmazenada> carregar(Cliente cliente, Integer tamanho) {
+	      if (tamanho == null) {
+	        return fotoStorage.carregar(cliente.getFoto());
+	      }
+	      // A miniatura ainda não gerada (ou em geração) é produzida agora; pedidos simultâneos aguardam a mesma geração
+	      return fotoStorage.carregar(geradorMiniaturas.nomeVariante(cliente.getFoto(), tamanho))
+	          .switchIfEmpty(Mono.defer(() -> geradorMiniaturas.gerar(cliente.getFoto(), tamanho).flatMap(fotoStorage::carregar)));
+	    }
+
+	    @Override
+	    public boolean suportaTamanho(int tamanho) {
+	      return geradorMiniaturas.suporta(tamanho);
+	    }
+
+	    @Override
+	    public void gerarMiniaturas(String clienteId, String foto) {
+	      // Roda em segundo plano: o upload responde sem esperar as miniaturas
+	      Flux.fromStream(Arrays.stream(geradorMiniaturas.getTamanhos()).boxed())
+	          .flatMap(tamanho -> geradorMiniaturas.gerar(foto, tamanho).map(variante -> Tuples.of(String.valueOf(tamanho), variante)))
+	          .collectMap(Tuple2::getT1, Tuple2::getT2)
+	          .flatMap(miniaturas -> clienteService.updateMiniaturas(clienteId, foto, miniaturas))
+	          .subscribe(c -> log.debug("Miniaturas geradas para o cliente {}", clienteId), 
+	              e -> log.warn("Falha ao gerar miniaturas da foto {}: {}", foto, e.getMessage()));
+	    }
+
+	    private Mono<Void> registrarReferencia(String foto) {
+	      Update update = new Update().inc("referencias", 1).currentDate("atualizadaEm");
+	      return mongoTemplate.upsert(Query.query(Criteria.where("id").is(foto)), update, FotoReferencia.class).then();
+	    }
+
+	    private static MessageDigest novoDigest() {
+	      try {
+	        return MessageDigest.getInstance("SHA-256");
+	      } catch (NoSuchAlgorithmException e) {
+	        throw new IllegalStateException(e);
+	      }
+	    }
+
+	    private static String hex(byte[] bytes) {
+	      StringBuilder hex = new StringBuilder(bytes.length * 2);
+	      for (byte b : bytes) {
+	        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+	      }
+	      return hex.toString();
+	    }
+
+	    // Mantém a extensão original (".png", ".jpg"...) para que o tipo de conteúdo continue sendo deduzido pelo nome
+	    private static String extensao(String nomeArquivo) {
+	      Matcher m = EXTENSAO.matcher(nomeArquivo);
+	      return m.find() ? "." + m.group(1).toLowerCase(Locale.ROOT) : "";
+	    }
+}
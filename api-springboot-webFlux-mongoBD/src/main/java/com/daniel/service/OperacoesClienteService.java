@@ -0,0 +1,36 @@
+package com.daniel.service;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.ClientePorId;
+import com.daniel.dto.LeituraCliente;
+import com.daniel.storage.FotoArmazenada;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Fluxos da API de clientes que combinam cliente e foto, comuns a ClienteController e ClienteHandler; vazio é sempre "Não Encontrado"
+public interface OperacoesClienteService {
+
+	public Mono<Cliente> registrarComFoto(Cliente cliente, String nomeArquivo, Flux<DataBuffer> conteudo);
+
+	// Grava a nova foto, troca a do cliente e libera a referência à foto substituída
+	public Mono<Cliente> trocarFoto(String id, String nomeArquivo, Flux<DataBuffer> conteudo);
+
+	public Mono<FotoArmazenada> carregarFoto(String id, Integer tamanho);
+
+	// Com `naoModificado` (o If-None-Match da requisição), só a versão é buscada enquanto ela ainda for a do cliente da API
+	public Mono<LeituraCliente> ler(String id, Predicate<String> naoModificado);
+
+	// Foto e miniaturas do corpo são ignoradas; com `versao` (If-Match) desatualizada termina com "Pré-condição Falhou" (412)
+	public Mono<Cliente> editar(String id, Cliente alteracao, Long versao);
+
+	public Mono<Cliente> excluir(String id);
+
+	// Um item por id pedido, sem o cliente removido, depois de liberar a foto de cada um
+	public Flux<ClientePorId> excluirPorIds(List<String> ids);
+}
@@ -0,0 +1,93 @@
+package com.daniel.service;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.ClientePorId;
+import com.daniel.dto.LeituraCliente;
+import com.daniel.storage.FotoArmazenada;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class OperacoesClienteServiceImpl implements OperacoesClienteService {
+
+	    @Autowired
+	    private ClienteService clienteService;
+
+	    @Autowired
+	    private FotoService fotoService;
+
+	    @Override
+	    public Mono<Cliente> registrarComFoto(Cliente cliente, String nomeArquivo, Flux<DataBuffer> conteudo) {
+	      // Se o cliente não for gravado (sobrecarga, chave duplicada, banco fora do ar), a referência que o salvar acrescentou é devolvida
+	      return fotoService.salvar(nomeArquivo, conteudo).flatMap(foto -> {
+	        cliente.setFoto(foto);
+	        return clienteService.save(cliente).onErrorResume(e -> fotoService.liberar(foto).then(Mono.error(e)));
+	      }).doOnNext(c -> fotoService.gerarMiniaturas(c.getId(), c.getFoto()));
+	    }
+
+	    @Override
+	    public Mono<Cliente> trocarFoto(String id, String nomeArquivo, Flux<DataBuffer> conteudo) {
+	      // Libera exatamente a foto que a troca substituiu no banco. Se a troca falhar ou o cliente sumir no meio, quem perde a 
+	      // referência é a foto nova
+	      return clienteService.existsById(id).filter(Boolean::booleanValue)
+	          .flatMap(existe -> fotoService.salvar(nomeArquivo, conteudo))
+	          .flatMap(foto -> clienteService.updateFoto(id, foto)
+	              .onErrorResume(e -> fotoService.liberar(foto).then(Mono.error(e)))
+	              .flatMap(troca -> fotoService.liberar(troca.getFotoAnterior()).thenReturn(troca.getCliente()))
+	              .switchIfEmpty(Mono.defer(() -> fotoService.liberar(foto).then(Mono.empty()))))
+	          .doOnNext(c -> fotoService.gerarMiniaturas(c.getId(), c.getFoto()));
+	    }
+
+	    @Override
+	    public Mono<FotoArmazenada> carregarFoto(String id, Integer tamanho) {
+	      return clienteService.findById(id).filter(c -> c.getFoto() != null).flatMap(c -> fotoService.carregar(c, tamanho));
+	    }
+
+	    @Override
+	    public Mono<LeituraCliente> ler(String id, Predicate<String> naoModificado) {
+	      Mono<LeituraCliente> completa = clienteService.findById(id).map(c -> new LeituraCliente(ClienteServiceImpl.versaoOuZero(c), c));
+	      if (naoModificado == null) {
+	        return completa;
+	      }
+	      // O documento só é carregado quando o ETag do cliente da API está desatualizado
+	      return clienteService.findVersaoById(id)
+	          .filter(versao -> naoModificado.test(String.valueOf(versao)))
+	          .map(versao -> new LeituraCliente(versao, null))
+	          .switchIfEmpty(completa);
+	    }
+
+	    @Override
+	    public Mono<Cliente> editar(String id, Cliente alteracao, Long versao) {
+	      alteracao.setFoto(null);
+	      alteracao.setMiniaturas(null);
+
+	      // Só quando nada casou com o filtro, e só com If-Match, uma consulta de existência separa o 404 do 412
+	      return clienteService.update(id, alteracao, versao).switchIfEmpty(Mono.defer(() -> versao == null
+	          ? Mono.empty()
+	          : clienteService.existsById(id).flatMap(existe -> existe
+	              ? Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED))
+	              : Mono.empty())));
+	    }
+
+	    @Override
+	    public Mono<Cliente> excluir(String id) {
+	      return clienteService.findAndDeleteById(id).flatMap(c -> fotoService.liberar(c.getFoto()).thenReturn(c));
+	    }
+
+	    @Override
+	    public Flux<ClientePorId> excluirPorIds(List<String> ids) {
+	      return clienteService.deleteAllById(ids)
+	          .flatMapSequential(item -> fotoService.liberar(item.getCliente() == null ? null : item.getCliente().getFoto())
+	              .thenReturn(new ClientePorId(item.getId(), item.isEncontrado(), null)), 16);
+	    }
+}
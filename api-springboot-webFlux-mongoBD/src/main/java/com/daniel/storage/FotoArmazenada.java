@@ -0,0 +1,44 @@
+package com.daniel.storage;
+
+import java.time.Instant;
+
+import org.springframework.core.io.Resource;
+
+public class FotoArmazenada {
+
+	private final String nome;
+
+	private final Resource recurso;
+
+	private final long tamanho;
+
+	private final Instant ultimaModificacao;
+
+	public FotoArmazenada(String nome, Resource recurso, long tamanho, Instant ultimaModificacao) {
+		this.nome = nome;
+		this.recurso = recurso;
+		this.tamanho = tamanho;
+		this.ultimaModificacao = ultimaModificacao;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public Resource getRecurso() {
+		return recurso;
+	}
+
+	public long getTamanho() {
+		return tamanho;
+	}
+
+	public Instant getUltimaModificacao() {
+		return ultimaModificacao;
+	}
+
+	// Tamanho e data de modificação mudam sempre que o arquivo é regravado
+	public String getEtag() {
+		return Long.toHexString(tamanho) + "-" + Long.toHexString(ultimaModificacao.toEpochMilli());
+	}
+}
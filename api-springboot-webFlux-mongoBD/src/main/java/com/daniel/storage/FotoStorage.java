@@ -0,0 +1,28 @@
+package com.daniel.storage;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Armazenamento das fotos dos clientes. As implementações não podem bloquear a thread que chama os métodos: o conteúdo é recebido e 
+ * gravado como um fluxo de {@link DataBuffer} e os metadados são lidos fora do event loop.
+ */
+public interface FotoStorage {
+
+	public Mono<Void> salvar(String nome, Flux<DataBuffer> conteudo);
+
+	// Vazio quando a foto não existe
+	public Mono<FotoArmazenada> carregar(String nome);
+
+	public Mono<Boolean> existe(String nome);
+
+	// Substitui o destino se ele já existir
+	public Mono<Void> renomear(String origem, String destino);
+
+	public Mono<Void> remover(String nome);
+
+	// Todos os arquivos guardados, lidos conforme a demanda: o diretório nunca é carregado inteiro na memória
+	public Flux<FotoArmazenada> listar();
+}
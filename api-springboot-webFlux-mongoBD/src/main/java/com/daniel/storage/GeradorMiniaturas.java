@@ -0,0 +1,158 @@
+package com.daniel.storage;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Gera as miniaturas JPEG das fotos. A decodificação e o redimensionamento bloqueiam e usam CPU, então rodam em um pool próprio e limitado 
+ * (`config.fotos.miniaturas.threads`), nunca no event loop do Netty. Pedidos simultâneos da mesma miniatura compartilham a mesma geração.
+ * A miniatura é gravada em um temporário e só então renomeada (ATOMIC_MOVE) para o nome final, então quem a encontra no armazenamento
+ * nunca lê um arquivo pela metade. As dimensões da foto são lidas do cabeçalho antes de decodificá-la: acima de
+ * `config.fotos.miniaturas.pixels-maximo` ela é recusada, já que o limite do upload conta bytes e não pixels.
+ */
+@Component
+public class GeradorMiniaturas {
+
+	@Autowired
+	private FotoStorage fotoStorage;
+
+	@Value("${config.fotos.miniaturas.tamanhos:64,256}")
+	private int[] tamanhos;
+
+	@Value("${config.fotos.miniaturas.threads:2}")
+	private int threads;
+
+	// 40 megapixels ocupam cerca de 160MB decodificados (4 bytes por pixel)
+	@Value("${config.fotos.miniaturas.pixels-maximo:40000000}")
+	private long pixelsMaximo;
+
+	private Scheduler scheduler;
+
+	private final Map<String, Mono<String>> emAndamento = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void iniciar() {
+		scheduler = Schedulers.newBoundedElastic(threads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "miniaturas");
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		scheduler.dispose();
+	}
+
+	public int[] getTamanhos() {
+		return tamanhos;
+	}
+
+	public boolean suporta(int tamanho) {
+		for (int t : tamanhos) {
+			if (t == tamanho) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// "abc-foto.png" com tamanho 64 vira "abc-foto-64.jpg", guardada ao lado da original
+	public String nomeVariante(String foto, int tamanho) {
+		return semExtensao(foto) + "-" + tamanho + ".jpg";
+	}
+
+	// Parte do nome comum à foto e às suas variantes
+	public String semExtensao(String foto) {
+		int ponto = foto.lastIndexOf('.');
+		return ponto > 0 ? foto.substring(0, ponto) : foto;
+	}
+
+	public Mono<String> gerar(String foto, int tamanho) {
+		String variante = nomeVariante(foto, tamanho);
+		return emAndamento.computeIfAbsent(variante, chave -> {
+			Mono<String> geracao = fotoStorage.carregar(foto)
+					.publishOn(scheduler)
+					.map(original -> redimensionar(original.getRecurso(), tamanho))
+					.flatMap(bytes -> salvar(chave, bytes))
+					.doFinally(sinal -> emAndamento.remove(chave))
+					.cache();
+			return geracao;
+		});
+	}
+
+	// Mesmo prefixo dos uploads: um temporário que sobrar de uma queda do processo é removido pela reconciliação da coleta de fotos
+	private Mono<String> salvar(String variante, byte[] bytes) {
+		String temporario = ".upload-" + UUID.randomUUID() + ".tmp";
+		return fotoStorage.salvar(temporario, Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes)))
+				.then(fotoStorage.renomear(temporario, variante))
+				.onErrorResume(e -> fotoStorage.remover(temporario).then(Mono.error(e)))
+				.thenReturn(variante);
+	}
+
+	private byte[] redimensionar(Resource recurso, int tamanho) {
+		try (InputStream entrada = recurso.getInputStream(); ImageInputStream imagem = ImageIO.createImageInputStream(entrada)) {
+			BufferedImage original = decodificar(imagem, recurso.getFilename());
+
+			// O maior lado passa a ter `tamanho` pixels, mantendo a proporção; imagens menores não são ampliadas
+			double escala = Math.min(1.0, (double) tamanho / Math.max(original.getWidth(), original.getHeight()));
+			int largura = Math.max(1, (int) Math.round(original.getWidth() * escala));
+			int altura = Math.max(1, (int) Math.round(original.getHeight() * escala));
+
+			BufferedImage miniatura = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = miniatura.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.drawImage(original, 0, 0, largura, altura, null);
+			} finally {
+				g.dispose();
+			}
+
+			ByteArrayOutputStream saida = new ByteArrayOutputStream();
+			ImageIO.write(miniatura, "jpg", saida);
+			return saida.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException("Falha ao gerar miniatura de " + recurso.getFilename(), e);
+		}
+	}
+
+	private BufferedImage decodificar(ImageInputStream imagem, String nome) throws IOException {
+		Iterator<ImageReader> leitores = imagem == null ? null : ImageIO.getImageReaders(imagem);
+		if (leitores == null || !leitores.hasNext()) {
+			throw new IllegalArgumentException("Formato de imagem não suportado: " + nome);
+		}
+		ImageReader leitor = leitores.next();
+		try {
+			leitor.setInput(imagem, true, true);
+			// Largura e altura vêm do cabeçalho, sem decodificar os pixels
+			long pixels = (long) leitor.getWidth(0) * leitor.getHeight(0);
+			if (pixels > pixelsMaximo) {
+				throw new IllegalArgumentException("Imagem com " + pixels + " pixels excede o limite de " + pixelsMaximo + ": " + nome);
+			}
+			return leitor.read(0);
+		} finally {
+			leitor.dispose();
+		}
+	}
+}
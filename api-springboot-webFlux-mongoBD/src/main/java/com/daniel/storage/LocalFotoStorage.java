@@ -0,0 +1,121 @@
+package com.daniel.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Guarda as fotos em um diretório local (`config.uploads.path`). A gravação usa {@link DataBufferUtils#write} sobre um 
+ * `AsynchronousFileChannel`, e as operações de sistema de arquivos que bloqueiam (criar diretório, ler atributos) rodam no 
+ * `Schedulers.boundedElastic()`. A foto é devolvida como {@link FileSystemResource} para que o WebFlux a envie com transferência zero-copy.
+ */
+@Component
+public class LocalFotoStorage implements FotoStorage {
+
+	@Value("${config.uploads.path}")
+	private String path;
+
+	private Path diretorio;
+
+	@PostConstruct
+	public void iniciar() {
+		diretorio = Paths.get(path).toAbsolutePath().normalize();
+	}
+
+	@Override
+	public Mono<Void> salvar(String nome, Flux<DataBuffer> conteudo) {
+		return Mono.fromCallable(() -> Files.createDirectories(diretorio))
+				.subscribeOn(Schedulers.boundedElastic())
+				.then(Mono.defer(() -> DataBufferUtils.write(conteudo, resolver(nome), 
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+	}
+
+	@Override
+	public Mono<FotoArmazenada> carregar(String nome) {
+		return Mono.fromCallable(() -> {
+			Path arquivo = resolver(nome);
+			if (!Files.isRegularFile(arquivo)) {
+				return null;
+			}
+			BasicFileAttributes atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+			return new FotoArmazenada(nome, new FileSystemResource(arquivo), atributos.size(), atributos.lastModifiedTime().toInstant());
+		}).subscribeOn(Schedulers.boundedElastic());
+	}
+
+	@Override
+	public Mono<Boolean> existe(String nome) {
+		return Mono.fromCallable(() -> Files.isRegularFile(resolver(nome))).subscribeOn(Schedulers.boundedElastic());
+	}
+
+	@Override
+	public Mono<Void> renomear(String origem, String destino) {
+		return Mono.fromCallable(() -> Files.move(resolver(origem), resolver(destino), 
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE))
+				.subscribeOn(Schedulers.boundedElastic())
+				.then();
+	}
+
+	@Override
+	public Mono<Void> remover(String nome) {
+		return Mono.fromCallable(() -> Files.deleteIfExists(resolver(nome))).subscribeOn(Schedulers.boundedElastic()).then();
+	}
+
+	@Override
+	public Flux<FotoArmazenada> listar() {
+		// O subscribeOn também leva os pedidos seguintes (request) para o boundedElastic, então cada leitura do diretório fica fora do 
+		// event loop mesmo quando quem consome está em outra thread
+		return Flux.defer(() -> !Files.isDirectory(diretorio) ? Flux.<Path>empty() 
+				: Flux.using(() -> Files.newDirectoryStream(diretorio), Flux::fromIterable, LocalFotoStorage::fechar))
+				.handle((Path arquivo, SynchronousSink<FotoArmazenada> sink) -> {
+					try {
+						BasicFileAttributes atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+						if (atributos.isRegularFile()) {
+							sink.next(new FotoArmazenada(arquivo.getFileName().toString(), new FileSystemResource(arquivo), 
+									atributos.size(), atributos.lastModifiedTime().toInstant()));
+						}
+					} catch (NoSuchFileException e) {
+						// Removido entre a listagem e a leitura dos atributos
+					} catch (IOException e) {
+						sink.error(e);
+					}
+				})
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	private static void fechar(DirectoryStream<Path> entradas) {
+		try {
+			entradas.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Impede que um nome como "../../etc/passwd" saia do diretório de uploads
+	private Path resolver(String nome) {
+		Path arquivo = diretorio.resolve(nome).normalize();
+		if (!arquivo.startsWith(diretorio)) {
+			throw new IllegalArgumentException("Nome de foto inválido: " + nome);
+		}
+		return arquivo;
+	}
+}
@@ -3,7 +3,8 @@ package com.daniel;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Sem MongoDB no ambiente de teste: o preenchimento de versões da subida desiste logo em vez de esperar a seleção de servidor
+@SpringBootTest(properties = "config.clientes.versoes.tempo-maximo=1s")
 class ApiSpringbootWebFluxMongoBdApplicationTests {
 
 	@Test
@@ -0,0 +1,302 @@
+package com.daniel.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.documentos.FotoReferencia;
+import com.daniel.dto.PaginaClientes;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// API anotada de ponta a ponta, com o MongoDB em memória; a coleta de fotos e o aquecimento ficam desligados para não disputar o banco, e
+// os blocos das operações por ids são pequenos para que poucos ids já atravessem mais de um
+@SpringBootTest(properties = {"config.recursos.aquecimento.habilitado=false", "config.fotos.coleta.habilitado=false", 
+		"config.clientes.lote-ids.tamanho-bloco=2"})
+@AutoConfigureWebTestClient
+class ClienteControllerTests {
+
+	private static final MongoServer servidor = new MongoServer(new MemoryBackend());
+
+	private static final InetSocketAddress endereco = servidor.bind();
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@DynamicPropertySource
+	static void mongo(DynamicPropertyRegistry propriedades) {
+		propriedades.add("spring.data.mongodb.uri", () -> "mongodb://localhost:" + endereco.getPort() + "/clientes");
+	}
+
+	@AfterAll
+	static void pararMongo() {
+		servidor.shutdownNow();
+	}
+
+	@BeforeEach
+	void limpar() {
+		mongoTemplate.remove(new Query(), Cliente.class).block();
+		mongoTemplate.remove(new Query(), FotoReferencia.class).block();
+	}
+
+	@Test
+	void paginasPercorremIdsDeTextoEObjectIdSemRepetirNemPular() {
+		// Ids de texto (importados de outro sistema) misturados aos gerados pelo MongoDB
+		List<Object> ids = List.of("a", "b", "c", new ObjectId(), new ObjectId());
+		mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cliente.class))
+				.flatMapMany(clientes -> Flux.fromIterable(ids).concatMap(id -> clientes.insertOne(new Document("_id", id)
+						.append("nome", "Ana").append("sobrenome", "Silva").append("idade", 30).append("salario", 10.0)
+						.append("versao", 0L))))
+				.blockLast();
+
+		List<String> vistos = new ArrayList<>();
+		String cursor = null;
+		int paginas = 0;
+		do {
+			String uri = cursor == null ? "/api/clientes/pagina?tamanho=2" : "/api/clientes/pagina?tamanho=2&cursor=" + cursor;
+			PaginaClientes pagina = webTestClient.get().uri(uri)
+					.exchange()
+					.expectStatus().isOk()
+					.expectHeader().exists("ETag")
+					.expectBody(PaginaClientes.class)
+					.returnResult().getResponseBody();
+			pagina.getClientes().forEach(cliente -> vistos.add(cliente.getId()));
+			cursor = pagina.getProximoCursor();
+			paginas++;
+		} while (cursor != null && paginas < 10);
+
+		assertThat(vistos).containsExactlyInAnyOrder(ids.stream().map(String::valueOf).toArray(String[]::new));
+		assertThat(paginas).isGreaterThanOrEqualTo(3);
+	}
+
+	@Test
+	void listaEmStreamingRespondeNoTipoPedido() {
+		criar("Ana");
+		criar("Bia");
+
+		List<Cliente> linhas = webTestClient.get().uri("/api/clientes")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(Cliente.class)
+				.getResponseBody().collectList().block();
+		assertThat(linhas).extracting(Cliente::getNome).containsExactlyInAnyOrder("Ana", "Bia");
+
+		List<Cliente> eventos = webTestClient.get().uri("/api/clientes")
+				.accept(MediaType.TEXT_EVENT_STREAM)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+				.returnResult(Cliente.class)
+				.getResponseBody().collectList().block();
+		assertThat(eventos).extracting(Cliente::getNome).containsExactlyInAnyOrder("Ana", "Bia");
+
+		// Sem pedir streaming, o array JSON de sempre
+		webTestClient.get().uri("/api/clientes")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+				.expectBodyList(Cliente.class).hasSize(2);
+	}
+
+	@Test
+	void etagIgualAoAtualRespondeNaoModificado() {
+		String id = criar("Ana");
+		String uri = "/api/clientes/" + id;
+
+		webTestClient.get().uri(uri).exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("ETag", "\"0\"");
+		webTestClient.get().uri(uri).ifNoneMatch("\"0\"").exchange()
+				.expectStatus().isNotModified()
+				.expectBody().isEmpty();
+
+		// Depois de uma alteração o mesmo ETag já não vale
+		editar(id, "Bia", null).expectStatus().is2xxSuccessful();
+		webTestClient.get().uri(uri).ifNoneMatch("\"0\"").exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("ETag", "\"1\"")
+				.expectBody(Cliente.class).value(lido -> assertThat(lido.getNome()).isEqualTo("Bia"));
+	}
+
+	@Test
+	void paginaComEtagAtualRespondeNaoModificado() {
+		criar("Ana");
+		String etag = webTestClient.get().uri("/api/clientes/pagina").exchange()
+				.expectStatus().isOk()
+				.returnResult(PaginaClientes.class).getResponseHeaders().getETag();
+
+		webTestClient.get().uri("/api/clientes/pagina").ifNoneMatch(etag).exchange()
+				.expectStatus().isNotModified();
+	}
+
+	@Test
+	void ifMatchDesatualizadoRespondePreCondicaoFalhou() {
+		String id = criar("Ana");
+
+		editar(id, "Bia", "\"0\"")
+				.expectStatus().is2xxSuccessful()
+				.expectHeader().valueEquals("ETag", "\"1\"");
+		// A versão 0 ficou para trás: a alteração não é aplicada
+		editar(id, "Carla", "\"0\"")
+				.expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+		webTestClient.get().uri("/api/clientes/" + id).exchange()
+				.expectBody(Cliente.class).value(lido -> assertThat(lido.getNome()).isEqualTo("Bia"));
+	}
+
+	@Test
+	void ifMatchDeClienteInexistenteRespondeNaoEncontrado() {
+		editar(new ObjectId().toHexString(), "Bia", "\"0\"")
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	void importacaoComIdRepetidoRejeitaSoORegistroRepetido() {
+		Instant antigo = Instant.parse("2020-01-01T00:00:00Z");
+		mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cliente.class))
+				.flatMap(clientes -> Mono.from(clientes.insertOne(new Document("_id", "existente").append("nome", "Ana")
+						.append("sobrenome", "Silva").append("idade", 30).append("salario", 10.0).append("versao", 5L)
+						.append("atualizadoEm", Date.from(antigo)))))
+				.block();
+		String corpo = String.join("\n",
+				"{\"id\":\"novo-1\",\"nome\":\"Bia\",\"sobrenome\":\"Souza\",\"idade\":20,\"salario\":5.0}",
+				"{\"id\":\"existente\",\"nome\":\"Carla\",\"sobrenome\":\"Lima\",\"idade\":40,\"salario\":7.0}",
+				"{\"id\":\"novo-2\",\"nome\":\"Davi\",\"sobrenome\":\"Melo\",\"idade\":50,\"salario\":9.0}") + "\n";
+
+		webTestClient.post().uri("/api/clientes/bulk")
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.accept(MediaType.APPLICATION_JSON)
+				.bodyValue(corpo)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(1)
+				.jsonPath("$[0].recebidos").isEqualTo(3)
+				.jsonPath("$[0].inseridos").isEqualTo(2)
+				.jsonPath("$[0].erros.length()").isEqualTo(1)
+				.jsonPath("$[0].erros[0].indice").isEqualTo(1)
+				.jsonPath("$[0].erros[0].mensagens[0]").value(mensagem -> assertThat((String) mensagem).contains("duplicate key"));
+
+		// Os aceitos entram na versão 0 com a data da inclusão; o repetido continua como estava
+		for (String id : List.of("novo-1", "novo-2")) {
+			Cliente novo = mongoTemplate.findById(id, Cliente.class).block();
+			assertThat(novo.getVersao()).isZero();
+			assertThat(novo.getAtualizadoEm()).isAfter(antigo);
+		}
+		Cliente existente = mongoTemplate.findById("existente", Cliente.class).block();
+		assertThat(existente.getNome()).isEqualTo("Ana");
+		assertThat(existente.getVersao()).isEqualTo(5L);
+		assertThat(existente.getAtualizadoEm()).isEqualTo(antigo);
+	}
+
+	@Test
+	void buscaPorIdsRespondeNaOrdemPedidaEMarcaOsQueFaltam() {
+		inserir("c1", null);
+		inserir("c2", null);
+		inserir("c3", null);
+
+		// Cinco ids em blocos de dois: a resposta segue a ordem do pedido, e não a de cada bloco
+		webTestClient.post().uri("/api/clientes/batch-get")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(List.of("c3", "falta", "c1", "c2", "outro"))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(JsonNode.class).value(itens -> {
+					assertThat(itens).extracting(item -> item.get("id").asText()).containsExactly("c3", "falta", "c1", "c2", "outro");
+					assertThat(itens).extracting(item -> item.get("encontrado").asBoolean()).containsExactly(true, false, true, true, false);
+					assertThat(itens.get(0).at("/cliente/nome").asText()).isEqualTo("Ana");
+					assertThat(itens.get(1).get("cliente").isNull()).isTrue();
+				});
+	}
+
+	@Test
+	void exclusaoPorIdsRemoveNaOrdemPedidaELiberaCadaFotoUmaVez() {
+		inserir("c1", "f.png");
+		inserir("c2", "f.png");
+		inserir("c3", null);
+		FotoReferencia foto = new FotoReferencia();
+		foto.setId("f.png");
+		foto.setReferencias(2);
+		mongoTemplate.save(foto).block();
+
+		// O id repetido conta uma vez
+		webTestClient.post().uri("/api/clientes/batch-delete")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(List.of("c2", "falta", "c1", "c2", "c3"))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(JsonNode.class).value(itens -> {
+					assertThat(itens).extracting(item -> item.get("id").asText()).containsExactly("c2", "falta", "c1", "c3");
+					assertThat(itens).extracting(item -> item.get("encontrado").asBoolean()).containsExactly(true, false, true, true);
+				});
+
+		assertThat(mongoTemplate.count(new Query(), Cliente.class).block()).isZero();
+		assertThat(mongoTemplate.findById("f.png", FotoReferencia.class).block().getReferencias()).isZero();
+	}
+
+	private void inserir(String id, String foto) {
+		mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cliente.class))
+				.flatMap(clientes -> Mono.from(clientes.insertOne(new Document("_id", id).append("nome", "Ana").append("sobrenome", "Silva")
+						.append("idade", 30).append("salario", 10.0).append("foto", foto).append("versao", 0L))))
+				.block();
+	}
+
+	private WebTestClient.ResponseSpec editar(String id, String nome, String ifMatch) {
+		Cliente alteracao = new Cliente();
+		alteracao.setNome(nome);
+		WebTestClient.RequestBodySpec requisicao = webTestClient.put().uri("/api/clientes/" + id).contentType(MediaType.APPLICATION_JSON);
+		if (ifMatch != null) {
+			requisicao.header(HttpHeaders.IF_MATCH, ifMatch);
+		}
+		return requisicao.bodyValue(alteracao).exchange();
+	}
+
+	// O id vem do Location da resposta (o corpo embrulha o cliente com a mensagem de sucesso)
+	private String criar(String nome) {
+		Cliente cliente = new Cliente();
+		cliente.setNome(nome);
+		cliente.setSobrenome("Silva");
+		cliente.setIdade(30);
+		cliente.setSalario(10.0);
+		String local = webTestClient.post().uri("/api/clientes")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(cliente)
+				.exchange()
+				.expectStatus().isCreated()
+				.returnResult(Void.class).getResponseHeaders().getLocation().getPath();
+		return local.substring(local.lastIndexOf('/') + 1);
+	}
+}
@@ -0,0 +1,227 @@
+package com.daniel.idempotencia;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.daniel.documentos.RequisicaoIdempotente;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class IdempotenciaWebFilterTests {
+
+	private static MongoServer servidor;
+
+	private static MongoClient mongoClient;
+
+	private ReactiveMongoTemplate mongoTemplate;
+
+	// Quantas vezes a requisição chegou ao controller
+	private final AtomicInteger execucoes = new AtomicInteger();
+
+	@BeforeAll
+	static void subirMongo() {
+		servidor = new MongoServer(new MemoryBackend());
+		InetSocketAddress endereco = servidor.bind();
+		mongoClient = MongoClients.create("mongodb://localhost:" + endereco.getPort());
+	}
+
+	@AfterAll
+	static void pararMongo() {
+		mongoClient.close();
+		servidor.shutdownNow();
+	}
+
+	@BeforeEach
+	void limpar() {
+		mongoTemplate = new ReactiveMongoTemplate(mongoClient, "idempotencia");
+		mongoTemplate.remove(new Query(), RequisicaoIdempotente.class).block();
+	}
+
+	@Test
+	void tentativaDuranteAExecucaoEsperaPelaPrimeira() {
+		IdempotenciaWebFilter filtro = filtro();
+		MockServerWebExchange primeira = post("k1", "{\"nome\":\"A\"}", null);
+		MockServerWebExchange segunda = post("k1", "{\"nome\":\"A\"}", null);
+
+		Mono.when(filtro.filter(primeira, criar(HttpStatus.CREATED, Duration.ofMillis(300))),
+				Mono.delay(Duration.ofMillis(50)).then(filtro.filter(segunda, criar(HttpStatus.CREATED, Duration.ZERO)))).block();
+
+		assertThat(execucoes).hasValue(1);
+		assertThat(segunda.getResponse().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(segunda.getResponse().getHeaders().getFirst(IdempotenciaWebFilter.IDEMPOTENT_REPLAYED)).isEqualTo("true");
+		assertThat(segunda.getResponse().getBodyAsString().block()).isEqualTo(primeira.getResponse().getBodyAsString().block());
+	}
+
+	@Test
+	void tentativaDepoisDeConcluidaRecebeARespostaGuardada() {
+		IdempotenciaWebFilter filtro = filtro();
+		filtro.filter(post("k2", "{\"nome\":\"A\"}", null), criar(HttpStatus.CREATED, Duration.ZERO)).block();
+
+		MockServerWebExchange repetida = post("k2", "{\"nome\":\"A\"}", null);
+		filtro.filter(repetida, criar(HttpStatus.CREATED, Duration.ZERO)).block();
+		// Outra instância (ou a mesma depois de reiniciar) encontra a resposta no MongoDB
+		MockServerWebExchange outraInstancia = post("k2", "{\"nome\":\"A\"}", null);
+		filtro().filter(outraInstancia, criar(HttpStatus.CREATED, Duration.ZERO)).block();
+
+		assertThat(execucoes).hasValue(1);
+		for (MockServerWebExchange exchange : List.of(repetida, outraInstancia)) {
+			assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+			assertThat(exchange.getResponse().getHeaders().getFirst(IdempotenciaWebFilter.IDEMPOTENT_REPLAYED)).isEqualTo("true");
+			assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"execucao\":1}");
+		}
+	}
+
+	@Test
+	void mesmaChaveComOutraRequisicaoEhRejeitada() {
+		IdempotenciaWebFilter filtro = filtro();
+		filtro.filter(post("k3", "{\"nome\":\"A\"}", null), criar(HttpStatus.CREATED, Duration.ZERO)).block();
+
+		StepVerifier.create(filtro.filter(post("k3", "{\"nome\":\"B\"}", null), criar(HttpStatus.CREATED, Duration.ZERO)))
+				.expectErrorSatisfies(erro -> assertThat(((ResponseStatusException) erro).getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY))
+				.verify();
+		StepVerifier.create(filtro().filter(post("k3", "{\"nome\":\"B\"}", null), criar(HttpStatus.CREATED, Duration.ZERO)))
+				.expectErrorSatisfies(erro -> assertThat(((ResponseStatusException) erro).getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY))
+				.verify();
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	void multipartComOutroArquivoEhRejeitado() {
+		IdempotenciaWebFilter filtro = filtro();
+		filtro.filter(multipart("m1", "conteudo-a"), lerMultipart()).block();
+		MockServerWebExchange repetida = multipart("m1", "conteudo-a");
+		filtro.filter(repetida, lerMultipart()).block();
+
+		assertThat(repetida.getResponse().getHeaders().getFirst(IdempotenciaWebFilter.IDEMPOTENT_REPLAYED)).isEqualTo("true");
+		StepVerifier.create(filtro.filter(multipart("m1", "conteudo-b"), lerMultipart()))
+				.expectErrorSatisfies(erro -> assertThat(((ResponseStatusException) erro).getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY))
+				.verify();
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	void chaveValePorCliente() {
+		IdempotenciaWebFilter filtro = filtro();
+		filtro.filter(post("k4", "{\"nome\":\"A\"}", "10.0.0.1"), criar(HttpStatus.CREATED, Duration.ZERO)).block();
+		MockServerWebExchange outroCliente = post("k4", "{\"nome\":\"A\"}", "10.0.0.2");
+		filtro.filter(outroCliente, criar(HttpStatus.CREATED, Duration.ZERO)).block();
+
+		assertThat(execucoes).hasValue(2);
+		assertThat(outroCliente.getResponse().getHeaders().getFirst(IdempotenciaWebFilter.IDEMPOTENT_REPLAYED)).isNull();
+	}
+
+	@Test
+	void respostaDeErroLiberaAChave() {
+		IdempotenciaWebFilter filtro = filtro();
+		MockServerWebExchange recusada = post("k5", "{\"nome\":\"A\"}", null);
+		filtro.filter(recusada, criar(HttpStatus.BAD_REQUEST, Duration.ZERO)).block();
+		MockServerWebExchange novaTentativa = post("k5", "{\"nome\":\"A\"}", null);
+		filtro.filter(novaTentativa, criar(HttpStatus.CREATED, Duration.ZERO)).block();
+
+		assertThat(recusada.getResponse().getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(execucoes).hasValue(2);
+		assertThat(novaTentativa.getResponse().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(novaTentativa.getResponse().getHeaders().getFirst(IdempotenciaWebFilter.IDEMPOTENT_REPLAYED)).isNull();
+	}
+
+	@Test
+	void execucaoEmAndamentoEmOutraInstanciaEhConflito() {
+		Mono<Void> primeira = filtro().filter(post("k6", "{\"nome\":\"A\"}", null), criar(HttpStatus.CREATED, Duration.ofMillis(500)))
+				.cache();
+		primeira.subscribe();
+
+		StepVerifier.create(Mono.delay(Duration.ofMillis(150))
+				.then(filtro().filter(post("k6", "{\"nome\":\"A\"}", null), criar(HttpStatus.CREATED, Duration.ZERO))))
+				.expectErrorSatisfies(erro -> assertThat(((ResponseStatusException) erro).getStatus()).isEqualTo(HttpStatus.CONFLICT))
+				.verify();
+		primeira.block();
+		assertThat(execucoes).hasValue(1);
+	}
+
+	private IdempotenciaWebFilter filtro() {
+		IdempotenciaWebFilter filtro = new IdempotenciaWebFilter();
+		ReflectionTestUtils.setField(filtro, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(filtro, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(filtro, "codecs", ServerCodecConfigurer.create());
+		ReflectionTestUtils.setField(filtro, "habilitado", true);
+		ReflectionTestUtils.setField(filtro, "padroes", List.of("/api/clientes"));
+		ReflectionTestUtils.setField(filtro, "ttlHoras", 24L);
+		ReflectionTestUtils.setField(filtro, "tamanhoMaximoCache", 100L);
+		ReflectionTestUtils.setField(filtro, "andamentoMaximoSegundos", 120L);
+		filtro.iniciar();
+		return filtro;
+	}
+
+	private static MockServerWebExchange post(String chave, String corpo, String endereco) {
+		MockServerHttpRequest.BodyBuilder request = MockServerHttpRequest.post("/api/clientes")
+				.header(IdempotenciaWebFilter.IDEMPOTENCY_KEY, chave)
+				.contentType(MediaType.APPLICATION_JSON);
+		if (endereco != null) {
+			request.remoteAddress(new InetSocketAddress(endereco, 40000));
+		}
+		return MockServerWebExchange.from(request.body(corpo));
+	}
+
+	private static MockServerWebExchange multipart(String chave, String arquivo) {
+		String corpo = "--limite\r\nContent-Disposition: form-data; name=\"nome\"\r\n\r\nAna\r\n"
+				+ "--limite\r\nContent-Disposition: form-data; name=\"file\"; filename=\"a.png\"\r\nContent-Type: image/png\r\n\r\n"
+				+ arquivo + "\r\n--limite--\r\n";
+		return MockServerWebExchange.from(MockServerHttpRequest.post("/api/clientes")
+				.header(IdempotenciaWebFilter.IDEMPOTENCY_KEY, chave)
+				.contentType(MediaType.parseMediaType("multipart/form-data; boundary=limite"))
+				.contentLength(corpo.getBytes(StandardCharsets.UTF_8).length)
+				.body(corpo));
+	}
+
+	// Como um @RequestPart: o corpo chega pelo multipart do exchange, não por getBody()
+	private WebFilterChain lerMultipart() {
+		return exchange -> exchange.getMultipartData()
+				.flatMapMany(partes -> Flux.fromIterable(partes.toSingleValueMap().values()))
+				.concatMap(Part::content)
+				.doOnNext(DataBufferUtils::release)
+				.then(Mono.defer(() -> responder(exchange, HttpStatus.CREATED)));
+	}
+
+	// Faz o papel do controller: lê o corpo, espera e responde com o número da execução
+	private WebFilterChain criar(HttpStatus status, Duration demora) {
+		return exchange -> exchange.getRequest().getBody().then(Mono.delay(demora)).then(Mono.defer(() -> responder(exchange, status)));
+	}
+
+	private Mono<Void> responder(ServerWebExchange exchange, HttpStatus status) {
+		byte[] corpo = ("{\"execucao\":" + execucoes.incrementAndGet() + "}").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponse().setStatusCode(status);
+		exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(corpo)));
+	}
+}
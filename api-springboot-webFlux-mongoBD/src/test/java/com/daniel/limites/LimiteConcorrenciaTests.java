@@ -0,0 +1,116 @@
+package com.daniel.limites;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class LimiteConcorrenciaTests {
+
+	private LimiteConcorrencia limite;
+
+	@BeforeEach
+	void criar() {
+		limite = criar(50, 50, 2000);
+	}
+
+	@Test
+	void rajadaDeOperacoesLentasReduzUmaVez() {
+		// Vinte operações lentas em andamento juntas viram o mesmo congestionamento: uma redução só (50 * 0,9)
+		concluir(Flux.merge(IntStream.range(0, 20).mapToObj(i -> limite.proteger(lenta())).toArray(Mono[]::new)));
+
+		assertThat(limite.limiteAtual()).isEqualTo(45);
+	}
+
+	@Test
+	void operacaoLentaIniciadaDepoisDaReducaoReduzDeNovo() {
+		for (int i = 0; i < 3; i++) {
+			concluir(limite.proteger(lenta()));
+		}
+
+		// 50 * 0,9^3 = 36,45
+		assertThat(limite.limiteAtual()).isEqualTo(36);
+	}
+
+	@Test
+	void operacoesRapidasAumentamCercaDeUmPorLimite() {
+		for (int i = 0; i < 50; i++) {
+			limite.proteger(Mono.just(i)).block();
+		}
+
+		assertThat(limite.limiteAtual()).isEqualTo(50);
+		for (int i = 0; i < 5; i++) {
+			limite.proteger(Mono.just(i)).block();
+		}
+		assertThat(limite.limiteAtual()).isEqualTo(51);
+	}
+
+	@Test
+	void operacaoPesadaUsaALatenciaAlvoPropria() {
+		// Lenta para uma busca, dentro do alvo de uma operação pesada
+		concluir(Flux.merge(IntStream.range(0, 10).mapToObj(i -> limite.protegerPesada(lenta())).toArray(Mono[]::new)));
+		assertThat(limite.limiteAtual()).isEqualTo(50);
+
+		LimiteConcorrencia alvoPesadoCurto = criar(50, 50, 20);
+		concluir(alvoPesadoCurto.protegerPesada(lenta()));
+		assertThat(alvoPesadoCurto.limiteAtual()).isEqualTo(45);
+	}
+
+	@Test
+	void reducaoNaoPassaDoMinimo() {
+		for (int i = 0; i < 30; i++) {
+			concluir(limite.proteger(lenta()));
+		}
+
+		assertThat(limite.limiteAtual()).isEqualTo(4);
+	}
+
+	@Test
+	void cancelamentoNaoMexeNoLimite() {
+		StepVerifier.create(limite.proteger(Mono.never())).thenAwait(Duration.ofMillis(80)).thenCancel().verify();
+
+		assertThat(limite.limiteAtual()).isEqualTo(50);
+	}
+
+	@Test
+	void acimaDoLimiteRejeitaNaHora() {
+		LimiteConcorrencia pequeno = criar(4, 50, 2000);
+		IntStream.range(0, 4).forEach(i -> pequeno.proteger(Mono.delay(Duration.ofMillis(200))).subscribe());
+
+		StepVerifier.create(pequeno.proteger(Mono.just(1))).expectError(SobrecargaException.class).verify();
+	}
+
+	// O doFinally que devolve a vaga roda depois de o sinal final chegar a quem espera: a pausa garante que o limite já foi ajustado
+	private static void concluir(Publisher<?> operacoes) {
+		Flux.from(operacoes).then(Mono.delay(Duration.ofMillis(10))).block();
+	}
+
+	private static Mono<Long> lenta() {
+		return Mono.delay(Duration.ofMillis(60));
+	}
+
+	private static LimiteConcorrencia criar(int inicial, long latenciaAlvoMs, long latenciaAlvoPesadaMs) {
+		LimiteConcorrencia limite = new LimiteConcorrencia();
+		ReflectionTestUtils.setField(limite, "habilitado", true);
+		ReflectionTestUtils.setField(limite, "inicial", inicial);
+		ReflectionTestUtils.setField(limite, "minimo", 4);
+		ReflectionTestUtils.setField(limite, "maximo", 500);
+		ReflectionTestUtils.setField(limite, "latenciaAlvoMs", latenciaAlvoMs);
+		ReflectionTestUtils.setField(limite, "latenciaAlvoPesadaMs", latenciaAlvoPesadaMs);
+		ReflectionTestUtils.setField(limite, "fatorReducao", 0.9);
+		ReflectionTestUtils.setField(limite, "meterRegistry", new SimpleMeterRegistry());
+		limite.iniciar();
+		return limite;
+	}
+}
@@ -0,0 +1,116 @@
+package com.daniel.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.daniel.documentos.Cliente;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ClienteServiceCacheTests {
+
+	private ClienteService banco;
+
+	private ClienteServiceCache servico;
+
+	// O que o banco simulado tem gravado para o cliente "1"
+	private final AtomicReference<Cliente> gravado = new AtomicReference<>();
+
+	@BeforeEach
+	void criar() {
+		banco = mock(ClienteService.class);
+		when(banco.findById("1")).thenAnswer(chamada -> Mono.fromSupplier(gravado::get));
+
+		servico = new ClienteServiceCache();
+		ReflectionTestUtils.setField(servico, "clienteService", banco);
+		ReflectionTestUtils.setField(servico, "tamanhoMaximo", 100L);
+		ReflectionTestUtils.setField(servico, "ttlSegundos", 60L);
+		ReflectionTestUtils.setField(servico, "ttlEstatisticasSegundos", 30L);
+		ReflectionTestUtils.setField(servico, "meterRegistry", new SimpleMeterRegistry());
+		servico.iniciar();
+	}
+
+	@Test
+	void leituraDepoisDeAlterarTrazOValorNovo() {
+		gravado.set(cliente("Ana", 0L));
+		when(banco.update(eq("1"), any(Cliente.class), isNull())).thenAnswer(chamada -> Mono.fromSupplier(() -> {
+			gravado.set(cliente(chamada.<Cliente>getArgument(1).getNome(), 1L));
+			return gravado.get();
+		}));
+
+		assertThat(servico.findById("1").block().getNome()).isEqualTo("Ana");
+		assertThat(servico.findById("1").block().getNome()).isEqualTo("Ana");
+		servico.update("1", cliente("Bia", null), null).block();
+
+		Cliente lido = servico.findById("1").block();
+		assertThat(lido.getNome()).isEqualTo("Bia");
+		assertThat(lido.getVersao()).isEqualTo(1L);
+		// Uma consulta antes da alteração (a segunda leitura veio do cache) e outra depois dela
+		verify(banco, times(2)).findById("1");
+	}
+
+	@Test
+	void leituraDepoisDeExcluirNaoEncontraOCliente() {
+		gravado.set(cliente("Ana", 0L));
+		when(banco.deleteById("1")).thenAnswer(chamada -> Mono.fromSupplier(() -> {
+			gravado.set(null);
+			return 1L;
+		}));
+
+		assertThat(servico.findById("1").block()).isNotNull();
+		servico.deleteById("1").block();
+
+		assertThat(servico.findById("1").blockOptional()).isEmpty();
+	}
+
+	@Test
+	void clienteInexistenteNaoFicaNoCache() {
+		assertThat(servico.findById("1").blockOptional()).isEmpty();
+		gravado.set(cliente("Ana", 0L));
+
+		assertThat(servico.findById("1").block().getNome()).isEqualTo("Ana");
+	}
+
+	@Test
+	void desistenciaDeUmLeitorNaoCancelaAConsultaDosOutros() {
+		Sinks.One<Cliente> consulta = Sinks.one();
+		when(banco.findById("1")).thenReturn(consulta.asMono());
+
+		Disposable desistente = servico.findById("1").subscribe();
+		AtomicReference<Cliente> recebido = new AtomicReference<>();
+		AtomicReference<Throwable> erro = new AtomicReference<>();
+		servico.findById("1").subscribe(recebido::set, erro::set);
+		desistente.dispose();
+		consulta.tryEmitValue(cliente("Ana", 0L));
+
+		assertThat(erro.get()).isNull();
+		assertThat(recebido.get().getNome()).isEqualTo("Ana");
+		// As duas leituras compartilharam a mesma consulta, que continua no cache para a próxima
+		assertThat(servico.findById("1").block().getNome()).isEqualTo("Ana");
+		verify(banco, times(1)).findById("1");
+	}
+
+	private static Cliente cliente(String nome, Long versao) {
+		Cliente cliente = new Cliente();
+		cliente.setId("1");
+		cliente.setNome(nome);
+		cliente.setVersao(versao);
+		return cliente;
+	}
+}
@@ -0,0 +1,224 @@
+package com.daniel.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.dto.AlteracaoCliente;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ClienteServiceEscritaAdiadaTests {
+
+	private ClienteServiceImpl banco;
+
+	private ClienteServiceEscritaAdiada servico;
+
+	// Cópias do que cada chamada de updateAll recebeu
+	private final List<List<AlteracaoCliente>> gravacoes = new ArrayList<>();
+
+	@BeforeEach
+	void criar() {
+		banco = mock(ClienteServiceImpl.class);
+		servico = new ClienteServiceEscritaAdiada();
+		ReflectionTestUtils.setField(servico, "clienteService", banco);
+		ReflectionTestUtils.setField(servico, "habilitado", true);
+		ReflectionTestUtils.setField(servico, "quantidadeListras", 4);
+		ReflectionTestUtils.setField(servico, "tamanhoLote", 500);
+		ReflectionTestUtils.setField(servico, "pendentesMaximo", 2000);
+		// Longa o bastante para que só os testes disparem a gravação
+		ReflectionTestUtils.setField(servico, "janelaMs", 600_000L);
+		ReflectionTestUtils.setField(servico, "encerramentoSegundos", 5L);
+		ReflectionTestUtils.setField(servico, "meterRegistry", new SimpleMeterRegistry());
+		servico.iniciar();
+	}
+
+	@Test
+	void alteracoesDoMesmoClienteSeCombinamEmUmaGravacao() {
+		when(banco.findById("1")).thenReturn(Mono.just(cliente("1", "Ana", 30, 3L)));
+		gravarSemConflito();
+
+		servico.update("1", alteracao("Bia", null), null).block();
+		Cliente resposta = servico.update("1", alteracao(null, 41), null).block();
+		gravar();
+
+		assertThat(resposta.getVersao()).isEqualTo(5L);
+		assertThat(gravacoes).hasSize(1);
+		AlteracaoCliente gravada = gravacoes.get(0).get(0);
+		assertThat(gravada.getCampos()).containsExactlyInAnyOrder("nome", "idade");
+		assertThat(gravada.getVersaoBase()).isEqualTo(3L);
+		assertThat(gravada.getCliente().getVersao()).isEqualTo(5L);
+		assertThat(gravada.getCliente().getNome()).isEqualTo("Bia");
+		verify(banco, times(1)).findById("1");
+	}
+
+	@Test
+	void leituraVeAAlteracaoAntesDaGravacao() {
+		when(banco.findById("1")).thenReturn(Mono.just(cliente("1", "Ana", 30, 3L)));
+
+		servico.update("1", alteracao("Bia", null), null).block();
+
+		Cliente lido = servico.findById("1").block();
+		assertThat(lido.getNome()).isEqualTo("Bia");
+		assertThat(lido.getIdade()).isEqualTo(30);
+		assertThat(servico.findVersaoById("1").block()).isEqualTo(4L);
+		assertThat(servico.existsById("1").block()).isTrue();
+		verify(banco, times(1)).findById("1");
+	}
+
+	@Test
+	void encerramentoGravaOQueEstaPendente() {
+		when(banco.findById("1")).thenReturn(Mono.just(cliente("1", "Ana", 30, 3L)));
+		when(banco.findById("2")).thenReturn(Mono.just(cliente("2", "Caio", 20, 0L)));
+		gravarSemConflito();
+
+		servico.update("1", alteracao("Bia", null), null).block();
+		servico.update("2", alteracao(null, 21), null).block();
+		servico.encerrar();
+
+		assertThat(gravacoes.stream().mapToInt(List::size).sum()).isEqualTo(2);
+		assertThat(ReflectionTestUtils.<Double>invokeMethod(servico, "pendentes")).isZero();
+	}
+
+	@Test
+	void falhaDevolveOLoteSemAvancarAVersaoDeNovo() {
+		when(banco.findById("1")).thenReturn(Mono.just(cliente("1", "Ana", 30, 3L)));
+		when(banco.updateAll(anyList())).thenAnswer(chamada -> {
+			registrar(chamada.getArgument(0));
+			return gravacoes.size() == 1 ? Mono.error(new IllegalStateException("rede")) : Mono.just(List.of());
+		});
+
+		servico.update("1", alteracao("Bia", null), null).block();
+		assertThatThrownBy(this::gravar).hasMessageContaining("rede");
+		servico.update("1", alteracao(null, 41), null).block();
+		gravar();
+
+		// A repetição parte da mesma versão base: se a primeira tentativa chegou ao banco, o filtro não casa de novo
+		assertThat(gravacoes).hasSize(2);
+		AlteracaoCliente repetida = gravacoes.get(1).get(0);
+		assertThat(repetida.getCampos()).containsExactlyInAnyOrder("nome", "idade");
+		assertThat(repetida.getVersaoBase()).isEqualTo(3L);
+		assertThat(repetida.getCliente().getVersao()).isEqualTo(5L);
+	}
+
+	@Test
+	void falhaComAlteracaoNovaEmEsperaGravaAPartirDaVersaoMaisAntiga() {
+		when(banco.findById("1")).thenReturn(Mono.just(cliente("1", "Ana", 30, 3L)));
+		Sinks.One<List<Cliente>> primeira = Sinks.one();
+		when(banco.updateAll(anyList())).thenAnswer(chamada -> {
+			registrar(chamada.getArgument(0));
+			return gravacoes.size() == 1 ? primeira.asMono() : Mono.just(List.of());
+		});
+
+		servico.update("1", alteracao("Bia", null), null).block();
+		Mono<Void> gravacao = ReflectionTestUtils.<Mono<Void>>invokeMethod(servico, "gravarTodas").cache();
+		gravacao.subscribe(null, e -> { });
+		// Chega durante a gravação e parte da cópia em gravação, na versão 4 que o banco ainda não tem
+		Cliente resposta = servico.update("1", alteracao(null, 41), null).block();
+		primeira.tryEmitError(new IllegalStateException("rede"));
+		assertThatThrownBy(gravacao::block).hasMessageContaining("rede");
+		gravar();
+
+		assertThat(resposta.getVersao()).isEqualTo(5L);
+		assertThat(gravacoes).hasSize(2);
+		AlteracaoCliente repetida = gravacoes.get(1).get(0);
+		assertThat(repetida.getCampos()).containsExactlyInAnyOrder("nome", "idade");
+		assertThat(repetida.getVersaoBase()).isEqualTo(3L);
+		assertThat(repetida.getCliente().getVersao()).isEqualTo(5L);
+		assertThat(repetida.getCliente().getNome()).isEqualTo("Bia");
+		assertThat(repetida.getCliente().getIdade()).isEqualTo(41);
+	}
+
+	@Test
+	void conflitoReaplicaAsAlteracoesSobreODocumentoAtual() {
+		when(banco.findById("1")).thenReturn(Mono.just(cliente("1", "Ana", 30, 3L)));
+		Cliente atual = cliente("1", "Ana", 50, 7L);
+		when(banco.updateAll(anyList())).thenAnswer(chamada -> {
+			registrar(chamada.getArgument(0));
+			return Mono.just(gravacoes.size() == 1 ? List.of(atual) : List.of());
+		});
+
+		servico.update("1", alteracao("Bia", null), null).block();
+		gravar();
+
+		Cliente lido = servico.findById("1").block();
+		assertThat(lido.getNome()).isEqualTo("Bia");
+		assertThat(lido.getIdade()).isEqualTo(50);
+		assertThat(lido.getVersao()).isEqualTo(8L);
+
+		gravar();
+		AlteracaoCliente reaplicada = gravacoes.get(1).get(0);
+		assertThat(reaplicada.getCampos()).containsExactly("nome");
+		assertThat(reaplicada.getVersaoBase()).isEqualTo(7L);
+		assertThat(reaplicada.getCliente().getVersao()).isEqualTo(8L);
+	}
+
+	@Test
+	void leituraDaBaseAnteriorAUmaGravacaoConcluidaSeRepete() {
+		Sinks.One<Cliente> leituraLenta = Sinks.one();
+		when(banco.findById("1")).thenReturn(leituraLenta.asMono(), Mono.just(cliente("1", "Ana", 30, 3L)),
+				Mono.just(cliente("1", "Bia", 30, 4L)));
+		gravarSemConflito();
+
+		// A primeira alteração ainda lê a base quando a segunda é adiada e gravada
+		Mono<Cliente> lenta = servico.update("1", alteracao(null, 41), null).cache();
+		lenta.subscribe();
+		servico.update("1", alteracao("Bia", null), null).block();
+		gravar();
+		leituraLenta.tryEmitValue(cliente("1", "Ana", 30, 3L));
+
+		Cliente resposta = lenta.block();
+		assertThat(resposta.getNome()).isEqualTo("Bia");
+		assertThat(resposta.getIdade()).isEqualTo(41);
+		assertThat(resposta.getVersao()).isEqualTo(5L);
+		verify(banco, times(3)).findById("1");
+	}
+
+	private void gravarSemConflito() {
+		when(banco.updateAll(anyList())).thenAnswer(chamada -> {
+			registrar(chamada.getArgument(0));
+			return Mono.just(List.of());
+		});
+	}
+
+	private void registrar(List<AlteracaoCliente> alteracoes) {
+		gravacoes.add(new ArrayList<>(alteracoes));
+	}
+
+	private void gravar() {
+		ReflectionTestUtils.<Mono<Void>>invokeMethod(servico, "gravarTodas").block();
+	}
+
+	private static Cliente alteracao(String nome, Integer idade) {
+		Cliente alteracao = new Cliente();
+		alteracao.setNome(nome);
+		alteracao.setIdade(idade);
+		return alteracao;
+	}
+
+	private static Cliente cliente(String id, String nome, Integer idade, Long versao) {
+		Cliente cliente = new Cliente();
+		cliente.setId(id);
+		cliente.setNome(nome);
+		cliente.setSobrenome("Silva");
+		cliente.setIdade(idade);
+		cliente.setSalario(10.0);
+		cliente.setVersao(versao);
+		return cliente;
+	}
+}
@@ -0,0 +1,118 @@
+package com.daniel.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.daniel.dto.EstatisticasClientes;
+import com.daniel.dto.FaixaHistograma;
+import com.daniel.limites.LimiteConcorrencia;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// O MongoDB em memória dos outros testes não implementa $bucketAuto: aqui o pipeline enviado é conferido e a resposta do servidor para
+// uma base conhecida é simulada
+class ClienteServiceImplTests {
+
+	private ReactiveMongoTemplate mongoTemplateListagem;
+
+	private ClienteServiceImpl servico;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void criar() {
+		mongoTemplateListagem = mock(ReactiveMongoTemplate.class);
+		LimiteConcorrencia limiteConcorrencia = mock(LimiteConcorrencia.class);
+		when(limiteConcorrencia.protegerPesada(any(Mono.class))).thenAnswer(chamada -> chamada.getArgument(0));
+
+		servico = new ClienteServiceImpl();
+		ReflectionTestUtils.setField(servico, "mongoTemplateListagem", mongoTemplateListagem);
+		ReflectionTestUtils.setField(servico, "limiteConcorrencia", limiteConcorrencia);
+		ReflectionTestUtils.setField(servico, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(servico, "faixasSalario", 3);
+		ReflectionTestUtils.setField(servico, "faixasIdade", new int[] {0, 18, 25, 35, 45, 55, 65, 150});
+		servico.iniciarMetricas();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void estatisticasTrazemResumosEHistogramasDaBase() {
+		// Base: salários 1000, 2000, ..., 6000 e idades 17, 20, 30, 30, 70 e 160. Com 3 faixas o $bucketAuto põe dois salários em
+		// cada uma (o máximo de uma faixa é o mínimo da seguinte); o $bucket de idade omite as faixas vazias e manda 160 para "outros"
+		Document resultado = new Document("resumo", List.of(new Document("_id", null).append("total", 6)
+				.append("somaSalario", 21000.0).append("mediaSalario", 3500.0).append("minimoSalario", 1000.0).append("maximoSalario", 6000.0)
+				.append("somaIdade", 327).append("mediaIdade", 54.5).append("minimoIdade", 17).append("maximoIdade", 160)))
+				.append("faixasSalario", List.of(
+						faixa(new Document("min", 1000.0).append("max", 3000.0), 2),
+						faixa(new Document("min", 3000.0).append("max", 5000.0), 2),
+						faixa(new Document("min", 5000.0).append("max", 6000.0), 2)))
+				.append("faixasIdade", List.of(faixa(0, 1), faixa(18, 1), faixa(25, 2), faixa(65, 1), faixa("outros", 1)));
+		ArgumentCaptor<TypedAggregation<?>> agregacao = ArgumentCaptor.forClass(TypedAggregation.class);
+		when(mongoTemplateListagem.aggregate(any(TypedAggregation.class), eq(Document.class))).thenReturn(Flux.just(resultado));
+
+		EstatisticasClientes estatisticas = servico.calcularEstatisticas(10, null).block();
+
+		verify(mongoTemplateListagem).aggregate(agregacao.capture(), eq(Document.class));
+		List<Document> pipeline = agregacao.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+		assertThat(pipeline).hasSize(2);
+		assertThat(pipeline.get(0).toJson()).contains("\"idade\": {\"$gte\": 10}");
+		Document facetas = pipeline.get(1).get("$facet", Document.class);
+		assertThat(facetas.getList("faixasSalario", Document.class).get(0).get("$bucketAuto", Document.class))
+				.containsEntry("groupBy", "$salario").containsEntry("buckets", 3);
+		assertThat(facetas.getList("faixasIdade", Document.class).get(0).get("$bucket", Document.class))
+				.containsEntry("groupBy", "$idade").containsEntry("default", "outros");
+
+		assertThat(estatisticas.getTotal()).isEqualTo(6);
+		assertThat(estatisticas.getSalario().getSoma()).isEqualTo(21000.0);
+		assertThat(estatisticas.getSalario().getMedia()).isEqualTo(3500.0);
+		assertThat(estatisticas.getSalario().getMinimo()).isEqualTo(1000.0);
+		assertThat(estatisticas.getSalario().getMaximo()).isEqualTo(6000.0);
+		assertThat(estatisticas.getIdade().getSoma()).isEqualTo(327.0);
+		assertThat(estatisticas.getIdade().getMedia()).isEqualTo(54.5);
+		assertThat(estatisticas.getIdade().getMinimo()).isEqualTo(17.0);
+		assertThat(estatisticas.getIdade().getMaximo()).isEqualTo(160.0);
+
+		assertThat(estatisticas.getFaixasSalario()).extracting(FaixaHistograma::getInicio, FaixaHistograma::getFim, FaixaHistograma::getQuantidade)
+				.containsExactly(tuple(1000.0, 3000.0, 2L), tuple(3000.0, 5000.0, 2L), tuple(5000.0, 6000.0, 2L));
+		// Todas as faixas configuradas aparecem, as vazias com zero, e "outros" por último
+		assertThat(estatisticas.getFaixasIdade()).extracting(FaixaHistograma::getInicio, FaixaHistograma::getFim, FaixaHistograma::getQuantidade)
+				.containsExactly(tuple(0.0, 18.0, 1L), tuple(18.0, 25.0, 1L), tuple(25.0, 35.0, 2L), tuple(35.0, 45.0, 0L), 
+						tuple(45.0, 55.0, 0L), tuple(55.0, 65.0, 0L), tuple(65.0, 150.0, 1L), tuple(null, null, 1L));
+	}
+
+	@Test
+	void estatisticasDeBaseVaziaNaoTrazemResumo() {
+		Document resultado = new Document("resumo", List.of()).append("faixasSalario", List.of()).append("faixasIdade", List.of());
+		when(mongoTemplateListagem.aggregate(any(TypedAggregation.class), eq(Document.class))).thenReturn(Flux.just(resultado));
+
+		EstatisticasClientes estatisticas = servico.calcularEstatisticas(null, null).block();
+
+		assertThat(estatisticas.getTotal()).isZero();
+		assertThat(estatisticas.getSalario().getSoma()).isZero();
+		assertThat(estatisticas.getSalario().getMedia()).isNull();
+		assertThat(estatisticas.getFaixasSalario()).isEmpty();
+		assertThat(estatisticas.getFaixasIdade()).hasSize(7).allSatisfy(faixa -> assertThat(faixa.getQuantidade()).isZero());
+	}
+
+	private static Document faixa(Object id, int quantidade) {
+		return new Document("_id", id).append("count", quantidade);
+	}
+}
@@ -0,0 +1,223 @@
+package com.daniel.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.daniel.documentos.Cliente;
+import com.daniel.documentos.FotoReferencia;
+import com.daniel.storage.FotoStorage;
+import com.daniel.storage.GeradorMiniaturas;
+import com.daniel.storage.LocalFotoStorage;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ColetorFotosTests {
+
+	private static final String LAPIDE = ".removendo-";
+
+	private static MongoServer servidor;
+
+	private static MongoClient mongoClient;
+
+	@TempDir
+	Path diretorio;
+
+	private ReactiveMongoTemplate mongoTemplate;
+
+	private FotoStorage fotoStorage;
+
+	private FotoServiceImpl fotoService;
+
+	private ColetorFotos coletor;
+
+	@BeforeAll
+	static void subirMongo() {
+		servidor = new MongoServer(new MemoryBackend());
+		InetSocketAddress endereco = servidor.bind();
+		mongoClient = MongoClients.create("mongodb://localhost:" + endereco.getPort());
+	}
+
+	@AfterAll
+	static void pararMongo() {
+		mongoClient.close();
+		servidor.shutdownNow();
+	}
+
+	@BeforeEach
+	void criar() {
+		mongoTemplate = new ReactiveMongoTemplate(mongoClient, "coleta");
+		mongoTemplate.remove(new Query(), FotoReferencia.class).block();
+		mongoTemplate.remove(new Query(), Cliente.class).block();
+
+		LocalFotoStorage local = new LocalFotoStorage();
+		ReflectionTestUtils.setField(local, "path", diretorio.toString());
+		local.iniciar();
+		// Espião para intercalar outras operações entre os passos da coleta
+		fotoStorage = spy(local);
+
+		GeradorMiniaturas geradorMiniaturas = new GeradorMiniaturas();
+		ReflectionTestUtils.setField(geradorMiniaturas, "tamanhos", new int[] {64});
+
+		fotoService = new FotoServiceImpl();
+		ReflectionTestUtils.setField(fotoService, "fotoStorage", fotoStorage);
+		ReflectionTestUtils.setField(fotoService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(fotoService, "tamanhoMaximo", DataSize.ofMegabytes(1));
+
+		coletor = new ColetorFotos();
+		ReflectionTestUtils.setField(coletor, "fotoStorage", fotoStorage);
+		ReflectionTestUtils.setField(coletor, "geradorMiniaturas", geradorMiniaturas);
+		ReflectionTestUtils.setField(coletor, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(coletor, "meterRegistry", new SimpleMeterRegistry());
+		// Desligada: a fila não dispara coletas por conta própria, os testes chamam a mesma coleta que ela chamaria
+		ReflectionTestUtils.setField(coletor, "habilitado", false);
+		ReflectionTestUtils.setField(coletor, "operacoesPorSegundo", 10_000);
+		ReflectionTestUtils.setField(coletor, "tamanhoFila", 16);
+		ReflectionTestUtils.setField(coletor, "carencia", Duration.ZERO);
+		// Blocos pequenos para que as rodadas dos testes atravessem mais de um
+		ReflectionTestUtils.setField(coletor, "tamanhoBloco", 2);
+		coletor.iniciar();
+		ReflectionTestUtils.setField(fotoService, "coletorFotos", coletor);
+	}
+
+	@AfterEach
+	void encerrar() {
+		coletor.encerrar();
+	}
+
+	@Test
+	void fotoSemReferenciasNemClientesEhApagada() {
+		String foto = enviar("a");
+		fotoService.liberar(foto).block();
+
+		assertThat(coletar(foto)).isTrue();
+		assertThat(diretorio.resolve(foto)).doesNotExist();
+		assertThat(diretorio.resolve(LAPIDE + foto)).doesNotExist();
+		assertThat(referencias(foto)).isNull();
+	}
+
+	@Test
+	void contagemAbaixoDoRealNaoApagaAFotoDeUmCliente() {
+		String foto = enviar("a");
+		cliente(foto);
+		// Um cliente ainda aponta para a foto, mas a contagem chegou a zero (liberada a mais)
+		fotoService.liberar(foto).block();
+
+		assertThat(coletar(foto)).isFalse();
+		assertThat(diretorio.resolve(foto)).exists();
+		assertThat(diretorio.resolve(LAPIDE + foto)).doesNotExist();
+		assertThat(referencias(foto)).isEqualTo(1L);
+	}
+
+	@Test
+	void uploadDoMesmoConteudoDuranteAColetaMantemAFoto() {
+		String foto = enviar("a");
+		fotoService.liberar(foto).block();
+		// O upload chega com o arquivo já no nome temporário da coleta: registra a referência e grava o conteúdo de novo
+		doAnswer(chamada -> ((Mono<?>) chamada.callRealMethod()).then(enviarMono("a")).then())
+				.when(fotoStorage).renomear(foto, LAPIDE + foto);
+
+		assertThat(coletar(foto)).isFalse();
+		assertThat(diretorio.resolve(foto)).hasContent("a");
+		assertThat(diretorio.resolve(LAPIDE + foto)).doesNotExist();
+		assertThat(referencias(foto)).isEqualTo(1L);
+	}
+
+	@Test
+	void lapideDeFotoAindaUsadaVoltaParaOLugar() throws Exception {
+		String usada = enviar("a");
+		String abandonada = enviar("b");
+		cliente(usada);
+		// Coletas interrompidas depois de remover o registro e renomear o arquivo
+		for (String foto : new String[] {usada, abandonada}) {
+			mongoTemplate.remove(Query.query(Criteria.where("id").is(foto)),
+					FotoReferencia.class).block();
+			Files.move(diretorio.resolve(foto), diretorio.resolve(LAPIDE + foto));
+		}
+
+		coletor.reconciliar().block();
+
+		assertThat(diretorio.resolve(usada)).hasContent("a");
+		assertThat(diretorio.resolve(LAPIDE + usada)).doesNotExist();
+		assertThat(referencias(usada)).isEqualTo(1L);
+		assertThat(diretorio.resolve(abandonada)).doesNotExist();
+		assertThat(diretorio.resolve(LAPIDE + abandonada)).doesNotExist();
+	}
+
+	@Test
+	void reconciliacaoDecideCadaArquivoPelosClientes() throws Exception {
+		String usada = enviar("a");
+		String acimaDoReal = enviar("b");
+		cliente(usada);
+		// Miniaturas da foto em uso e de uma foto que já não existe
+		String miniaturaUsada = usada.substring(0, usada.lastIndexOf('.')) + "-64.jpg";
+		String miniaturaOrfa = "f".repeat(64) + "-64.jpg";
+		Files.writeString(diretorio.resolve(miniaturaUsada), "m");
+		Files.writeString(diretorio.resolve(miniaturaOrfa), "m");
+
+		coletor.reconciliar().block();
+
+		assertThat(diretorio.resolve(usada)).hasContent("a");
+		assertThat(diretorio.resolve(miniaturaUsada)).exists();
+		assertThat(referencias(usada)).isEqualTo(1L);
+		assertThat(diretorio.resolve(miniaturaOrfa)).doesNotExist();
+		// Contagem 1 sem nenhum cliente: zerada e a foto coletada
+		assertThat(diretorio.resolve(acimaDoReal)).doesNotExist();
+		assertThat(referencias(acimaDoReal)).isNull();
+	}
+
+	private Boolean coletar(String foto) {
+		return ReflectionTestUtils.<Mono<Boolean>>invokeMethod(coletor, "coletar", foto).block();
+	}
+
+	private String enviar(String conteudo) {
+		return enviarMono(conteudo).block();
+	}
+
+	private Mono<String> enviarMono(String conteudo) {
+		Flux<DataBuffer> corpo = Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance
+				.wrap(conteudo.getBytes(StandardCharsets.UTF_8))));
+		return fotoService.salvar("foto.png", corpo);
+	}
+
+	private void cliente(String foto) {
+		Cliente cliente = new Cliente();
+		cliente.setNome("Ana");
+		cliente.setSobrenome("Silva");
+		cliente.setIdade(30);
+		cliente.setSalario(10.0);
+		cliente.setFoto(foto);
+		mongoTemplate.insert(cliente).block();
+	}
+
+	private Long referencias(String foto) {
+		return mongoTemplate.findById(foto, FotoReferencia.class).map(FotoReferencia::getReferencias).block();
+	}
+}
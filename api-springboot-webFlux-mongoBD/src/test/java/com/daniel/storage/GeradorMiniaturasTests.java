@@ -0,0 +1,74 @@
+package com.daniel.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class GeradorMiniaturasTests {
+
+	@TempDir
+	Path diretorio;
+
+	private GeradorMiniaturas gerador;
+
+	@BeforeEach
+	void criar() {
+		LocalFotoStorage storage = new LocalFotoStorage();
+		ReflectionTestUtils.setField(storage, "path", diretorio.toString());
+		storage.iniciar();
+
+		gerador = new GeradorMiniaturas();
+		ReflectionTestUtils.setField(gerador, "fotoStorage", storage);
+		ReflectionTestUtils.setField(gerador, "tamanhos", new int[] {64});
+		ReflectionTestUtils.setField(gerador, "threads", 1);
+		ReflectionTestUtils.setField(gerador, "pixelsMaximo", 1_000_000L);
+		gerador.iniciar();
+	}
+
+	@AfterEach
+	void encerrar() {
+		gerador.encerrar();
+	}
+
+	@Test
+	void miniaturaChegaAoNomeFinalSemDeixarTemporario() throws IOException {
+		imagem("foto.png", 640, 320);
+
+		assertThat(gerador.gerar("foto.png", 64).block()).isEqualTo("foto-64.jpg");
+
+		BufferedImage miniatura = ImageIO.read(diretorio.resolve("foto-64.jpg").toFile());
+		assertThat(miniatura.getWidth()).isEqualTo(64);
+		assertThat(miniatura.getHeight()).isEqualTo(32);
+		try (Stream<Path> arquivos = Files.list(diretorio)) {
+			assertThat(arquivos.map(p -> p.getFileName().toString())).containsExactlyInAnyOrder("foto.png", "foto-64.jpg");
+		}
+	}
+
+	@Test
+	void imagemAcimaDoLimiteDePixelsEhRecusadaAntesDeDecodificar() throws IOException {
+		// Poucos bytes comprimidos, mas 4 milhões de pixels
+		imagem("grande.png", 2000, 2000);
+
+		assertThatThrownBy(() -> gerador.gerar("grande.png", 64).block())
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("excede o limite");
+		assertThat(diretorio.resolve("grande-64.jpg")).doesNotExist();
+	}
+
+	private void imagem(String nome, int largura, int altura) throws IOException {
+		ImageIO.write(new BufferedImage(largura, altura, BufferedImage.TYPE_BYTE_BINARY), "png", diretorio.resolve(nome).toFile());
+	}
+}